@@ -0,0 +1,125 @@
+package com.matawan.equipefootball.analytics;
+
+import com.matawan.equipefootball.dto.BudgetBucketDto;
+import com.matawan.equipefootball.dto.BudgetDistributionDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import com.matawan.equipefootball.sharding.Shards;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Histogram of the team budgets, maintained incrementally from the committed changes
+ *
+ * Quantiles are within the relative accuracy (2% by default) of the exact budgets for budgets between 1 and 10^13,
+ * budgets below 1 are reported as 0. The histogram has a fixed size (about 750 counters, 6 KB) and a query walks it once,
+ * whatever the number of teams.
+ *
+ * Every update removes the previous budget and adds the new one: the changes commute, so the listeners of concurrent
+ * commits can run in any order. A rebuild replaces the histogram with a single scan of the budgets, changes committed
+ * during the scan are lost until the next rebuild (it runs at startup, before the requests are served).
+ *
+ * The histogram is per instance: it follows the writes of this instance only (the change log does not carry the previous
+ * budgets the updates of the other instances would need to remove), so with several instances it drifts from the
+ * database until the next rebuild.
+ */
+@Component
+public class BudgetDistribution implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetDistribution.class);
+
+    private static final double MIN_BUDGET = 1;
+    private static final double MAX_BUDGET = 1e13;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final double relativeAccuracy;
+    private volatile LogHistogram histogram;
+
+    public BudgetDistribution(JdbcTemplate jdbcTemplate, Shards shards,
+                              @Value("${equipe.budget-distribution.relative-accuracy:0.02}") double relativeAccuracy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.relativeAccuracy = relativeAccuracy;
+        this.histogram = newHistogram();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the histogram with a single scan of the budgets, the rows are not kept in memory
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        LogHistogram rebuilt = newHistogram();
+        shards.forEach(() -> jdbcTemplate.query("SELECT budget FROM team WHERE budget IS NOT NULL", resultSet -> {
+            rebuilt.add(resultSet.getDouble(1));
+        }));
+        histogram = rebuilt;
+        logger.info("Budget distribution built in {} ms from {} teams", (System.nanoTime() - start) / 1_000_000, rebuilt.getCount());
+    }
+
+    /**
+     * Get the approximate quantiles and the non-empty buckets of the budgets
+     *
+     * @param quantiles the quantiles to compute, between 0 and 1
+     * @return the distribution of the budgets
+     * @throws IllegalArgumentException if a quantile is out of range
+     */
+    public BudgetDistributionDto getDistribution(List<Double> quantiles) {
+        LogHistogram current = histogram;
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Double quantile : quantiles) {
+            double value = current.getQuantile(quantile);
+            values.put(String.valueOf(quantile), Double.isNaN(value) ? null : value);
+        }
+        List<BudgetBucketDto> buckets = new ArrayList<>();
+        current.forEachBucket((lowerBound, upperBound, count) -> buckets.add(new BudgetBucketDto(lowerBound, upperBound, count)));
+        return new BudgetDistributionDto(current.getCount(), current.getRelativeAccuracy(), values, buckets);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        LogHistogram current = histogram;
+        switch (event.getType()) {
+            case CREATED -> add(current, event.getTeam());
+            case UPDATED -> {
+                remove(current, event.getPrevious());
+                add(current, event.getTeam());
+            }
+            case DELETED -> remove(current, event.getPrevious());
+            default -> {
+                // roster changes do not change the budget
+            }
+        }
+    }
+
+    private void add(LogHistogram current, TeamDto team) {
+        if (team != null && team.getBudget() != null) {
+            current.add(team.getBudget());
+        }
+    }
+
+    private void remove(LogHistogram current, TeamDto team) {
+        if (team != null && team.getBudget() != null) {
+            current.remove(team.getBudget());
+        }
+    }
+
+    private LogHistogram newHistogram() {
+        return new LogHistogram(relativeAccuracy, MIN_BUDGET, MAX_BUDGET);
+    }
+}
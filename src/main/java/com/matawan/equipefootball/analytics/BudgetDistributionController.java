@@ -0,0 +1,43 @@
+package com.matawan.equipefootball.analytics;
+
+import com.matawan.equipefootball.dto.BudgetDistributionDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/teams/budget-distribution")
+public class BudgetDistributionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetDistributionController.class);
+
+    private static final List<Double> DEFAULT_QUANTILES = List.of(0.25, 0.5, 0.75, 0.9, 0.95, 0.99);
+
+    private final BudgetDistribution budgetDistribution;
+
+    public BudgetDistributionController(BudgetDistribution budgetDistribution) {
+        this.budgetDistribution = budgetDistribution;
+    }
+
+    /**
+     * Get the distribution of the team budgets, for example /api/teams/budget-distribution?q=0.5,0.99
+     *
+     * @param q the quantiles to compute (between 0 and 1), default is 0.25, 0.5, 0.75, 0.9, 0.95 and 0.99
+     * @return the approximate quantiles and the non-empty buckets
+     */
+    @GetMapping
+    public ResponseEntity<?> getBudgetDistribution(@RequestParam(required = false) List<Double> q) {
+        List<Double> quantiles = q == null || q.isEmpty() ? DEFAULT_QUANTILES : q;
+        if (quantiles.stream().anyMatch(quantile -> quantile == null || quantile < 0 || quantile > 1)) {
+            logger.error("Invalid quantiles: {}", quantiles);
+            return ResponseEntity.badRequest().body("Quantiles must be between 0 and 1");
+        }
+        return ResponseEntity.ok(budgetDistribution.getDistribution(quantiles));
+    }
+}
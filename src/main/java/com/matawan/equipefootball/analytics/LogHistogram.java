@@ -0,0 +1,157 @@
+package com.matawan.equipefootball.analytics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Mergeable histogram with logarithmic buckets and a bounded relative error (the DDSketch bucketing)
+ *
+ * With a relative accuracy a, bucket i holds the values in (g^(i-1), g^i] where g = (1 + a) / (1 - a), and is represented
+ * by 2 g^i / (g + 1): every value of the bucket is within a relative distance a of it. A quantile is therefore off by at
+ * most a (relative) from the exact value of the same rank, whatever the number or the distribution of the values.
+ *
+ * Buckets are dense between minValue and maxValue, so the memory is fixed (about log(maxValue / minValue) / (2a) counters).
+ * Values below minValue are counted in a zero bucket and reported as 0 (absolute error below minValue), values above
+ * maxValue are counted in the last bucket and have no error bound. Values can be removed, and two histograms built with the
+ * same parameters can be merged by adding their counters. Counters are atomic, concurrent writers need no lock; a reader
+ * racing with a writer may see the value moved between two buckets as missing or counted twice for an instant.
+ */
+public class LogHistogram {
+
+    private final double relativeAccuracy;
+    private final double minValue;
+    private final double maxValue;
+    private final double gamma;
+    private final double logGamma;
+    private final int minIndex;
+    private final AtomicLongArray counts;
+    private final AtomicLong zeroCount = new AtomicLong();
+
+    public LogHistogram(double relativeAccuracy, double minValue, double maxValue) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1 || minValue <= 0 || maxValue <= minValue) {
+            throw new IllegalArgumentException("Invalid histogram parameters");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.minIndex = index(minValue);
+        this.counts = new AtomicLongArray(index(maxValue) - minIndex + 1);
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void remove(double value) {
+        add(value, -1);
+    }
+
+    private void add(double value, long count) {
+        if (value < minValue) {
+            zeroCount.addAndGet(count);
+        } else {
+            counts.addAndGet(slot(value), count);
+        }
+    }
+
+    /**
+     * Add the counts of another histogram to this one
+     *
+     * @param other a histogram built with the same parameters
+     * @throws IllegalArgumentException if the parameters differ
+     */
+    public void merge(LogHistogram other) {
+        if (other.relativeAccuracy != relativeAccuracy || other.minValue != minValue || other.maxValue != maxValue) {
+            throw new IllegalArgumentException("Histograms with different parameters cannot be merged");
+        }
+        zeroCount.addAndGet(other.zeroCount.get());
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+    }
+
+    public long getCount() {
+        long count = zeroCount.get();
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the approximate value at a quantile
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return the approximate value, NaN if the histogram is empty
+     */
+    public double getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("The quantile must be between 0 and 1");
+        }
+        long count = getCount();
+        if (count <= 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (quantile * (count - 1));
+        long seen = zeroCount.get();
+        if (seen > rank) {
+            return 0;
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen > rank) {
+                return representative(i);
+            }
+        }
+        return representative(counts.length() - 1); // counters changed during the walk
+    }
+
+    /**
+     * Visit the non-empty buckets in increasing order of values, the zero bucket first (bounds 0 and minValue)
+     *
+     * @param consumer the visitor
+     */
+    public void forEachBucket(BucketConsumer consumer) {
+        long zeros = zeroCount.get();
+        if (zeros > 0) {
+            consumer.accept(0, minValue, zeros);
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count > 0) {
+                int index = i + minIndex;
+                consumer.accept(Math.max(minValue, Math.pow(gamma, index - 1)), Math.pow(gamma, index), count);
+            }
+        }
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public int getBucketCount() {
+        return counts.length() + 1;
+    }
+
+    private int slot(double value) {
+        return Math.min(index(value) - minIndex, counts.length() - 1);
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double representative(int slot) {
+        return 2 * Math.pow(gamma, slot + minIndex) / (gamma + 1);
+    }
+
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(double lowerBound, double upperBound, long count);
+    }
+}
@@ -0,0 +1,82 @@
+package com.matawan.equipefootball.changefeed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Bounded buffer of the most recent changes, each one identified by a sequence number starting at 1
+ * Appending overwrites the oldest entry once the buffer is full; appends and reads do not take locks
+ *
+ * @param <T> the type of the buffered changes
+ */
+public class ChangeRingBuffer<T> {
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final AtomicLong head = new AtomicLong(); // sequence of the last reserved slot
+
+    public ChangeRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Append a change
+     *
+     * @param factory creates the change from its sequence number
+     * @return the appended change
+     */
+    public T append(Function<Long, T> factory) {
+        long sequence = head.incrementAndGet();
+        T value = factory.apply(sequence);
+        slots.set(index(sequence), new Slot<>(sequence, value));
+        return value;
+    }
+
+    /**
+     * Read the changes after a sequence number
+     *
+     * @param sequence the last sequence number the reader has seen (0 for none)
+     * @return the changes after it in order, or null if some of them have already been overwritten
+     */
+    public List<T> since(long sequence) {
+        long last = head.get();
+        if (sequence > last) {
+            return null; // the reader comes from a sequence this buffer never produced
+        }
+        List<T> changes = new ArrayList<>((int) Math.min(last - sequence, slots.length()));
+        for (long next = sequence + 1; next <= last; next++) {
+            Slot<T> slot = slots.get(index(next));
+            if (slot == null || slot.sequence < next) {
+                break; // still being appended, it will be delivered live
+            }
+            if (slot.sequence > next) {
+                return null; // overwritten
+            }
+            changes.add(slot.value);
+        }
+        return changes;
+    }
+
+    /**
+     * @return the sequence number of the last appended change (0 if none)
+     */
+    public long getLastSequence() {
+        return head.get();
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length());
+    }
+
+    private record Slot<T>(long sequence, T value) {
+    }
+}
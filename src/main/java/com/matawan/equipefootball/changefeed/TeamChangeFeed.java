@@ -0,0 +1,270 @@
+package com.matawan.equipefootball.changefeed;
+
+import com.matawan.equipefootball.dto.TeamChangeDto;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events feed of the team changes
+ *
+ * Committed changes are appended to a bounded in-memory ring buffer, so a client reconnecting with the Last-Event-ID header
+ * gets the changes it missed without hitting the database. Connections are asynchronous (no thread is held per idle
+ * subscriber): a dispatcher thread queues each subscriber with changes or a heartbeat to send (once) on a small fixed pool
+ * of sender threads, and the sender reads the buffer from the last change it sent, so a slow client does not hold back
+ * the events of the others. A client that falls behind the buffer gets a "reset" event, and one whose sends did not
+ * progress during a heartbeat interval (a half-open connection) is disconnected and resumes with Last-Event-ID when it
+ * reconnects; until then it holds one of the sender threads.
+ *
+ * Event ids are "epoch:sequence" where the epoch identifies this process: an id from another process (or a sequence older
+ * than the buffer) cannot be resumed and the client gets a "reset" event telling it to reload the teams. A snapshot
+ * restore sends a "reset" event to every subscriber as well.
+ */
+@Component
+public class TeamChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamChangeFeed.class);
+
+    // type of the buffered marker sent as a "reset" event, the teams were replaced without change events
+    private static final String RESET = "RESET";
+
+    private final ChangeRingBuffer<TeamChangeDto> buffer;
+    private final long emitterTimeoutMillis;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "team-change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService senders;
+
+    // only accessed from the dispatcher thread
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    public TeamChangeFeed(@Value("${equipe.changefeed.buffer-size:1024}") int bufferSize,
+                          @Value("${equipe.changefeed.emitter-timeout-ms:1800000}") long emitterTimeoutMillis,
+                          @Value("${equipe.changefeed.heartbeat-interval-ms:30000}") long heartbeatIntervalMillis,
+                          @Value("${equipe.changefeed.sender-threads:4}") int senderThreads) {
+        this.buffer = new ChangeRingBuffer<>(bufferSize);
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        // a subscriber is queued at most once (see wakeUp), so the queue holds at most one task per subscriber
+        this.senders = Executors.newFixedThreadPool(senderThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "team-change-feed-sender-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        dispatcher.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append a committed change to the buffer and send it to the subscribers
+     *
+     * @param event the committed change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        buffer.append(sequence -> new TeamChangeDto(sequence, event.getType().name(), event.getTeamId(),
+                event.getTeam(), event.getPlayer(), LocalDateTime.now()));
+        // concurrent commits may schedule their drains out of order, each sender sends everything appended in sequence order
+        dispatcher.execute(this::drain);
+    }
+
+    /**
+     * Tell the subscribers to reload the teams, after they were replaced without change events (by a snapshot restore)
+     * The reset is buffered like a change, a client reconnecting with an older event id gets it too.
+     */
+    public void reset() {
+        buffer.append(sequence -> new TeamChangeDto(sequence, RESET, null, null, null, LocalDateTime.now()));
+        dispatcher.execute(this::drain);
+    }
+
+    /**
+     * Subscribe to the changes
+     *
+     * @param lastEventId the id of the last event received by the client before reconnecting, null for a new client
+     * @return the emitter of the subscription
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = newEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> dispatcher.execute(() -> subscribers.remove(subscriber)));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> emitter.complete());
+
+        dispatcher.execute(() -> {
+            subscriber.lastSequence = lastEventId == null ? buffer.getLastSequence() : resumableSequence(lastEventId);
+            subscribers.add(subscriber);
+            wakeUp(subscriber);
+        });
+        return emitter;
+    }
+
+    /**
+     * @return the number of connected subscribers (approximate, read outside of the dispatcher thread)
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.execute(() -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        dispatcher.shutdown();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Create the emitter of a subscription
+     */
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void drain() {
+        subscribers.forEach(this::wakeUp);
+    }
+
+    /**
+     * Queue a subscriber on the senders unless it is already queued or being sent to, it will get everything appended so far
+     */
+    private void wakeUp(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscriber));
+        }
+    }
+
+    /**
+     * Send a subscriber the changes appended since the last one it received, and the pending heartbeat, on a sender thread
+     */
+    private void send(Subscriber subscriber) {
+        try {
+            do {
+                List<TeamChangeDto> changes = buffer.since(Math.max(0, subscriber.lastSequence));
+                if (changes == null || subscriber.lastSequence < 0) {
+                    long resetSequence = buffer.getLastSequence();
+                    subscriber.emitter.send(SseEmitter.event().id(eventId(resetSequence)).name("reset")
+                            .data("Some changes are no longer available, reload the teams"));
+                    subscriber.lastSequence = resetSequence;
+                    subscriber.sent.incrementAndGet();
+                } else if (!changes.isEmpty()) {
+                    for (TeamChangeDto change : changes) {
+                        if (RESET.equals(change.getType())) {
+                            subscriber.emitter.send(SseEmitter.event().id(eventId(change.getSequence())).name("reset")
+                                    .data("The teams were replaced, reload them"));
+                        } else {
+                            subscriber.emitter.send(SseEmitter.event()
+                                    .id(eventId(change.getSequence()))
+                                    .name(change.getType().toLowerCase(Locale.ROOT).replace('_', '-'))
+                                    .data(change, MediaType.APPLICATION_JSON));
+                        }
+                        subscriber.lastSequence = change.getSequence();
+                        subscriber.sent.incrementAndGet();
+                    }
+                } else if (subscriber.heartbeat.getAndSet(false)) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    subscriber.sent.incrementAndGet();
+                }
+                subscriber.sending.set(false);
+                // a change appended (or a heartbeat requested) after the last read but before the flag was reset is sent by this thread
+            } while (hasPending(subscriber) && subscriber.sending.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            subscriber.sending.set(false);
+            dispatcher.execute(() -> disconnect(subscriber, "disconnected"));
+        }
+    }
+
+    private boolean hasPending(Subscriber subscriber) {
+        return subscriber.lastSequence != buffer.getLastSequence() || subscriber.heartbeat.get();
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            long sent = subscriber.sent.get();
+            boolean sending = subscriber.sending.get();
+            // a sender started just before the heartbeat may not have sent anything yet, a stalled one did not progress for a whole interval
+            if (sending && subscriber.sendingAtLastHeartbeat && sent == subscriber.sentAtLastHeartbeat) {
+                disconnect(subscriber, "stalled");
+                continue;
+            }
+            subscriber.sentAtLastHeartbeat = sent;
+            subscriber.sendingAtLastHeartbeat = sending;
+            subscriber.heartbeat.set(true);
+            wakeUp(subscriber);
+        }
+    }
+
+    /**
+     * Drop a subscriber, on the dispatcher thread
+     */
+    private void disconnect(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.emitter.complete();
+            logger.debug("Removed a {} subscriber", reason);
+        }
+    }
+
+    /**
+     * @return the sequence to resume from, or -1 if the event id was not produced by this process
+     */
+    private long resumableSequence(String lastEventId) {
+        int separator = lastEventId.indexOf(':');
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator))) {
+            return -1;
+        }
+        return parseSequence(lastEventId);
+    }
+
+    private long parseSequence(String eventId) {
+        try {
+            return Long.parseLong(eventId.substring(eventId.indexOf(':') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + ":" + sequence;
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        // whether a sender thread is sending to the subscriber, its fields are only accessed by that thread (or by
+        // the dispatcher before the first sender starts)
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean heartbeat = new AtomicBoolean();
+        private final AtomicLong sent = new AtomicLong();
+        private volatile long lastSequence;
+        // only accessed from the dispatcher thread
+        private long sentAtLastHeartbeat;
+        private boolean sendingAtLastHeartbeat;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
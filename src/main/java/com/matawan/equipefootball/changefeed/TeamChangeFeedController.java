@@ -0,0 +1,34 @@
+package com.matawan.equipefootball.changefeed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/teams/changes")
+public class TeamChangeFeedController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamChangeFeedController.class);
+    private final TeamChangeFeed teamChangeFeed;
+
+    public TeamChangeFeedController(TeamChangeFeed teamChangeFeed) {
+        this.teamChangeFeed = teamChangeFeed;
+    }
+
+    /**
+     * Stream the team changes (created, updated, deleted, player-added, player-removed) as Server-Sent Events
+     *
+     * @param lastEventId the id of the last event received before reconnecting, the missed changes are replayed
+     * @return the event stream
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("Received subscription to the team changes (Last-Event-ID: {})", lastEventId);
+        return teamChangeFeed.subscribe(lastEventId);
+    }
+}
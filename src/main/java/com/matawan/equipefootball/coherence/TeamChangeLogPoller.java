@@ -0,0 +1,224 @@
+package com.matawan.equipefootball.coherence;
+
+import com.matawan.equipefootball.event.RemoteTeamChangedEvent;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import com.matawan.equipefootball.service.TeamCache;
+import com.matawan.equipefootball.service.TeamIdFilter;
+import com.matawan.equipefootball.sharding.Shards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the team change log and invalidates the cached teams written by the other instances (their ids are added to
+ * the team id filter, the teams may have been created there), then publishes their changes as RemoteTeamChangedEvent
+ * for the in-memory indexes
+ *
+ * Log ids are allocated when the entry is inserted, just before the commit, so an entry can become visible after entries
+ * with higher ids. The poller keeps a cursor below which every entry has been handled, re-reads the gaps above it on every
+ * poll, and only gives up on a gap (a rolled back write) after gap-timeout-ms.
+ * Each successful poll tells the cache it is coherent up to the start of the poll, see TeamCache for the staleness bound.
+ * With several shards, every shard has its own log (written in the transaction of the change) and its own cursor.
+ */
+@Component
+public class TeamChangeLogPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamChangeLogPoller.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final TeamCache teamCache;
+    private final TeamIdFilter teamIdFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String instanceId;
+    private final long pollIntervalMillis;
+    private final long gapTimeoutNanos;
+    private final long retentionMinutes;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "team-change-log-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // guarded by this (the poller thread, or a test calling poll directly)
+    private final List<LogCursor> cursors = new ArrayList<>(); // by shard
+    private long lastPruneNanos = System.nanoTime();
+
+    public TeamChangeLogPoller(JdbcTemplate jdbcTemplate, Shards shards, TeamCache teamCache, TeamIdFilter teamIdFilter,
+                               ApplicationEventPublisher eventPublisher, TeamChangeLogWriter teamChangeLogWriter,
+                               @Value("${equipe.changelog.poll-interval-ms:500}") long pollIntervalMillis,
+                               @Value("${equipe.changelog.gap-timeout-ms:60000}") long gapTimeoutMillis,
+                               @Value("${equipe.changelog.retention-minutes:60}") long retentionMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.teamCache = teamCache;
+        this.teamIdFilter = teamIdFilter;
+        this.eventPublisher = eventPublisher;
+        this.instanceId = teamChangeLogWriter.getInstanceId();
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMillis);
+        this.retentionMinutes = retentionMinutes;
+        shards.all().forEach(shard -> cursors.add(new LogCursor()));
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                // the cache stops being used once the staleness bound is reached without a successful poll
+                logger.warn("Could not poll the team change log: {}", e.getMessage());
+            }
+        }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Read the new entries of the change log and invalidate the teams changed by the other instances
+     */
+    public synchronized void poll() {
+        long start = System.nanoTime();
+        int invalidated = 0;
+        for (int shard = 0; shard < cursors.size(); shard++) {
+            LogCursor cursor = cursors.get(shard);
+            invalidated += shards.callOn(shard, () -> cursor.poll(start));
+        }
+        teamCache.confirmCoherent(start);
+        if (invalidated > 0) {
+            logger.info("Invalidated {} teams changed by other instances", invalidated);
+        }
+        if (start - lastPruneNanos > PRUNE_INTERVAL_NANOS) {
+            shards.forEach(this::prune);
+            lastPruneNanos = start;
+        }
+    }
+
+    private void prune() {
+        int pruned = jdbcTemplate.update("DELETE FROM team_change_log WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(retentionMinutes)));
+        if (pruned > 0) {
+            logger.info("Pruned {} entries from the team change log", pruned);
+        }
+    }
+
+    private Entry mapEntry(ResultSet resultSet, int rowNum) throws SQLException {
+        return new Entry(resultSet.getLong("id"), resultSet.getLong("team_id"), resultSet.getString("change_type"),
+                (Long) resultSet.getObject("team_version"), resultSet.getString("instance_id"));
+    }
+
+    private record Entry(long id, long teamId, String changeType, Long teamVersion, String instanceId) {
+    }
+
+    /**
+     * Position of the poller in the log of a shard
+     */
+    private class LogCursor {
+
+        private long cursor = -1; // every entry up to the cursor has been handled
+        private long highestSeen;
+        private final TreeSet<Long> handledAboveCursor = new TreeSet<>();
+        private long gapSinceNanos;
+
+        /**
+         * Read the new entries of the log of the current shard
+         *
+         * @param start the start of the poll
+         * @return the number of invalidated teams
+         */
+        int poll(long start) {
+            if (cursor < 0) {
+                // older entries were written before this instance cached anything
+                Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM team_change_log", Long.class);
+                cursor = maxId == null ? 0 : maxId;
+                highestSeen = cursor;
+            }
+
+            int invalidated = 0;
+            if (cursor < highestSeen) {
+                invalidated += handle(jdbcTemplate.query("SELECT id, team_id, change_type, team_version, instance_id FROM team_change_log WHERE id > ? AND id <= ?",
+                        TeamChangeLogPoller.this::mapEntry, cursor, highestSeen));
+            }
+            List<Entry> entries;
+            do {
+                entries = jdbcTemplate.query("SELECT id, team_id, change_type, team_version, instance_id FROM team_change_log WHERE id > ? ORDER BY id LIMIT " + BATCH_SIZE,
+                        TeamChangeLogPoller.this::mapEntry, highestSeen);
+                invalidated += handle(entries);
+            } while (entries.size() == BATCH_SIZE);
+
+            advanceCursor(start);
+            return invalidated;
+        }
+
+        private int handle(List<Entry> entries) {
+            int invalidated = 0;
+            for (Entry entry : entries) {
+                if (entry.id() <= cursor || !handledAboveCursor.add(entry.id())) {
+                    continue;
+                }
+                highestSeen = Math.max(highestSeen, entry.id());
+                if (!instanceId.equals(entry.instanceId())) {
+                    teamIdFilter.add(entry.teamId()); // the team may have been created by the other instance
+                    teamCache.invalidate(entry.teamId(), entry.teamVersion()); // kept if already loaded at that version
+                    publish(entry);
+                    invalidated++;
+                }
+            }
+            return invalidated;
+        }
+
+        private void publish(Entry entry) {
+            try {
+                eventPublisher.publishEvent(new RemoteTeamChangedEvent(TeamChangedEvent.Type.valueOf(entry.changeType()), entry.teamId()));
+            } catch (RuntimeException e) {
+                // the cache is coherent, an index missing the change is corrected at its next rebuild
+                logger.warn("Could not apply the change of team {} by another instance: {}", entry.teamId(), e.getMessage());
+            }
+        }
+
+        private void advanceCursor(long now) {
+            while (true) {
+                while (handledAboveCursor.remove(cursor + 1)) {
+                    cursor++;
+                }
+                if (cursor >= highestSeen) {
+                    gapSinceNanos = 0;
+                    return;
+                }
+                if (gapSinceNanos == 0) {
+                    gapSinceNanos = now;
+                    return;
+                }
+                if (now - gapSinceNanos < gapTimeoutNanos) {
+                    return;
+                }
+                logger.warn("Change log entry {} never became visible, skipping it", cursor + 1);
+                cursor++;
+                gapSinceNanos = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.matawan.equipefootball.coherence;
+
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Appends every team write to the team_change_log table, in the transaction of the write
+ * The entry is inserted just before the commit: it is visible exactly when the change is, and the write fails if it cannot be logged
+ */
+@Component
+public class TeamChangeLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamChangeLogWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String instanceId;
+
+    public TeamChangeLogWriter(JdbcTemplate jdbcTemplate, @Value("${equipe.instance-id:}") String instanceId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.instanceId = instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        logger.info("Team changes of this instance are logged as {}", this.instanceId);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onTeamChanged(TeamChangedEvent event) {
+        Long teamVersion = event.getTeam() == null ? null : event.getTeam().getVersion();
+        jdbcTemplate.update("INSERT INTO team_change_log (team_id, change_type, team_version, instance_id, created_at) VALUES (?, ?, ?, ?, ?)",
+                event.getTeamId(), event.getType().name(), teamVersion, instanceId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * @return the id identifying the entries written by this instance
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+}
@@ -0,0 +1,44 @@
+package com.matawan.equipefootball.controller;
+
+import com.matawan.equipefootball.dto.TeamPlayerDto;
+import com.matawan.equipefootball.service.PlayerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/players")
+public class PlayerController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayerController.class);
+    private final PlayerService playerService;
+
+    public PlayerController(PlayerService playerService) {
+        this.playerService = playerService;
+    }
+
+    /**
+     * Get the players of a position across all the teams, for example /api/players?position=Goalkeeper
+     *
+     * @param position the position, case is ignored
+     * @param page the page number, default is 0
+     * @param size the number of items per page, default is 20
+     * @return a paginated list of players with the id of their team
+     */
+    @GetMapping
+    public ResponseEntity<Page<TeamPlayerDto>> getPlayersByPosition(
+            @RequestParam String position,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        logger.info("Received request to fetch players with position: {}, page: {}, size: {}", position, page, size);
+        Page<TeamPlayerDto> players = playerService.getPlayersByPosition(position, page, size);
+        logger.info("Returning {} players", players.getNumberOfElements());
+        return ResponseEntity.ok(players);
+    }
+}
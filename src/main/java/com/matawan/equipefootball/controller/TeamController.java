@@ -1,6 +1,10 @@
 package com.matawan.equipefootball.controller;
 
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamBatchDto;
+import com.matawan.equipefootball.dto.TeamDeltaDto;
 import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.TeamPatchDto;
 import com.matawan.equipefootball.service.TeamService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -37,6 +41,20 @@ public class TeamController {
         return ResponseEntity.ok(teamDTO);
     }
 
+    /**
+     * Get a team by its acronym
+     *
+     * @param acronym the acronym of the team
+     * @return the team with the given acronym
+     */
+    @GetMapping("/by-acronym/{acronym}")
+    public ResponseEntity<TeamDto> getTeamByAcronym(@PathVariable String acronym) {
+        logger.info("Received request to fetch team with acronym: {}", acronym);
+        TeamDto teamDTO = teamService.getTeamByAcronym(acronym);
+        logger.info("Returning team: {}", teamDTO.getName());
+        return ResponseEntity.ok(teamDTO);
+    }
+
     /**
      * Get a paginated list of teams with optional sorting criteria
      *
@@ -62,6 +80,62 @@ public class TeamController {
         }
     }
 
+    /**
+     * Get several teams by their ids in one request, for example /api/teams?ids=3,1,2
+     *
+     * @param ids the ids of the teams
+     * @return the teams found in the requested order and the ids that do not exist
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getTeamsByIds(@RequestParam List<Long> ids) {
+        logger.info("Received request to fetch {} teams by id", ids.size());
+        return fetchTeamsByIds(ids);
+    }
+
+    /**
+     * Get several teams by their ids, with the ids in the request body (for lists too long for a query string)
+     *
+     * @param ids the ids of the teams
+     * @return the teams found in the requested order and the ids that do not exist
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<?> lookupTeams(@RequestBody List<Long> ids) {
+        logger.info("Received request to look up {} teams by id", ids.size());
+        return fetchTeamsByIds(ids);
+    }
+
+    private ResponseEntity<?> fetchTeamsByIds(List<Long> ids) {
+        try {
+            TeamBatchDto result = teamService.getTeamsByIds(ids);
+            logger.info("Returning {} teams, {} missing", result.getTeams().size(), result.getMissingIds().size());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid multi-get request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Get the teams changed since the last sync of a client, for example /api/teams/delta?since=42
+     *
+     * @param since the token returned by the previous sync, 0 (default) for a full sync
+     * @param limit the maximum number of changes to return, default is 500
+     * @return the changed teams, the ids of the deleted teams, the next token and whether more changes are available
+     */
+    @GetMapping("/delta")
+    public ResponseEntity<?> getTeamsDelta(@RequestParam(defaultValue = "0") long since,
+                                           @RequestParam(defaultValue = "500") int limit) {
+        logger.info("Received request to fetch team changes since {}", since);
+        try {
+            TeamDeltaDto delta = teamService.getTeamsDelta(since, limit);
+            logger.info("Returning {} changed and {} deleted teams", delta.getTeams().size(), delta.getDeletedIds().size());
+            return ResponseEntity.ok(delta);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid delta request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Add a new team
      * @param teamDto the team to add
@@ -74,4 +148,81 @@ public class TeamController {
         logger.info("Added team with id: {}", savedTeam.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedTeam);
     }
+
+    /**
+     * Replace a team (name, acronym and budget)
+     * If the version is provided in the body, the update is rejected with a 409 when the team has been modified since
+     *
+     * @param id the id of the team
+     * @param teamDto the new state of the team
+     * @return the updated team
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<TeamDto> updateTeam(@PathVariable Long id, @RequestBody @Valid TeamDto teamDto) {
+        logger.info("Received request to update team with id: {}", id);
+        TeamDto updatedTeam = teamService.updateTeam(id, teamDto);
+        logger.info("Updated team with id: {} to version: {}", id, updatedTeam.getVersion());
+        return ResponseEntity.ok(updatedTeam);
+    }
+
+    /**
+     * Partially update a team, only the provided fields are changed
+     * If the version is provided in the body, the update is rejected with a 409 when the team has been modified since
+     *
+     * @param id the id of the team
+     * @param patch the fields to change
+     * @return the updated team
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<TeamDto> patchTeam(@PathVariable Long id, @RequestBody @Valid TeamPatchDto patch) {
+        logger.info("Received request to patch team with id: {}", id);
+        TeamDto patchedTeam = teamService.patchTeam(id, patch);
+        logger.info("Patched team with id: {} to version: {}", id, patchedTeam.getVersion());
+        return ResponseEntity.ok(patchedTeam);
+    }
+
+    /**
+     * Delete a team and its roster
+     *
+     * @param id the id of the team
+     * @param version an optional expected version, the delete is rejected with a 409 when the team has been modified since
+     * @return an empty response
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteTeam(@PathVariable Long id, @RequestParam(required = false) Long version) {
+        logger.info("Received request to delete team with id: {}", id);
+        teamService.deleteTeam(id, version);
+        logger.info("Deleted team with id: {}", id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Add a player to the roster of a team
+     *
+     * @param id the id of the team
+     * @param playerDto the player to add
+     * @return the added player
+     */
+    @PostMapping("/{id}/players")
+    public ResponseEntity<PlayerDto> addPlayer(@PathVariable Long id, @RequestBody @Valid PlayerDto playerDto) {
+        logger.info("Received request to add player {} to team with id: {}", playerDto.getName(), id);
+        PlayerDto savedPlayer = teamService.addPlayer(id, playerDto);
+        logger.info("Added player with id: {} to team with id: {}", savedPlayer.getId(), id);
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedPlayer);
+    }
+
+    /**
+     * Remove a player from the roster of a team
+     *
+     * @param id the id of the team
+     * @param playerId the id of the player to remove
+     * @return an empty response
+     */
+    @DeleteMapping("/{id}/players/{playerId}")
+    public ResponseEntity<Void> removePlayer(@PathVariable Long id, @PathVariable Long playerId) {
+        logger.info("Received request to remove player with id: {} from team with id: {}", playerId, id);
+        teamService.removePlayer(id, playerId);
+        logger.info("Removed player with id: {} from team with id: {}", playerId, id);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,52 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * Bucket of the budget histogram: the number of teams with a budget in (lowerBound, upperBound]
+ */
+public class BudgetBucketDto {
+    private double lowerBound;
+    private double upperBound;
+    private long count;
+
+    public BudgetBucketDto() {
+    }
+
+    public BudgetBucketDto(double lowerBound, double upperBound, long count) {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.count = count;
+    }
+
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public void setLowerBound(double lowerBound) {
+        this.lowerBound = lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    public void setUpperBound(double upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public String toString() {
+        return "BudgetBucketDto{" +
+                "lowerBound=" + lowerBound +
+                ", upperBound=" + upperBound +
+                ", count=" + count +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package com.matawan.equipefootball.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distribution of the team budgets: approximate quantiles (within the relative accuracy) and the non-empty buckets
+ */
+public class BudgetDistributionDto {
+    private long count;
+    private double relativeAccuracy;
+    private Map<String, Double> quantiles;
+    private List<BudgetBucketDto> buckets;
+
+    public BudgetDistributionDto() {
+    }
+
+    public BudgetDistributionDto(long count, double relativeAccuracy, Map<String, Double> quantiles, List<BudgetBucketDto> buckets) {
+        this.count = count;
+        this.relativeAccuracy = relativeAccuracy;
+        this.quantiles = quantiles;
+        this.buckets = buckets;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public void setRelativeAccuracy(double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+    }
+
+    public Map<String, Double> getQuantiles() {
+        return quantiles;
+    }
+
+    public void setQuantiles(Map<String, Double> quantiles) {
+        this.quantiles = quantiles;
+    }
+
+    public List<BudgetBucketDto> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<BudgetBucketDto> buckets) {
+        this.buckets = buckets;
+    }
+
+    @Override
+    public String toString() {
+        return "BudgetDistributionDto{" +
+                "count=" + count +
+                ", relativeAccuracy=" + relativeAccuracy +
+                ", quantiles=" + quantiles +
+                ", buckets=" + buckets +
+                '}';
+    }
+}
@@ -0,0 +1,137 @@
+package com.matawan.equipefootball.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of an export job: progress, throughput and, once completed, the link to download the compressed file
+ */
+public class ExportJobDto {
+    private String id;
+    private String format;
+    private String state;
+    private long totalTeams;
+    private long exportedTeams;
+    private double progress;
+    private double teamsPerSecond;
+    private long bytes;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String downloadUrl;
+    private String error;
+
+    public ExportJobDto() {
+    }
+
+    public ExportJobDto(String id, String format, String state, long totalTeams, long exportedTeams, double progress,
+                        double teamsPerSecond, long bytes, LocalDateTime createdAt, LocalDateTime finishedAt,
+                        String downloadUrl, String error) {
+        this.id = id;
+        this.format = format;
+        this.state = state;
+        this.totalTeams = totalTeams;
+        this.exportedTeams = exportedTeams;
+        this.progress = progress;
+        this.teamsPerSecond = teamsPerSecond;
+        this.bytes = bytes;
+        this.createdAt = createdAt;
+        this.finishedAt = finishedAt;
+        this.downloadUrl = downloadUrl;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getTotalTeams() {
+        return totalTeams;
+    }
+
+    public void setTotalTeams(long totalTeams) {
+        this.totalTeams = totalTeams;
+    }
+
+    public long getExportedTeams() {
+        return exportedTeams;
+    }
+
+    public void setExportedTeams(long exportedTeams) {
+        this.exportedTeams = exportedTeams;
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    public void setProgress(double progress) {
+        this.progress = progress;
+    }
+
+    public double getTeamsPerSecond() {
+        return teamsPerSecond;
+    }
+
+    public void setTeamsPerSecond(double teamsPerSecond) {
+        this.teamsPerSecond = teamsPerSecond;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    public void setDownloadUrl(String downloadUrl) {
+        this.downloadUrl = downloadUrl;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -1,8 +1,13 @@
 package com.matawan.equipefootball.dto;
 
+import jakarta.validation.constraints.NotBlank;
+
 public class PlayerDto {
     private Long id;
+
+    @NotBlank(message = "Player name is required")
     private String name;
+
     private String position;
 
     public PlayerDto(Long id, String name, String position) {
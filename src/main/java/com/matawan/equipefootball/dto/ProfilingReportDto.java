@@ -0,0 +1,129 @@
+package com.matawan.equipefootball.dto;
+
+import java.util.List;
+
+/**
+ * Summary of a profiling session: allocation and JDBC time per team request (JDBC time of the timed requests only),
+ * monitor contention and thread parks of the application code above the threshold, and the top allocation and blocking
+ * sites
+ */
+public class ProfilingReportDto {
+    private double durationMs;
+    private long requests;
+    private long allocatedBytesPerRequest;
+    private long maxAllocatedBytesPerRequest;
+    private double jdbcMsPerRequest;
+    private long monitorContentions;
+    private double monitorContentionMs;
+    private long threadParks;
+    private double threadParkMs;
+    private List<ProfilingSiteDto> allocationSites;
+    private List<ProfilingSiteDto> blockingSites;
+
+    public ProfilingReportDto() {
+    }
+
+    public ProfilingReportDto(double durationMs, long requests, long allocatedBytesPerRequest, long maxAllocatedBytesPerRequest,
+                              double jdbcMsPerRequest, long monitorContentions, double monitorContentionMs, long threadParks,
+                              double threadParkMs, List<ProfilingSiteDto> allocationSites, List<ProfilingSiteDto> blockingSites) {
+        this.durationMs = durationMs;
+        this.requests = requests;
+        this.allocatedBytesPerRequest = allocatedBytesPerRequest;
+        this.maxAllocatedBytesPerRequest = maxAllocatedBytesPerRequest;
+        this.jdbcMsPerRequest = jdbcMsPerRequest;
+        this.monitorContentions = monitorContentions;
+        this.monitorContentionMs = monitorContentionMs;
+        this.threadParks = threadParks;
+        this.threadParkMs = threadParkMs;
+        this.allocationSites = allocationSites;
+        this.blockingSites = blockingSites;
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(double durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getAllocatedBytesPerRequest() {
+        return allocatedBytesPerRequest;
+    }
+
+    public void setAllocatedBytesPerRequest(long allocatedBytesPerRequest) {
+        this.allocatedBytesPerRequest = allocatedBytesPerRequest;
+    }
+
+    public long getMaxAllocatedBytesPerRequest() {
+        return maxAllocatedBytesPerRequest;
+    }
+
+    public void setMaxAllocatedBytesPerRequest(long maxAllocatedBytesPerRequest) {
+        this.maxAllocatedBytesPerRequest = maxAllocatedBytesPerRequest;
+    }
+
+    public double getJdbcMsPerRequest() {
+        return jdbcMsPerRequest;
+    }
+
+    public void setJdbcMsPerRequest(double jdbcMsPerRequest) {
+        this.jdbcMsPerRequest = jdbcMsPerRequest;
+    }
+
+    public long getMonitorContentions() {
+        return monitorContentions;
+    }
+
+    public void setMonitorContentions(long monitorContentions) {
+        this.monitorContentions = monitorContentions;
+    }
+
+    public double getMonitorContentionMs() {
+        return monitorContentionMs;
+    }
+
+    public void setMonitorContentionMs(double monitorContentionMs) {
+        this.monitorContentionMs = monitorContentionMs;
+    }
+
+    public long getThreadParks() {
+        return threadParks;
+    }
+
+    public void setThreadParks(long threadParks) {
+        this.threadParks = threadParks;
+    }
+
+    public double getThreadParkMs() {
+        return threadParkMs;
+    }
+
+    public void setThreadParkMs(double threadParkMs) {
+        this.threadParkMs = threadParkMs;
+    }
+
+    public List<ProfilingSiteDto> getAllocationSites() {
+        return allocationSites;
+    }
+
+    public void setAllocationSites(List<ProfilingSiteDto> allocationSites) {
+        this.allocationSites = allocationSites;
+    }
+
+    public List<ProfilingSiteDto> getBlockingSites() {
+        return blockingSites;
+    }
+
+    public void setBlockingSites(List<ProfilingSiteDto> blockingSites) {
+        this.blockingSites = blockingSites;
+    }
+}
@@ -0,0 +1,45 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * Code location found in the events of a profiling session: the first application frame of the stack (with the
+ * allocated or contended class), its number of events and their total, sampled bytes for an allocation site and
+ * milliseconds for a blocking site
+ */
+public class ProfilingSiteDto {
+    private String site;
+    private long events;
+    private double total;
+
+    public ProfilingSiteDto() {
+    }
+
+    public ProfilingSiteDto(String site, long events, double total) {
+        this.site = site;
+        this.events = events;
+        this.total = total;
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public void setSite(String site) {
+        this.site = site;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void setEvents(long events) {
+        this.events = events;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public void setTotal(double total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,74 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * Routing decisions of the read/write splitting since startup, and the current lag of the replica (null before its first synchronization)
+ */
+public class ReplicaRoutingStatsDto {
+    private long primaryWrites;
+    private long primaryReadYourWrites;
+    private long primaryReplicaLagging;
+    private long replicaReads;
+    private Long replicaLagMs;
+
+    public ReplicaRoutingStatsDto() {
+    }
+
+    public ReplicaRoutingStatsDto(long primaryWrites, long primaryReadYourWrites, long primaryReplicaLagging, long replicaReads, Long replicaLagMs) {
+        this.primaryWrites = primaryWrites;
+        this.primaryReadYourWrites = primaryReadYourWrites;
+        this.primaryReplicaLagging = primaryReplicaLagging;
+        this.replicaReads = replicaReads;
+        this.replicaLagMs = replicaLagMs;
+    }
+
+    public long getPrimaryWrites() {
+        return primaryWrites;
+    }
+
+    public void setPrimaryWrites(long primaryWrites) {
+        this.primaryWrites = primaryWrites;
+    }
+
+    public long getPrimaryReadYourWrites() {
+        return primaryReadYourWrites;
+    }
+
+    public void setPrimaryReadYourWrites(long primaryReadYourWrites) {
+        this.primaryReadYourWrites = primaryReadYourWrites;
+    }
+
+    public long getPrimaryReplicaLagging() {
+        return primaryReplicaLagging;
+    }
+
+    public void setPrimaryReplicaLagging(long primaryReplicaLagging) {
+        this.primaryReplicaLagging = primaryReplicaLagging;
+    }
+
+    public long getReplicaReads() {
+        return replicaReads;
+    }
+
+    public void setReplicaReads(long replicaReads) {
+        this.replicaReads = replicaReads;
+    }
+
+    public Long getReplicaLagMs() {
+        return replicaLagMs;
+    }
+
+    public void setReplicaLagMs(Long replicaLagMs) {
+        this.replicaLagMs = replicaLagMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaRoutingStatsDto{" +
+                "primaryWrites=" + primaryWrites +
+                ", primaryReadYourWrites=" + primaryReadYourWrites +
+                ", primaryReplicaLagging=" + primaryReplicaLagging +
+                ", replicaReads=" + replicaReads +
+                ", replicaLagMs=" + replicaLagMs +
+                '}';
+    }
+}
@@ -0,0 +1,86 @@
+package com.matawan.equipefootball.dto;
+
+import java.util.List;
+
+/**
+ * Slow executions of a normalized statement: count and times in milliseconds, bind parameters of the slowest execution
+ * and EXPLAIN plan (null when the statement cannot be explained)
+ */
+public class SlowQueryDto {
+    private String sql;
+    private long count;
+    private double totalMs;
+    private double averageMs;
+    private double maxMs;
+    private List<String> slowestParameters;
+    private String plan;
+
+    public SlowQueryDto() {
+    }
+
+    public SlowQueryDto(String sql, long count, double totalMs, double averageMs, double maxMs, List<String> slowestParameters, String plan) {
+        this.sql = sql;
+        this.count = count;
+        this.totalMs = totalMs;
+        this.averageMs = averageMs;
+        this.maxMs = maxMs;
+        this.slowestParameters = slowestParameters;
+        this.plan = plan;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getTotalMs() {
+        return totalMs;
+    }
+
+    public void setTotalMs(double totalMs) {
+        this.totalMs = totalMs;
+    }
+
+    public double getAverageMs() {
+        return averageMs;
+    }
+
+    public void setAverageMs(double averageMs) {
+        this.averageMs = averageMs;
+    }
+
+    public double getMaxMs() {
+        return maxMs;
+    }
+
+    public void setMaxMs(double maxMs) {
+        this.maxMs = maxMs;
+    }
+
+    public List<String> getSlowestParameters() {
+        return slowestParameters;
+    }
+
+    public void setSlowestParameters(List<String> slowestParameters) {
+        this.slowestParameters = slowestParameters;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public void setPlan(String plan) {
+        this.plan = plan;
+    }
+}
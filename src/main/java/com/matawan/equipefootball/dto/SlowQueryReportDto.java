@@ -0,0 +1,46 @@
+package com.matawan.equipefootball.dto;
+
+import java.util.List;
+
+/**
+ * Statements slower than the threshold since startup (or the last reset), highest total time first, and the number of
+ * slow executions not recorded because too many distinct statements were already kept
+ */
+public class SlowQueryReportDto {
+    private long thresholdMs;
+    private long dropped;
+    private List<SlowQueryDto> statements;
+
+    public SlowQueryReportDto() {
+    }
+
+    public SlowQueryReportDto(long thresholdMs, long dropped, List<SlowQueryDto> statements) {
+        this.thresholdMs = thresholdMs;
+        this.dropped = dropped;
+        this.statements = statements;
+    }
+
+    public long getThresholdMs() {
+        return thresholdMs;
+    }
+
+    public void setThresholdMs(long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    public List<SlowQueryDto> getStatements() {
+        return statements;
+    }
+
+    public void setStatements(List<SlowQueryDto> statements) {
+        this.statements = statements;
+    }
+}
@@ -0,0 +1,74 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * Size of the autocomplete index: indexed teams and suggestions, trie keys and nodes, and the estimated heap footprint
+ */
+public class SuggestIndexStatsDto {
+    private int teams;
+    private int suggestions;
+    private int keys;
+    private int nodes;
+    private long estimatedBytes;
+
+    public SuggestIndexStatsDto() {
+    }
+
+    public SuggestIndexStatsDto(int teams, int suggestions, int keys, int nodes, long estimatedBytes) {
+        this.teams = teams;
+        this.suggestions = suggestions;
+        this.keys = keys;
+        this.nodes = nodes;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public int getTeams() {
+        return teams;
+    }
+
+    public void setTeams(int teams) {
+        this.teams = teams;
+    }
+
+    public int getSuggestions() {
+        return suggestions;
+    }
+
+    public void setSuggestions(int suggestions) {
+        this.suggestions = suggestions;
+    }
+
+    public int getKeys() {
+        return keys;
+    }
+
+    public void setKeys(int keys) {
+        this.keys = keys;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(int nodes) {
+        this.nodes = nodes;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public void setEstimatedBytes(long estimatedBytes) {
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SuggestIndexStatsDto{" +
+                "teams=" + teams +
+                ", suggestions=" + suggestions +
+                ", keys=" + keys +
+                ", nodes=" + nodes +
+                ", estimatedBytes=" + estimatedBytes +
+                '}';
+    }
+}
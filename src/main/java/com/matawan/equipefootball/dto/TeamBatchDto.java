@@ -0,0 +1,43 @@
+package com.matawan.equipefootball.dto;
+
+import java.util.List;
+
+/**
+ * Result of a multi-get: the teams found in the requested order and the ids that do not exist
+ */
+public class TeamBatchDto {
+    private List<TeamDto> teams;
+    private List<Long> missingIds;
+
+    public TeamBatchDto() {
+    }
+
+    public TeamBatchDto(List<TeamDto> teams, List<Long> missingIds) {
+        this.teams = teams;
+        this.missingIds = missingIds;
+    }
+
+    public List<TeamDto> getTeams() {
+        return teams;
+    }
+
+    public void setTeams(List<TeamDto> teams) {
+        this.teams = teams;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamBatchDto{" +
+                "teams=" + teams +
+                ", missingIds=" + missingIds +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+package com.matawan.equipefootball.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change to a team as sent on the change feed
+ */
+public class TeamChangeDto {
+    private long sequence;
+    private String type;
+    private Long teamId;
+    private TeamDto team;
+    private PlayerDto player;
+    private LocalDateTime timestamp;
+
+    public TeamChangeDto() {
+    }
+
+    public TeamChangeDto(long sequence, String type, Long teamId, TeamDto team, PlayerDto player, LocalDateTime timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.teamId = teamId;
+        this.team = team;
+        this.player = player;
+        this.timestamp = timestamp;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public TeamDto getTeam() {
+        return team;
+    }
+
+    public void setTeam(TeamDto team) {
+        this.team = team;
+    }
+
+    public PlayerDto getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(PlayerDto player) {
+        this.player = player;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamChangeDto{" +
+                "sequence=" + sequence +
+                ", type='" + type + '\'' +
+                ", teamId=" + teamId +
+                ", team=" + team +
+                ", player=" + player +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package com.matawan.equipefootball.dto;
+
+import java.util.List;
+
+/**
+ * Result of a delta sync: the teams created or modified since the client's token, the ids of the deleted teams
+ * and the token to send on the next sync (more changes are available right away when hasMore is set)
+ */
+public class TeamDeltaDto {
+    private List<TeamDto> teams;
+    private List<Long> deletedIds;
+    private long token;
+    private boolean hasMore;
+
+    public TeamDeltaDto() {
+    }
+
+    public TeamDeltaDto(List<TeamDto> teams, List<Long> deletedIds, long token, boolean hasMore) {
+        this.teams = teams;
+        this.deletedIds = deletedIds;
+        this.token = token;
+        this.hasMore = hasMore;
+    }
+
+    public List<TeamDto> getTeams() {
+        return teams;
+    }
+
+    public void setTeams(List<TeamDto> teams) {
+        this.teams = teams;
+    }
+
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public void setDeletedIds(List<Long> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    public void setToken(long token) {
+        this.token = token;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamDeltaDto{" +
+                "teams=" + teams +
+                ", deletedIds=" + deletedIds +
+                ", token=" + token +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
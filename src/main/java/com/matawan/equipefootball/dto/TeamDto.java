@@ -19,6 +19,9 @@ public class TeamDto {
     @Min(value = 0, message = "Budget must be a positive value")
     private Double budget;
 
+    // version of the team used for optimistic locking, optional on updates
+    private Long version;
+
     private List<PlayerDto> players;
 
     public TeamDto() {
@@ -64,6 +67,14 @@ public class TeamDto {
         this.budget = budget;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<PlayerDto> getPlayers() {
         return players;
     }
@@ -79,6 +90,7 @@ public class TeamDto {
                 ", name='" + name + '\'' +
                 ", acronym='" + acronym + '\'' +
                 ", budget=" + budget +
+                ", version=" + version +
                 ", players=" + players +
                 '}';
     }
@@ -0,0 +1,67 @@
+package com.matawan.equipefootball.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * Partial update of a team, only the non-null fields are applied
+ */
+public class TeamPatchDto {
+
+    @Pattern(regexp = ".*\\S.*", message = "Team name must not be blank")
+    private String name;
+
+    @Pattern(regexp = ".*\\S.*", message = "Acronym must not be blank")
+    private String acronym;
+
+    @Min(value = 0, message = "Budget must be a positive value")
+    private Double budget;
+
+    // expected version of the team, the patch is rejected with a conflict if the team has changed since
+    private Long version;
+
+    public TeamPatchDto() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getAcronym() {
+        return acronym;
+    }
+
+    public void setAcronym(String acronym) {
+        this.acronym = acronym;
+    }
+
+    public Double getBudget() {
+        return budget;
+    }
+
+    public void setBudget(Double budget) {
+        this.budget = budget;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamPatchDto{" +
+                "name='" + name + '\'' +
+                ", acronym='" + acronym + '\'' +
+                ", budget=" + budget +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * Player listed outside of its team, with the id of the team it belongs to
+ */
+public class TeamPlayerDto {
+    private Long id;
+    private String name;
+    private String position;
+    private Long teamId;
+
+    public TeamPlayerDto() {
+    }
+
+    public TeamPlayerDto(Long id, String name, String position, Long teamId) {
+        this.id = id;
+        this.name = name;
+        this.position = position;
+        this.teamId = teamId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getPosition() {
+        return position;
+    }
+
+    public void setPosition(String position) {
+        this.position = position;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamPlayerDto{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", position='" + position + '\'' +
+                ", teamId=" + teamId +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * A snapshot written or restored: its name, the number of teams and players it holds, its size and the duration of the operation
+ */
+public class TeamSnapshotDto {
+    private String name;
+    private long teams;
+    private long players;
+    private long bytes;
+    private long durationMs;
+
+    public TeamSnapshotDto() {
+    }
+
+    public TeamSnapshotDto(String name, long teams, long players, long bytes, long durationMs) {
+        this.name = name;
+        this.teams = teams;
+        this.players = players;
+        this.bytes = bytes;
+        this.durationMs = durationMs;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getTeams() {
+        return teams;
+    }
+
+    public void setTeams(long teams) {
+        this.teams = teams;
+    }
+
+    public long getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(long players) {
+        this.players = players;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
@@ -0,0 +1,63 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * Autocomplete suggestion: a team name, an acronym or a player name, with the team it belongs to
+ */
+public class TeamSuggestionDto {
+    private String text;
+    private String type; // team, acronym or player
+    private Long teamId;
+    private Long playerId; // only for player suggestions
+
+    public TeamSuggestionDto() {
+    }
+
+    public TeamSuggestionDto(String text, String type, Long teamId, Long playerId) {
+        this.text = text;
+        this.type = type;
+        this.teamId = teamId;
+        this.playerId = playerId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(Long playerId) {
+        this.playerId = playerId;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamSuggestionDto{" +
+                "text='" + text + '\'' +
+                ", type='" + type + '\'' +
+                ", teamId=" + teamId +
+                ", playerId=" + playerId +
+                '}';
+    }
+}
@@ -0,0 +1,124 @@
+package com.matawan.equipefootball.dto;
+
+/**
+ * Outcome of the startup warm-up (teams preloaded in the cache, list queries run, rounds of queries and serialization)
+ * and latency of the team requests in the first measure window after the instance became ready (null without requests)
+ */
+public class WarmUpReportDto {
+    private String state;
+    private long durationMs;
+    private int teamsPreloaded;
+    private int queries;
+    private int rounds;
+    private long measureWindowMs;
+    private long requests;
+    private Double p50Ms;
+    private Double p95Ms;
+    private Double p99Ms;
+    private Double maxMs;
+
+    public WarmUpReportDto() {
+    }
+
+    public WarmUpReportDto(String state, long durationMs, int teamsPreloaded, int queries, int rounds, long measureWindowMs, long requests, Double p50Ms, Double p95Ms, Double p99Ms, Double maxMs) {
+        this.state = state;
+        this.durationMs = durationMs;
+        this.teamsPreloaded = teamsPreloaded;
+        this.queries = queries;
+        this.rounds = rounds;
+        this.measureWindowMs = measureWindowMs;
+        this.requests = requests;
+        this.p50Ms = p50Ms;
+        this.p95Ms = p95Ms;
+        this.p99Ms = p99Ms;
+        this.maxMs = maxMs;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public int getTeamsPreloaded() {
+        return teamsPreloaded;
+    }
+
+    public void setTeamsPreloaded(int teamsPreloaded) {
+        this.teamsPreloaded = teamsPreloaded;
+    }
+
+    public int getQueries() {
+        return queries;
+    }
+
+    public void setQueries(int queries) {
+        this.queries = queries;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public void setRounds(int rounds) {
+        this.rounds = rounds;
+    }
+
+    public long getMeasureWindowMs() {
+        return measureWindowMs;
+    }
+
+    public void setMeasureWindowMs(long measureWindowMs) {
+        this.measureWindowMs = measureWindowMs;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public Double getP50Ms() {
+        return p50Ms;
+    }
+
+    public void setP50Ms(Double p50Ms) {
+        this.p50Ms = p50Ms;
+    }
+
+    public Double getP95Ms() {
+        return p95Ms;
+    }
+
+    public void setP95Ms(Double p95Ms) {
+        this.p95Ms = p95Ms;
+    }
+
+    public Double getP99Ms() {
+        return p99Ms;
+    }
+
+    public void setP99Ms(Double p99Ms) {
+        this.p99Ms = p99Ms;
+    }
+
+    public Double getMaxMs() {
+        return maxMs;
+    }
+
+    public void setMaxMs(Double maxMs) {
+        this.maxMs = maxMs;
+    }
+}
@@ -3,14 +3,27 @@ package com.matawan.equipefootball.entity;
 import jakarta.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_player_team_id", columnList = "team_id"),
+        @Index(name = "idx_player_position_code", columnList = "position_code")
+})
 public class Player {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String name;
+
+    // stored as a small code of the player_position dictionary, the text is shared by all the players of the position
+    @Convert(converter = PositionConverter.class)
+    @Column(name = "position_code")
     private String position;
 
+    // owning side of the Team.players association, the roster is stored as a foreign key on each player row
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "team_id")
+    private Team team;
+
     public Player(Long id, String name, String position) {
         this.id = id;
         this.name = name;
@@ -32,6 +45,10 @@ public class Player {
         return position;
     }
 
+    public Team getTeam() {
+        return team;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -43,4 +60,8 @@ public class Player {
     public void setPosition(String position) {
         this.position = position;
     }
+
+    public void setTeam(Team team) {
+        this.team = team;
+    }
 }
@@ -0,0 +1,37 @@
+package com.matawan.equipefootball.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Dictionary of the player positions, players store the small code instead of repeating the text on every row
+ * The key is the lower case text, positions differing only by case or surrounding spaces share the same code
+ */
+@Entity
+@Table(name = "player_position")
+public class PlayerPosition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Short id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "name_key", nullable = false, unique = true)
+    private String nameKey;
+
+    public PlayerPosition() {
+    }
+
+    public Short getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNameKey() {
+        return nameKey;
+    }
+}
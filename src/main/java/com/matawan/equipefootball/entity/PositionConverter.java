@@ -0,0 +1,29 @@
+package com.matawan.equipefootball.entity;
+
+import com.matawan.equipefootball.service.PositionDictionary;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores Player.position as its code in the position dictionary
+ * Loaded players get the canonical text held by the dictionary, so all the players of a position share one String
+ */
+@Converter
+public class PositionConverter implements AttributeConverter<String, Short> {
+
+    private final PositionDictionary positionDictionary;
+
+    public PositionConverter(PositionDictionary positionDictionary) {
+        this.positionDictionary = positionDictionary;
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String position) {
+        return positionDictionary.register(position);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return positionDictionary.getName(code);
+    }
+}
@@ -1,12 +1,20 @@
 package com.matawan.equipefootball.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Entity
+@DynamicUpdate // only the modified columns are sent in the update statement (partial updates stay small)
+@Table(indexes = @Index(name = "idx_team_change_seq", columnList = "change_seq"),
+        uniqueConstraints = @UniqueConstraint(name = Team.ACRONYM_CONSTRAINT, columnNames = "acronym")) // also the index of the acronym lookups
+@EntityListeners(TeamPersistListener.class) // new ids are known to the lookup filter before the commit
 public class Team {
 
+    public static final String ACRONYM_CONSTRAINT = "uk_team_acronym";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -20,13 +28,24 @@ public class Team {
     @Column(nullable = false)
     private Double budget;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    private List<Player> players;
+    // optimistic locking, concurrent updates fail on commit instead of taking row locks
+    @Version
+    private Long version;
+
+    // position of the last write to the team (or its roster) in the change sequence, used by the delta sync
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    // mapped by the team_id foreign key on Player (instead of a join table with bag semantics)
+    // so adding or removing one player is a single insert or delete and never rewrites the whole roster
+    @OneToMany(mappedBy = "team", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @OrderBy("id")
+    private Set<Player> players = new LinkedHashSet<>();
 
     public Team() {
     }
 
-    public Team(Long id, String name, String acronym, Double budget, List<Player> players) {
+    public Team(Long id, String name, String acronym, Double budget, Set<Player> players) {
         this.id = id;
         this.name = name;
         this.acronym = acronym;
@@ -66,11 +85,27 @@ public class Team {
         this.budget = budget;
     }
 
-    public List<Player> getPlayers() {
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public Set<Player> getPlayers() {
         return players;
     }
 
-    public void setPlayers(List<Player> players) {
+    public void setPlayers(Set<Player> players) {
         this.players = players;
     }
 
@@ -81,6 +116,7 @@ public class Team {
                 ", name='" + name + '\'' +
                 ", acronym='" + acronym + '\'' +
                 ", budget=" + budget +
+                ", version=" + version +
                 ", players=" + players +
                 '}';
     }
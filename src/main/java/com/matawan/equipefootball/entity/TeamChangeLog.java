@@ -0,0 +1,61 @@
+package com.matawan.equipefootball.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entry of the change log shared by the instances: every team write appends one in the transaction of the write, just
+ * before it commits, the other instances poll the new entries to invalidate what they cached
+ */
+@Entity
+@Table(name = "team_change_log", indexes = @Index(name = "idx_team_change_log_created_at", columnList = "created_at"))
+public class TeamChangeLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "team_id", nullable = false)
+    private Long teamId;
+
+    @Column(name = "change_type", nullable = false, length = 20)
+    private String changeType;
+
+    // version of the team after the write, null for deletes and roster changes
+    @Column(name = "team_version")
+    private Long teamVersion;
+
+    @Column(name = "instance_id", nullable = false, length = 64)
+    private String instanceId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public TeamChangeLog() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public String getChangeType() {
+        return changeType;
+    }
+
+    public Long getTeamVersion() {
+        return teamVersion;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,22 @@
+package com.matawan.equipefootball.entity;
+
+import com.matawan.equipefootball.event.TeamInsertedEvent;
+import jakarta.persistence.PostPersist;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Publishes the id of every team inserted through JPA, before the insert is committed (see TeamInsertedEvent)
+ */
+public class TeamPersistListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TeamPersistListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    public void onPersist(Team team) {
+        eventPublisher.publishEvent(new TeamInsertedEvent(team.getId()));
+    }
+}
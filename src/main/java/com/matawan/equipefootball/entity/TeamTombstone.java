@@ -0,0 +1,55 @@
+package com.matawan.equipefootball.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marker left behind by a deleted team, so the delta sync can tell clients to remove it
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_team_tombstone_change_seq", columnList = "change_seq"))
+public class TeamTombstone {
+
+    @Id
+    private Long teamId;
+
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+
+    @Column(nullable = false)
+    private LocalDateTime deletedAt;
+
+    public TeamTombstone() {
+    }
+
+    public TeamTombstone(Long teamId, Long changeSeq, LocalDateTime deletedAt) {
+        this.teamId = teamId;
+        this.changeSeq = changeSeq;
+        this.deletedAt = deletedAt;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
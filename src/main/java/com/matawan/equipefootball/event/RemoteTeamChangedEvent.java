@@ -0,0 +1,32 @@
+package com.matawan.equipefootball.event;
+
+/**
+ * Published by the change log poller for every write of another instance, once it is committed
+ * The log only tells which team changed and how, listeners reload what they keep of the team from the database.
+ */
+public class RemoteTeamChangedEvent {
+
+    private final TeamChangedEvent.Type type;
+    private final Long teamId;
+
+    public RemoteTeamChangedEvent(TeamChangedEvent.Type type, Long teamId) {
+        this.type = type;
+        this.teamId = teamId;
+    }
+
+    public TeamChangedEvent.Type getType() {
+        return type;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteTeamChangedEvent{" +
+                "type=" + type +
+                ", teamId=" + teamId +
+                '}';
+    }
+}
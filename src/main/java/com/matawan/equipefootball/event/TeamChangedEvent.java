@@ -0,0 +1,71 @@
+package com.matawan.equipefootball.event;
+
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+
+/**
+ * Published by the TeamService for every write to a team or its roster
+ * Listeners are notified after the transaction commits, so they never see a change that was rolled back
+ */
+public class TeamChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        PLAYER_ADDED,
+        PLAYER_REMOVED
+    }
+
+    private final Type type;
+    private final Long teamId;
+    // state of the team after the write, null for deletes and roster changes
+    private final TeamDto team;
+    // the added or removed player for roster changes, null otherwise
+    private final PlayerDto player;
+    // state of the team before the write for updates and deletes (without the roster), null otherwise
+    private final TeamDto previous;
+
+    public TeamChangedEvent(Type type, Long teamId, TeamDto team, PlayerDto player) {
+        this(type, teamId, team, player, null);
+    }
+
+    public TeamChangedEvent(Type type, Long teamId, TeamDto team, PlayerDto player, TeamDto previous) {
+        this.type = type;
+        this.teamId = teamId;
+        this.team = team;
+        this.player = player;
+        this.previous = previous;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public TeamDto getTeam() {
+        return team;
+    }
+
+    public PlayerDto getPlayer() {
+        return player;
+    }
+
+    public TeamDto getPrevious() {
+        return previous;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamChangedEvent{" +
+                "type=" + type +
+                ", teamId=" + teamId +
+                ", team=" + team +
+                ", player=" + player +
+                ", previous=" + previous +
+                '}';
+    }
+}
@@ -0,0 +1,25 @@
+package com.matawan.equipefootball.event;
+
+/**
+ * Published for every team inserted through JPA, as soon as the insert is executed and before it is committed
+ * Unlike TeamChangedEvent it is also published for the inserts that do not go through the TeamService.
+ */
+public class TeamInsertedEvent {
+
+    private final Long teamId;
+
+    public TeamInsertedEvent(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    @Override
+    public String toString() {
+        return "TeamInsertedEvent{" +
+                "teamId=" + teamId +
+                '}';
+    }
+}
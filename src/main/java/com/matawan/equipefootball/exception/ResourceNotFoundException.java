@@ -1,7 +1,11 @@
 package com.matawan.equipefootball.exception;
 
+/**
+ * Thrown when a requested resource does not exist
+ * Lookups of unknown ids are frequent and expected, the exception is created without capturing a stack trace.
+ */
 public class ResourceNotFoundException extends RuntimeException{
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
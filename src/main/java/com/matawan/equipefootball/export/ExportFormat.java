@@ -0,0 +1,36 @@
+package com.matawan.equipefootball.export;
+
+import java.util.Locale;
+
+/**
+ * Formats of the team exports, both gzip-compressed
+ * NDJSON has one team with its roster per line, CSV one line per player (a single line with empty player columns for a
+ * team without players).
+ */
+public enum ExportFormat {
+    NDJSON("ndjson"),
+    CSV("csv");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param value the name of the format, case insensitive
+     * @return the format
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    public static ExportFormat parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid export format: " + value + " (ndjson or csv)");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.matawan.equipefootball.export;
+
+import com.matawan.equipefootball.dto.ExportJobDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An export of the teams to a compressed file, updated by the export thread and read by the status requests
+ */
+class ExportJob {
+
+    enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final ExportFormat format;
+    private final Path file;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    final AtomicLong exportedTeams = new AtomicLong();
+
+    private volatile State state = State.QUEUED;
+    private volatile long totalTeams;
+    private volatile long startNanos;
+    private volatile long durationNanos;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    ExportJob(String id, ExportFormat format, Path file) {
+        this.id = id;
+        this.format = format;
+        this.file = file;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    ExportFormat getFormat() {
+        return format;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    void start(long totalTeams) {
+        this.totalTeams = totalTeams;
+        this.startNanos = System.nanoTime();
+        this.state = State.RUNNING;
+    }
+
+    void finish(State outcome, String error) {
+        this.durationNanos = System.nanoTime() - startNanos;
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        this.state = outcome;
+    }
+
+    /**
+     * @param downloadUrl the link to the file, only included once the job is completed
+     */
+    ExportJobDto toDto(String downloadUrl) {
+        State current = state;
+        long exported = exportedTeams.get();
+        long elapsedNanos = switch (current) {
+            case QUEUED -> 0;
+            case RUNNING -> System.nanoTime() - startNanos;
+            case COMPLETED, FAILED -> durationNanos;
+        };
+        long bytes = 0;
+        if (current == State.RUNNING || current == State.COMPLETED) {
+            try {
+                bytes = Files.size(current == State.COMPLETED ? file : ExportJobs.partialFile(file));
+            } catch (IOException e) {
+                // not created yet, or already deleted
+            }
+        }
+        double progress = current == State.COMPLETED ? 1 : totalTeams == 0 ? 0 : Math.min(1, (double) exported / totalTeams);
+        double teamsPerSecond = elapsedNanos == 0 ? 0 : exported * 1e9 / elapsedNanos;
+        return new ExportJobDto(id, format.name(), current.name(), totalTeams, exported, progress, teamsPerSecond, bytes,
+                createdAt, finishedAt, current == State.COMPLETED ? downloadUrl : null, error);
+    }
+}
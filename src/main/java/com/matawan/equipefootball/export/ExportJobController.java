@@ -0,0 +1,119 @@
+package com.matawan.equipefootball.export;
+
+import com.matawan.equipefootball.dto.ExportJobDto;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/teams/export-jobs")
+public class ExportJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobController.class);
+
+    // request attributes of the Tomcat sendfile support (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int RETRY_AFTER_SECONDS = 30;
+
+    private final ExportJobs exportJobs;
+
+    public ExportJobController(ExportJobs exportJobs) {
+        this.exportJobs = exportJobs;
+    }
+
+    /**
+     * Start an export of all the teams with their rosters, for example POST /api/teams/export-jobs?format=csv
+     *
+     * @param format ndjson (default) or csv, the file is gzip-compressed
+     * @return the queued job, its status is at the Location of the response
+     */
+    @PostMapping
+    public ResponseEntity<?> startExport(@RequestParam(defaultValue = "ndjson") String format) {
+        logger.info("Received request to export the teams as {}", format);
+        try {
+            ExportJobDto job = exportJobs.submit(ExportFormat.parse(format));
+            return ResponseEntity.accepted().location(URI.create("/api/teams/export-jobs/" + job.getId())).body(job);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            // same error format as the GlobalExceptionHandler
+            Map<String, Object> body = new HashMap<>();
+            body.put("timestamp", LocalDateTime.now());
+            body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+            body.put("message", "Too many exports in progress, please retry later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+                    .body(body);
+        }
+    }
+
+    /**
+     * Get the state of an export job
+     *
+     * @param id the id of the job
+     * @return the state, the progress, the throughput and, once completed, the download link
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportJobDto> getExport(@PathVariable String id) {
+        return ResponseEntity.ok(exportJobs.getJob(id));
+    }
+
+    /**
+     * Download the file of a completed export job
+     * On Tomcat the file is sent with sendfile once the request returns, the bytes go from the page cache to the socket
+     * without being copied through the heap; elsewhere it is transferred from its file channel.
+     *
+     * @param id the id of the job
+     */
+    @GetMapping("/{id}/file")
+    public void downloadExport(@PathVariable String id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = exportJobs.getFile(id);
+        long size = Files.size(file);
+        logger.info("Sending export {} ({} bytes)", id, size);
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("teams-" + file.getFileName()).build().toString());
+        response.setContentLengthLong(size);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = 0; position < size; ) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.matawan.equipefootball.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.ExportJobDto;
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.exception.ConflictException;
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.service.ParallelMapping;
+import com.matawan.equipefootball.service.PositionDictionary;
+import com.matawan.equipefootball.sharding.Shards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Background exports of all the teams with their rosters to gzip-compressed files
+ *
+ * Jobs run on a small pool of low-priority threads with a bounded queue: at most threads exports hold a database
+ * connection at once, and a job submitted when the queue is full is refused instead of piling up. Each shard is streamed
+ * with a single join ordered by team in a read-only transaction (served by the replica when there is one), the teams are
+ * serialized by chunks on the mapping pool while the next ones are read (see ParallelMapping), and written in order
+ * through a file channel to a partial file renamed once complete.
+ * Jobs and their files are kept in memory and on the local disk of the instance running them for retention-minutes after
+ * they finish, the files left by a previous run are deleted at startup.
+ */
+@Component
+public class ExportJobs {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobs.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "team_id,team_name,acronym,budget,version,player_id,player_name,position\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final TransactionTemplate readOnlyTransaction;
+    private final PositionDictionary positionDictionary;
+    private final ParallelMapping parallelMapping;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final long retentionMinutes;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "team-export-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ExportJobs(JdbcTemplate jdbcTemplate, Shards shards, PlatformTransactionManager transactionManager,
+                      PositionDictionary positionDictionary, ParallelMapping parallelMapping, ObjectMapper objectMapper,
+                      @Value("${equipe.export.directory:${java.io.tmpdir}/equipe-football-exports}") String directory,
+                      @Value("${equipe.export.threads:2}") int threads,
+                      @Value("${equipe.export.queue-size:10}") int queueSize,
+                      @Value("${equipe.export.retention-minutes:60}") long retentionMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.positionDictionary = positionDictionary;
+        this.parallelMapping = parallelMapping;
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.retentionMinutes = retentionMinutes;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "team-export-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY); // the request threads go first when the CPUs are busy
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{gz,part}")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        cleaner.scheduleWithFixedDelay(this::removeExpiredJobs, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start an export in the background
+     *
+     * @param format the format of the file
+     * @return the queued job
+     * @throws RejectedExecutionException if too many exports are already running or queued
+     */
+    public ExportJobDto submit(ExportFormat format) {
+        String id = UUID.randomUUID().toString();
+        ExportJob job = new ExportJob(id, format, directory.resolve(id + "." + format.getExtension() + ".gz"));
+        jobs.put(id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            logger.warn("Export refused, {} running and {} queued", executor.getActiveCount(), executor.getQueue().size());
+            throw e;
+        }
+        logger.info("Export job {} queued ({})", id, format);
+        return toDto(job);
+    }
+
+    /**
+     * @param id the id of the job
+     * @return the state, progress and throughput of the job
+     * @throws ResourceNotFoundException if the job does not exist (or expired)
+     */
+    public ExportJobDto getJob(String id) {
+        return toDto(findJob(id));
+    }
+
+    /**
+     * @param id the id of a completed job
+     * @return the exported file
+     * @throws ResourceNotFoundException if the job does not exist (or expired)
+     * @throws ConflictException if the job is not completed
+     */
+    public Path getFile(String id) {
+        ExportJob job = findJob(id);
+        if (job.getState() != ExportJob.State.COMPLETED) {
+            throw new ConflictException(String.format("Export job %s is %s", id, job.getState()));
+        }
+        return job.getFile();
+    }
+
+    static Path partialFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".part");
+    }
+
+    private ExportJob findJob(String id) {
+        ExportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Export job not found with id " + id);
+        }
+        return job;
+    }
+
+    private ExportJobDto toDto(ExportJob job) {
+        return job.toDto("/api/teams/export-jobs/" + job.getId() + "/file");
+    }
+
+    private void run(ExportJob job) {
+        Path partial = partialFile(job.getFile());
+        try {
+            job.start(shards.all().stream()
+                    .mapToLong(shard -> shards.callOn(shard, () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM team", Long.class)))
+                    .sum());
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 OutputStream out = new BufferedOutputStream(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), BUFFER_SIZE)) {
+                if (job.getFormat() == ExportFormat.CSV) {
+                    out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+                }
+                shards.forEach(() -> readOnlyTransaction.executeWithoutResult(status -> {
+                    TeamStream teams = new TeamStream(job, out);
+                    jdbcTemplate.query("SELECT t.id, t.name, t.acronym, t.budget, t.version, "
+                            + "p.id AS player_id, p.name AS player_name, p.position_code "
+                            + "FROM team t LEFT JOIN player p ON p.team_id = t.id ORDER BY t.id, p.id", teams);
+                    teams.finish();
+                }));
+            }
+            Files.move(partial, job.getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.finish(ExportJob.State.COMPLETED, null);
+            logger.info("Export job {} completed: {} teams, {} bytes", job.getId(), job.exportedTeams.get(), Files.size(job.getFile()));
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e instanceof UncheckedIOException ? e.getCause() : e;
+            logger.warn("Export job {} failed: {}", job.getId(), cause.getMessage());
+            job.finish(ExportJob.State.FAILED, cause.getMessage());
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // removed with the directory at the next startup
+            }
+        }
+    }
+
+    private void removeExpiredJobs() {
+        LocalDateTime expiry = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            if (job.getFinishedAt() == null || job.getFinishedAt().isAfter(expiry)) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(job.getFile());
+            } catch (IOException e) {
+                logger.warn("Could not delete the file of export job {}: {}", job.getId(), e.getMessage());
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Groups the rows of the join into teams, and hands the serialization of each chunk of teams to the pipeline
+     */
+    private class TeamStream implements RowCallbackHandler {
+
+        private final ExportJob job;
+        private final ParallelMapping.Pipeline<SerializedChunk> pipeline;
+        private List<TeamDto> chunk = new ArrayList<>();
+        private TeamDto team;
+
+        TeamStream(ExportJob job, OutputStream out) {
+            this.job = job;
+            this.pipeline = parallelMapping.pipeline(serialized -> {
+                try {
+                    out.write(serialized.bytes());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                job.exportedTeams.addAndGet(serialized.teams());
+            });
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            long teamId = resultSet.getLong("id");
+            if (team == null || team.getId() != teamId) {
+                endTeam();
+                team = new TeamDto(teamId, resultSet.getString("name"), resultSet.getString("acronym"),
+                        resultSet.getDouble("budget"), new ArrayList<>());
+                team.setVersion((Long) resultSet.getObject("version"));
+            }
+            long playerId = resultSet.getLong("player_id");
+            if (!resultSet.wasNull()) {
+                Number positionCode = (Number) resultSet.getObject("position_code");
+                team.getPlayers().add(new PlayerDto(playerId, resultSet.getString("player_name"),
+                        positionCode == null ? null : positionDictionary.getName(positionCode.shortValue())));
+            }
+        }
+
+        /**
+         * Serialize the last chunk and wait until every chunk is written
+         */
+        void finish() {
+            endTeam();
+            submitChunk();
+            pipeline.finish();
+        }
+
+        private void endTeam() {
+            if (team == null) {
+                return;
+            }
+            chunk.add(team);
+            team = null;
+            if (chunk.size() >= parallelMapping.getChunkSize()) {
+                submitChunk();
+            }
+        }
+
+        private void submitChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<TeamDto> teams = chunk;
+            chunk = new ArrayList<>();
+            pipeline.submit(() -> serialize(job.getFormat(), teams));
+        }
+    }
+
+    private SerializedChunk serialize(ExportFormat format, List<TeamDto> teams) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(teams.size() * 256);
+        try {
+            for (TeamDto team : teams) {
+                if (format == ExportFormat.NDJSON) {
+                    out.write(objectMapper.writeValueAsBytes(team));
+                    out.write('\n');
+                } else {
+                    writeCsv(team, out);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SerializedChunk(out.toByteArray(), teams.size());
+    }
+
+    private void writeCsv(TeamDto team, OutputStream out) throws IOException {
+        String teamColumns = team.getId() + "," + csv(team.getName()) + "," + csv(team.getAcronym()) + ","
+                + team.getBudget() + "," + (team.getVersion() == null ? "" : team.getVersion()) + ",";
+        if (team.getPlayers().isEmpty()) {
+            out.write((teamColumns + ",,\n").getBytes(StandardCharsets.UTF_8));
+        }
+        for (PlayerDto player : team.getPlayers()) {
+            out.write((teamColumns + player.getId() + "," + csv(player.getName()) + "," + csv(player.getPosition()) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private record SerializedChunk(byte[] bytes, int teams) {
+    }
+}
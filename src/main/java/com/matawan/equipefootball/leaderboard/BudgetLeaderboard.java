@@ -0,0 +1,321 @@
+package com.matawan.equipefootball.leaderboard;
+
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.event.RemoteTeamChangedEvent;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import com.matawan.equipefootball.sharding.Shards;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Teams ordered by budget (highest first, then by id like the sorted team list), maintained in memory so the richest
+ * teams are read without sorting the table
+ *
+ * The ordered set is a skip list that readers walk and writers update without locking: a move inserts the new position
+ * before removing the old one, and only writes to the same team are serialized (per id by the map). A reader skips the
+ * positions that are no longer the current one of their team, and every move is logged before it starts so the teams
+ * that moved during the walk are set aside and put back at their current position. A page never lists a team twice nor
+ * misses one, unless the log could not be read MAX_READ_ATTEMPTS times in a row (the page then lists the current
+ * positions met by a single walk). The writes of the other instances are read back from the database when the change
+ * log poller reports them.
+ */
+@Component
+public class BudgetLeaderboard implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetLeaderboard.class);
+
+    private static final int MOVE_LOG_SIZE = 256;
+    // teams read beyond the page, so that it is still full once the teams that moved during the walk are set aside
+    private static final int READ_AHEAD = 8;
+    private static final int MAX_READ_ATTEMPTS = 8;
+
+    // same order as "ORDER BY budget DESC, id ASC" in H2, where null budgets sort last
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparing(Entry::budget, Comparator.nullsLast(Comparator.<Double>reverseOrder()))
+            .thenComparingLong(Entry::teamId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    // the ids of the last moves, slot seq % MOVE_LOG_SIZE holds the move numbered seq once moveSeqs has its number
+    private final AtomicLong movesStarted = new AtomicLong();
+    private final AtomicLong movesFinished = new AtomicLong();
+    private final AtomicLongArray moveSeqs = new AtomicLongArray(MOVE_LOG_SIZE);
+    private final AtomicLongArray moveIds = new AtomicLongArray(MOVE_LOG_SIZE);
+    private final AtomicLongArray movesDone = new AtomicLongArray(MOVE_LOG_SIZE);
+
+    public BudgetLeaderboard(JdbcTemplate jdbcTemplate, Shards shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Reload the whole ranking from the database
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        // the readers walking the ranking while it is cleared see the whole move log overflow, and read it again
+        movesStarted.addAndGet(MOVE_LOG_SIZE);
+        ranking.clear();
+        entries.clear();
+        movesStarted.addAndGet(MOVE_LOG_SIZE);
+        shards.forEach(() -> jdbcTemplate.query("SELECT id, budget, version FROM team", resultSet -> {
+            Number budget = (Number) resultSet.getObject("budget");
+            update(resultSet.getLong("id"), budget == null ? null : budget.doubleValue(), (Long) resultSet.getObject("version"), true);
+        }));
+        logger.info("Budget leaderboard built in {} ms with {} teams", (System.nanoTime() - start) / 1_000_000, entries.size());
+    }
+
+    /**
+     * Get the ids of the teams in budget order
+     *
+     * @param offset the number of teams to skip
+     * @param count the maximum number of ids
+     * @return the ids, highest budget first
+     */
+    public List<Long> getTeamIds(int offset, int count) {
+        List<Entry> page = null;
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS && page == null; attempt++) {
+            page = readPage(offset, count);
+        }
+        if (page == null) {
+            // moved too often to be read exactly, every current position once in walk order
+            page = walk(offset + count, Set.of()).stream().skip(offset).toList();
+        }
+        return page.stream().map(Entry::teamId).toList();
+    }
+
+    /**
+     * Read a page, the teams that moved during the walk are put back at their current position
+     *
+     * @return the entries of the page, or null if too many teams moved to read it exactly
+     */
+    private List<Entry> readPage(int offset, int count) {
+        long finished = movesFinished.get();
+        long from = movesStarted.get();
+        Set<Long> moved = movesInFlight(from, from - finished);
+        if (moved == null) {
+            return null;
+        }
+        List<Entry> walked = walk(offset + count + READ_AHEAD, moved);
+        boolean complete = walked.size() < offset + count + READ_AHEAD;
+        if (!loggedMoves(from, movesStarted.get(), moved)) {
+            return null;
+        }
+        List<Entry> page = new ArrayList<>(walked.size() + moved.size());
+        walked.stream().filter(entry -> !moved.contains(entry.teamId())).forEach(page::add);
+        Entry last = page.isEmpty() ? null : page.get(page.size() - 1);
+        for (Long teamId : moved) {
+            Entry current = entries.get(teamId);
+            // beyond the last team walked, other teams may rank before it
+            if (current != null && (complete || (last != null && ORDER.compare(current, last) < 0))) {
+                page.add(current);
+            }
+        }
+        if (!complete && page.size() < offset + count) {
+            return null;
+        }
+        page.sort(ORDER);
+        return page.subList(Math.min(offset, page.size()), Math.min(offset + count, page.size()));
+    }
+
+    /**
+     * Walk the ranking from the top, skipping the positions a team has already left and the given teams
+     */
+    private List<Entry> walk(int limit, Set<Long> skipped) {
+        List<Entry> walked = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (walked.size() == limit) {
+                break;
+            }
+            Entry current = entries.get(entry.teamId());
+            if (current != null && ORDER.compare(current, entry) == 0 && !skipped.contains(entry.teamId()) && seen.add(entry.teamId())) {
+                walked.add(entry);
+            }
+        }
+        return walked;
+    }
+
+    /**
+     * @param from the number of moves started so far
+     * @param inFlight the number of moves started but not finished, at most
+     * @return the teams of the moves still in flight, or null if one of them is not logged yet
+     */
+    private Set<Long> movesInFlight(long from, long inFlight) {
+        Set<Long> moved = new HashSet<>();
+        for (long seq = from; seq > from - MOVE_LOG_SIZE && seq > 0 && moved.size() < inFlight; seq--) {
+            int slot = (int) (seq % MOVE_LOG_SIZE);
+            long logged = awaitLogged(slot, seq);
+            if (logged < seq) {
+                return null;
+            }
+            long teamId = moveIds.get(slot);
+            if (logged == seq && movesDone.get(slot) != seq && moveSeqs.get(slot) == seq) {
+                moved.add(teamId);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Wait for a move counted in movesStarted to be written in its slot, which takes two stores after the count (unless
+     * the writer was descheduled in between, so the reader yields to it)
+     *
+     * @return the number of the move held by the slot
+     */
+    private long awaitLogged(int slot, long seq) {
+        long logged = moveSeqs.get(slot);
+        for (int spins = 0; logged < seq && spins < 1000; spins++) {
+            Thread.yield();
+            logged = moveSeqs.get(slot);
+        }
+        return logged;
+    }
+
+    /**
+     * Add the teams of the moves started between two counts to the moved teams
+     *
+     * @return false if the log no longer holds all of them
+     */
+    private boolean loggedMoves(long from, long to, Set<Long> moved) {
+        if (to - from >= MOVE_LOG_SIZE) {
+            return false;
+        }
+        for (long seq = from + 1; seq <= to; seq++) {
+            int slot = (int) (seq % MOVE_LOG_SIZE);
+            if (awaitLogged(slot, seq) != seq) {
+                return false;
+            }
+            long teamId = moveIds.get(slot);
+            if (moveSeqs.get(slot) != seq) {
+                return false;
+            }
+            moved.add(teamId);
+        }
+        return true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Move the teams whose budget changed, listeners of concurrent commits may run in any order so older versions are ignored
+     *
+     * @param event the committed change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED, UPDATED -> {
+                TeamDto team = event.getTeam();
+                // an update arriving after the delete of the team must not bring it back
+                update(event.getTeamId(), team.getBudget(), team.getVersion(), event.getType() == TeamChangedEvent.Type.CREATED);
+            }
+            case DELETED -> remove(event.getTeamId());
+            default -> {
+                // roster changes do not move the team
+            }
+        }
+    }
+
+    /**
+     * Move a team written by another instance to its committed budget, or remove it if it no longer exists
+     *
+     * @param event the change logged by the other instance
+     */
+    @EventListener
+    public void onRemoteTeamChanged(RemoteTeamChangedEvent event) {
+        long teamId = event.getTeamId();
+        if (event.getType() == TeamChangedEvent.Type.PLAYER_ADDED || event.getType() == TeamChangedEvent.Type.PLAYER_REMOVED) {
+            return;
+        }
+        List<Entry> committed = shards.callOn(shards.shardOf(teamId), () -> jdbcTemplate.query("SELECT budget, version FROM team WHERE id = ?",
+                (resultSet, rowNum) -> {
+                    Number budget = (Number) resultSet.getObject("budget");
+                    return new Entry(budget == null ? null : budget.doubleValue(), teamId, (Long) resultSet.getObject("version"));
+                }, teamId));
+        if (committed.isEmpty()) {
+            remove(teamId);
+        } else {
+            update(teamId, committed.get(0).budget(), committed.get(0).version(), true);
+        }
+    }
+
+    private void remove(long teamId) {
+        long move = startMove(teamId);
+        try {
+            entries.computeIfPresent(teamId, (id, current) -> {
+                ranking.remove(current);
+                return null;
+            });
+        } finally {
+            finishMove(move);
+        }
+    }
+
+    private void update(long teamId, Double budget, Long version, boolean create) {
+        long move = startMove(teamId);
+        try {
+            entries.compute(teamId, (id, current) -> {
+                if (current == null && !create) {
+                    return null;
+                }
+                if (current != null && current.version() != null && version != null && version <= current.version()) {
+                    return current;
+                }
+                Entry entry = new Entry(budget, teamId, version);
+                ranking.add(entry);
+                if (current != null && ORDER.compare(current, entry) != 0) {
+                    ranking.remove(current);
+                }
+                return entry;
+            });
+        } finally {
+            finishMove(move);
+        }
+    }
+
+    /**
+     * Log a move before the team leaves its position, so the readers walking the ranking meanwhile read it again
+     *
+     * @return the number of the move
+     */
+    private long startMove(long teamId) {
+        long seq = movesStarted.incrementAndGet();
+        int slot = (int) (seq % MOVE_LOG_SIZE);
+        moveIds.set(slot, teamId);
+        moveSeqs.set(slot, seq);
+        return seq;
+    }
+
+    private void finishMove(long seq) {
+        movesDone.set((int) (seq % MOVE_LOG_SIZE), seq);
+        movesFinished.incrementAndGet();
+    }
+
+    private record Entry(Double budget, long teamId, Long version) {
+    }
+}
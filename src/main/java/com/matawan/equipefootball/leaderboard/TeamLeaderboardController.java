@@ -0,0 +1,67 @@
+package com.matawan.equipefootball.leaderboard;
+
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.service.TeamService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/teams/top")
+public class TeamLeaderboardController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamLeaderboardController.class);
+
+    // upper bound of teams in a response
+    private static final int MAX_TOP = 100;
+    // extra ids fetched in case some teams were deleted since they were ranked
+    private static final int MARGIN = 8;
+
+    private final BudgetLeaderboard budgetLeaderboard;
+    private final TeamService teamService;
+
+    public TeamLeaderboardController(BudgetLeaderboard budgetLeaderboard, TeamService teamService) {
+        this.budgetLeaderboard = budgetLeaderboard;
+        this.teamService = teamService;
+    }
+
+    /**
+     * Get the teams with the highest budgets, in the same order as /api/teams?sortBy=-budget, for example /api/teams/top?n=5
+     *
+     * @param n the number of teams, default is 10
+     * @return the teams, highest budget first
+     */
+    @GetMapping
+    public ResponseEntity<?> getTopTeams(@RequestParam(defaultValue = "10") int n) {
+        logger.info("Received request to fetch the top {} teams by budget", n);
+        if (n < 1 || n > MAX_TOP) {
+            logger.error("Invalid number of top teams: {}", n);
+            return ResponseEntity.badRequest().body(String.format("n must be between 1 and %d", MAX_TOP));
+        }
+
+        // the teams are fetched by id with the multi-get, ranked ids that no longer exist are skipped
+        List<TeamDto> teams = new ArrayList<>(n);
+        int offset = 0;
+        while (teams.size() < n) {
+            List<Long> ids = budgetLeaderboard.getTeamIds(offset, n - teams.size() + MARGIN);
+            if (ids.isEmpty()) {
+                break;
+            }
+            offset += ids.size();
+            for (TeamDto team : teamService.getTeamsByIds(ids).getTeams()) {
+                if (teams.size() < n) {
+                    teams.add(team);
+                }
+            }
+        }
+        logger.info("Returning {} top teams", teams.size());
+        return ResponseEntity.ok(teams);
+    }
+}
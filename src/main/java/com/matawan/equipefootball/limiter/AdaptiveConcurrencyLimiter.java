@@ -0,0 +1,150 @@
+package com.matawan.equipefootball.limiter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of requests in flight and adapts the limit to the measured latency (gradient / Vegas style)
+ *
+ * Latency is sampled over short windows. The fastest request of a window tells whether requests are queueing: without a queue
+ * it is close to the no-load latency, with a queue every request of the window waits. At the end of each window the gradient
+ * (no-load latency / fastest latency of the window) is computed: when it drops the limit shrinks, when requests are as fast as
+ * without load the limit grows by a small queue allowance. The no-load latency is the lowest window minimum seen, re-measured
+ * periodically so it follows lasting changes (a bigger dataset makes every query slower).
+ * Requests above the limit are rejected immediately instead of waiting, so the latency of the admitted ones stays bounded.
+ *
+ * Acquiring and releasing only use atomic counters; the limit is recomputed by the single thread that closes a window.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // the fastest request of a window may exceed the no-load latency by this factor before the limit shrinks
+    private static final double RTT_TOLERANCE = 1.5;
+    // weight of a new estimate in the limit, smooths out noisy windows
+    private static final double SMOOTHING = 0.2;
+    // number of windows after which the no-load latency is measured again
+    private static final int NO_LOAD_RTT_RESET_WINDOWS = 40;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final int minWindowSamples;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+    private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicLong windowStart;
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile int limit;
+    // only read and written by the thread holding the updating flag
+    private double estimatedLimit;
+    private double noLoadRttNanos;
+    private int windowsSinceReset;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, long windowMillis, int minWindowSamples) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limits for " + name + ": min " + minLimit + ", max " + maxLimit);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.minWindowSamples = Math.max(1, minWindowSamples);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = this.limit;
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Try to admit a request
+     *
+     * @return true if the request may proceed, in which case {@link #release(long)} must be called once it completes
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                windowMaxInFlight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release an admitted request and record its latency
+     *
+     * @param startNanos the {@link System#nanoTime()} at which the request was admitted
+     */
+    public void release(long startNanos) {
+        long now = System.nanoTime();
+        inFlight.decrementAndGet();
+        long rtt = now - startNanos;
+        windowMinRtt.accumulateAndGet(rtt, Math::min);
+        windowSamples.increment();
+
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowSamples.sum() >= minWindowSamples && windowStart.compareAndSet(start, now)) {
+            if (updating.compareAndSet(false, true)) {
+                try {
+                    updateLimit();
+                } finally {
+                    updating.set(false);
+                }
+            }
+        }
+    }
+
+    private void updateLimit() {
+        long samples = windowSamples.sumThenReset();
+        long minRtt = windowMinRtt.getAndSet(Long.MAX_VALUE);
+        int maxInFlight = windowMaxInFlight.getAndSet(inFlight.get());
+        if (samples == 0 || minRtt == Long.MAX_VALUE) {
+            return;
+        }
+        double shortRtt = Math.max(1.0, minRtt);
+
+        if (noLoadRttNanos == 0 || ++windowsSinceReset >= NO_LOAD_RTT_RESET_WINDOWS) {
+            noLoadRttNanos = shortRtt;
+            windowsSinceReset = 0;
+        } else {
+            noLoadRttNanos = Math.min(noLoadRttNanos, shortRtt);
+        }
+
+        // the requests did not use the current limit, the latency tells nothing about a higher one
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * noLoadRttNanos / shortRtt));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
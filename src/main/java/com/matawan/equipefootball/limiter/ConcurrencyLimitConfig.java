@@ -0,0 +1,49 @@
+package com.matawan.equipefootball.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Registers the adaptive concurrency limiter in front of the team endpoints
+ * Each limiter is configured with the equipe.limiter.read.* and equipe.limiter.write.* properties
+ */
+@Configuration
+@ConditionalOnProperty(name = "equipe.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public AdaptiveConcurrencyLimiter readConcurrencyLimiter(Environment environment) {
+        return createLimiter("read", environment, 20, 200);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter writeConcurrencyLimiter(Environment environment) {
+        return createLimiter("write", environment, 10, 50);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(AdaptiveConcurrencyLimiter readConcurrencyLimiter,
+                                                                                 AdaptiveConcurrencyLimiter writeConcurrencyLimiter,
+                                                                                 @Value("${equipe.limiter.retry-after-seconds:1}") int retryAfterSeconds,
+                                                                                 ObjectMapper objectMapper) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(readConcurrencyLimiter, writeConcurrencyLimiter, retryAfterSeconds, objectMapper));
+        registration.addUrlPatterns("/api/teams/*"); // also matches /api/teams itself
+        return registration;
+    }
+
+    private AdaptiveConcurrencyLimiter createLimiter(String name, Environment environment, int defaultInitialLimit, int defaultMaxLimit) {
+        String prefix = "equipe.limiter." + name + ".";
+        return new AdaptiveConcurrencyLimiter(name,
+                environment.getProperty(prefix + "initial-limit", Integer.class, defaultInitialLimit),
+                environment.getProperty(prefix + "min-limit", Integer.class, 2),
+                environment.getProperty(prefix + "max-limit", Integer.class, defaultMaxLimit),
+                environment.getProperty("equipe.limiter.window-ms", Long.class, 250L),
+                environment.getProperty("equipe.limiter.min-window-samples", Integer.class, 10));
+    }
+}
@@ -0,0 +1,86 @@
+package com.matawan.equipefootball.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sheds requests to the team endpoints with a 503 and a Retry-After header once the adaptive limit of requests in flight is reached
+ * Reads (GET, HEAD) and writes have separate limiters, so a burst of slow writes does not shed cheap reads and vice versa
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+    private final int retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter readLimiter, AdaptiveConcurrencyLimiter writeLimiter,
+                                  int retryAfterSeconds, ObjectMapper objectMapper) {
+        this.readLimiter = readLimiter;
+        this.writeLimiter = writeLimiter;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter limiter = isRead(request) ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            reject(response, limiter);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(start);
+        }
+    }
+
+    /**
+     * The change feed is a long-lived asynchronous stream: it holds no thread and its latency says nothing about the load
+     * The export downloads are bulk transfers whose duration depends on the client
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.endsWith("/api/teams/changes") || (uri.contains("/api/teams/export-jobs/") && uri.endsWith("/file"));
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())
+                || ("POST".equals(request.getMethod()) && request.getRequestURI().endsWith("/lookup")); // multi-get with the ids in the body
+    }
+
+    private void reject(HttpServletResponse response, AdaptiveConcurrencyLimiter limiter) throws IOException {
+        logger.debug("Shedding request, {} limit of {} requests in flight reached", limiter.getName(), limiter.getLimit());
+
+        // same error format as the GlobalExceptionHandler
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("message", "Too many concurrent requests, please retry later");
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,41 @@
+package com.matawan.equipefootball.migration;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves rosters stored in the legacy team_players join table to the team_id foreign key on the player table
+ * Databases created before Team.players became a mappedBy association still hold the roster in the join table,
+ * this migration copies it once and drops the join table so it is never read again
+ */
+@Component
+@DependsOn("entityManagerFactory") // the schema update must have added the team_id column first
+public class LegacyRosterMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyRosterMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LegacyRosterMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        Integer legacyTables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'TEAM_PLAYERS'", Integer.class);
+        if (legacyTables == null || legacyTables == 0) {
+            return;
+        }
+        logger.info("Migrating rosters from the legacy team_players join table...");
+        int migrated = jdbcTemplate.update(
+                "UPDATE player p SET team_id = (SELECT tp.team_id FROM team_players tp WHERE tp.players_id = p.id) " +
+                        "WHERE p.team_id IS NULL AND EXISTS (SELECT 1 FROM team_players tp WHERE tp.players_id = p.id)");
+        jdbcTemplate.execute("DROP TABLE team_players");
+        logger.info("Migrated {} players from the legacy team_players join table", migrated);
+    }
+}
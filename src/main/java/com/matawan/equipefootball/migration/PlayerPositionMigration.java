@@ -0,0 +1,51 @@
+package com.matawan.equipefootball.migration;
+
+import com.matawan.equipefootball.service.PositionDictionary;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the positions stored as free text in the legacy player.position column to the position dictionary
+ * Each distinct text is added to the dictionary once, the players get its code and the text column is dropped
+ */
+@Component
+@DependsOn("entityManagerFactory") // the schema update must have added the dictionary and the position_code column first
+public class PlayerPositionMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayerPositionMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PositionDictionary positionDictionary;
+
+    public PlayerPositionMigration(JdbcTemplate jdbcTemplate, PositionDictionary positionDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.positionDictionary = positionDictionary;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        Integer legacyColumns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PLAYER' AND COLUMN_NAME = 'POSITION'", Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return;
+        }
+        logger.info("Migrating player positions to the position dictionary...");
+        List<String> positions = jdbcTemplate.queryForList(
+                "SELECT DISTINCT position FROM player WHERE position IS NOT NULL AND position_code IS NULL", String.class);
+        int migrated = 0;
+        for (String position : positions) {
+            Short code = positionDictionary.register(position);
+            if (code != null) {
+                migrated += jdbcTemplate.update("UPDATE player SET position_code = ? WHERE position = ? AND position_code IS NULL", code, position);
+            }
+        }
+        jdbcTemplate.execute("ALTER TABLE player DROP COLUMN position");
+        logger.info("Migrated {} players to {} dictionary positions", migrated, positionDictionary.size());
+    }
+}
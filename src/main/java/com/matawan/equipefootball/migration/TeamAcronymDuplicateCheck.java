@@ -0,0 +1,38 @@
+package com.matawan.equipefootball.migration;
+
+import com.matawan.equipefootball.entity.Team;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports the acronyms shared by several teams created before acronyms were unique
+ * The schema update cannot add the unique index while they exist, the teams must be renamed and the application restarted
+ */
+@Component
+@DependsOn("entityManagerFactory") // the schema update must have tried to add the unique index first
+public class TeamAcronymDuplicateCheck {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamAcronymDuplicateCheck.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TeamAcronymDuplicateCheck(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void check() {
+        List<String> duplicates = jdbcTemplate.queryForList(
+                "SELECT acronym FROM team GROUP BY acronym HAVING COUNT(*) > 1 ORDER BY acronym", String.class);
+        if (!duplicates.isEmpty()) {
+            logger.error("{} acronyms are used by several teams ({}), the unique index {} is missing until they are renamed",
+                    duplicates.size(), String.join(", ", duplicates.subList(0, Math.min(10, duplicates.size()))), Team.ACRONYM_CONSTRAINT);
+        }
+    }
+}
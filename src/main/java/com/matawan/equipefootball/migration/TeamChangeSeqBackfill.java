@@ -0,0 +1,32 @@
+package com.matawan.equipefootball.migration;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Numbers the teams created before the change sequence existed, so the delta sync sends them to clients starting from scratch
+ */
+@Component
+@DependsOn({"entityManagerFactory", "changeSequence"}) // the column and the sequence must exist first
+public class TeamChangeSeqBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamChangeSeqBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TeamChangeSeqBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        int updated = jdbcTemplate.update("UPDATE team SET change_seq = NEXT VALUE FOR team_change_seq WHERE change_seq IS NULL");
+        if (updated > 0) {
+            logger.info("Initialized the change sequence of {} teams", updated);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.matawan.equipefootball.migration;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Initializes the optimistic locking version of teams created before the version column existed
+ * Hibernate cannot increment a null version, so those rows would fail on their first update
+ */
+@Component
+@DependsOn("entityManagerFactory") // the schema update must have added the version column first
+public class TeamVersionBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamVersionBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TeamVersionBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        int updated = jdbcTemplate.update("UPDATE team SET version = 0 WHERE version IS NULL");
+        if (updated > 0) {
+            logger.info("Initialized the version of {} teams", updated);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.matawan.equipefootball.profiling;
+
+import com.matawan.equipefootball.dto.ProfilingReportDto;
+import com.matawan.equipefootball.dto.ProfilingSiteDto;
+import com.matawan.equipefootball.exception.ConflictException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Profiling sessions for load tests: a Java Flight Recorder recording of the allocation samples, the monitor contention
+ * and the thread parks, and the allocation and JDBC time of each team request (see ProfilingFilter)
+ *
+ * The events are summarized when the session is stopped, by site: the first frame of the feature packages of the
+ * application in their stack (lambdas are reported as the method declaring them, so the stream of getSortOrders is
+ * getSortOrders). One session at a time, the requests outside of a session are not measured.
+ */
+public class JfrProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrProfiler.class);
+
+    private static final String APPLICATION_PACKAGE = "com.matawan.equipefootball.";
+    private static final String PROFILING_PACKAGE = APPLICATION_PACKAGE + "profiling.";
+    private static final Pattern LAMBDA = Pattern.compile("lambda\\$(.+)\\$\\d+");
+
+    private final int topSites;
+    private final String allocationSampleRate;
+    private final Duration blockingThreshold;
+
+    private Recording recording;
+    private volatile boolean running;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final AtomicLong maxAllocatedBytes = new AtomicLong();
+    private final LongAdder jdbcNanos = new LongAdder();
+    private final LongAdder timedRequests = new LongAdder();
+
+    /**
+     * @param topSites the number of allocation and blocking sites reported
+     * @param allocationSampleRate the maximum rate of allocation samples, for instance 1000/s
+     * @param blockingThreshold the minimum duration of the recorded monitor contention and thread parks
+     */
+    public JfrProfiler(int topSites, String allocationSampleRate, Duration blockingThreshold) {
+        this.topSites = topSites;
+        this.allocationSampleRate = allocationSampleRate;
+        this.blockingThreshold = blockingThreshold;
+    }
+
+    /**
+     * Start a session
+     *
+     * @throws ConflictException if a session is already running
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new ConflictException("A profiling session is already running");
+        }
+        recording = new Recording();
+        recording.setName("equipe-football-profiling");
+        recording.enable("jdk.ObjectAllocationSample").with("throttle", allocationSampleRate).withStackTrace();
+        recording.enable("jdk.JavaMonitorEnter").withThreshold(blockingThreshold).withStackTrace();
+        recording.enable("jdk.ThreadPark").withThreshold(blockingThreshold).withStackTrace();
+        requests.reset();
+        allocatedBytes.reset();
+        maxAllocatedBytes.set(0);
+        jdbcNanos.reset();
+        timedRequests.reset();
+        recording.start();
+        running = true;
+        logger.info("Profiling session started");
+    }
+
+    /**
+     * Stop the running session and summarize it
+     *
+     * @return the summary of the session
+     * @throws ConflictException if no session is running
+     */
+    public synchronized ProfilingReportDto stop() {
+        if (!running) {
+            throw new ConflictException("No profiling session is running");
+        }
+        running = false;
+        recording.stop();
+        Path file = null;
+        try {
+            file = Files.createTempFile("equipe-football-profiling", ".jfr");
+            recording.dump(file);
+            ProfilingReportDto report = summarize(RecordingFile.readAllEvents(file),
+                    Duration.between(recording.getStartTime(), recording.getStopTime()));
+            logger.info("Profiling session stopped: {} requests, {} bytes allocated per request, {} monitor contentions",
+                    report.getRequests(), report.getAllocatedBytesPerRequest(), report.getMonitorContentions());
+            return report;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            recording.close();
+            recording = null;
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warn("Could not delete the recording {}", file, e);
+                }
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Record a team request of the running session, ignored without session
+     *
+     * @param allocated the bytes allocated by the thread handling the request
+     * @param requestJdbcNanos the JDBC time of the request, -1 if the request was not timed
+     */
+    void recordRequest(long allocated, long requestJdbcNanos) {
+        if (!running) {
+            return;
+        }
+        requests.increment();
+        allocatedBytes.add(allocated);
+        maxAllocatedBytes.accumulateAndGet(allocated, Math::max);
+        if (requestJdbcNanos >= 0) {
+            jdbcNanos.add(requestJdbcNanos);
+            timedRequests.increment();
+        }
+    }
+
+    private ProfilingReportDto summarize(List<RecordedEvent> events, Duration duration) {
+        Map<String, Site> allocationSites = new HashMap<>();
+        Map<String, Site> blockingSites = new HashMap<>();
+        long monitorContentions = 0;
+        long monitorContentionNanos = 0;
+        long threadParks = 0;
+        long threadParkNanos = 0;
+        for (RecordedEvent event : events) {
+            switch (event.getEventType().getName()) {
+                case "jdk.ObjectAllocationSample" -> allocationSites
+                        .computeIfAbsent(site(event.getStackTrace()) + " allocating " + className(event.getClass("objectClass")), key -> new Site())
+                        .add(event.getLong("weight"));
+                case "jdk.JavaMonitorEnter" -> {
+                    monitorContentions++;
+                    monitorContentionNanos += event.getDuration().toNanos();
+                    blockingSites.computeIfAbsent(site(event.getStackTrace()) + " entering " + className(event.getClass("monitorClass")), key -> new Site())
+                            .add(event.getDuration().toNanos());
+                }
+                case "jdk.ThreadPark" -> {
+                    String site = applicationSite(event.getStackTrace());
+                    if (site != null) { // the other parks are idle threads of pools waiting for work
+                        threadParks++;
+                        threadParkNanos += event.getDuration().toNanos();
+                        blockingSites.computeIfAbsent(site + " parked on " + className(event.getClass("parkedClass")), key -> new Site())
+                                .add(event.getDuration().toNanos());
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        long requestCount = requests.sum();
+        long timedCount = timedRequests.sum();
+        return new ProfilingReportDto(millis(duration.toNanos()), requestCount,
+                requestCount == 0 ? 0 : allocatedBytes.sum() / requestCount, maxAllocatedBytes.get(),
+                timedCount == 0 ? 0 : millis(jdbcNanos.sum()) / timedCount,
+                monitorContentions, millis(monitorContentionNanos), threadParks, millis(threadParkNanos),
+                top(allocationSites, 1), top(blockingSites, 1_000_000));
+    }
+
+    private List<ProfilingSiteDto> top(Map<String, Site> sites, double unit) {
+        return sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Site> entry) -> entry.getValue().total).reversed())
+                .limit(topSites)
+                .map(entry -> new ProfilingSiteDto(entry.getKey(), entry.getValue().events, entry.getValue().total / unit))
+                .toList();
+    }
+
+    /**
+     * @return the first frame of a feature package below the profiling classes, or the top frame if there is none
+     */
+    private static String site(RecordedStackTrace stackTrace) {
+        String site = applicationSite(stackTrace);
+        if (site != null) {
+            return site;
+        }
+        return stackTrace == null || stackTrace.getFrames().isEmpty() ? "unknown" : describe(stackTrace.getFrames().get(0));
+    }
+
+    /**
+     * @return the first frame of a feature package below the profiling classes (not a proxy), null if there is none
+     */
+    private static String applicationSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (frame.isJavaFrame() && type.startsWith(APPLICATION_PACKAGE) && type.indexOf('.', APPLICATION_PACKAGE.length()) > 0
+                    && !type.startsWith(PROFILING_PACKAGE) && !type.contains("$$")) {
+                return describe(frame);
+            }
+        }
+        return null;
+    }
+
+    private static String describe(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        String method = frame.getMethod().getName();
+        Matcher lambda = LAMBDA.matcher(method);
+        if (lambda.matches()) {
+            method = lambda.group(1);
+        }
+        return type.substring(type.lastIndexOf('.') + 1) + "." + method;
+    }
+
+    private static String className(RecordedClass type) {
+        return type == null ? "unknown" : type.getName();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Site {
+        long events;
+        long total;
+
+        void add(long value) {
+            events++;
+            total += value;
+        }
+    }
+}
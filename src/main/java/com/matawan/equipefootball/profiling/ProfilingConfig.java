@@ -0,0 +1,34 @@
+package com.matawan.equipefootball.profiling;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Profiling mode for load tests, enabled by equipe.profiling.enabled: sessions started and stopped through
+ * /api/admin/profiling record Java Flight Recorder events and the allocation of each team request
+ */
+@Configuration
+@ConditionalOnProperty(name = "equipe.profiling.enabled", havingValue = "true")
+public class ProfilingConfig {
+
+    @Bean
+    public JfrProfiler jfrProfiler(@Value("${equipe.profiling.top-sites:10}") int topSites,
+                                   @Value("${equipe.profiling.allocation-sample-rate:1000/s}") String allocationSampleRate,
+                                   @Value("${equipe.profiling.blocking-threshold-ms:1}") long blockingThresholdMillis) {
+        return new JfrProfiler(topSites, allocationSampleRate, Duration.ofMillis(blockingThresholdMillis));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ProfilingFilter> profilingFilter(JfrProfiler jfrProfiler) {
+        FilterRegistrationBean<ProfilingFilter> registration = new FilterRegistrationBean<>(new ProfilingFilter(jfrProfiler));
+        registration.addUrlPatterns("/api/teams/*"); // also matches /api/teams itself
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2); // inside the Server-Timing filter, which binds the request timing
+        return registration;
+    }
+}
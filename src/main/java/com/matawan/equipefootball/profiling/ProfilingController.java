@@ -0,0 +1,42 @@
+package com.matawan.equipefootball.profiling;
+
+import com.matawan.equipefootball.dto.ProfilingReportDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/profiling")
+@ConditionalOnProperty(name = "equipe.profiling.enabled", havingValue = "true")
+public class ProfilingController {
+
+    private final JfrProfiler jfrProfiler;
+
+    public ProfilingController(JfrProfiler jfrProfiler) {
+        this.jfrProfiler = jfrProfiler;
+    }
+
+    /**
+     * Start a profiling session, before a load test
+     *
+     * @return an empty response, 409 if a session is already running
+     */
+    @PostMapping("/start")
+    public ResponseEntity<Void> start() {
+        jfrProfiler.start();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Stop the profiling session, after a load test
+     *
+     * @return the allocation and JDBC time per team request and the top allocation and blocking sites, 409 if no
+     * session is running
+     */
+    @PostMapping("/stop")
+    public ResponseEntity<ProfilingReportDto> stop() {
+        return ResponseEntity.ok(jfrProfiler.stop());
+    }
+}
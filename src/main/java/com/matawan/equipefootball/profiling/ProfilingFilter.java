@@ -0,0 +1,52 @@
+package com.matawan.equipefootball.profiling;
+
+import com.matawan.equipefootball.timing.RequestTiming;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the thread handling each team request during a profiling session, and takes its JDBC
+ * time from the request timing (registered after the Server-Timing filter, only the sampled requests are timed)
+ * The allocations of the threads querying the shards for the request are not included.
+ */
+public class ProfilingFilter extends OncePerRequestFilter {
+
+    private final JfrProfiler profiler;
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public ProfilingFilter(JfrProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!profiler.isRunning()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestTiming timing = RequestTiming.current();
+            profiler.recordRequest(threads.getCurrentThreadAllocatedBytes() - allocatedBefore, timing == null ? -1 : timing.getJdbcNanos());
+        }
+    }
+
+    /**
+     * The change feed is a long-lived asynchronous stream and the export downloads are bulk transfers, they are not requests
+     * of the load tests
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.endsWith("/api/teams/changes") || (uri.contains("/api/teams/export-jobs/") && uri.endsWith("/file"));
+    }
+}
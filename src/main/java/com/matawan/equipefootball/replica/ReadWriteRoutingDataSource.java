@@ -0,0 +1,30 @@
+package com.matawan.equipefootball.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends the connections of read-only transactions to the replica and the others to the primary, see ReplicaRouter
+ * It is wrapped in a LazyConnectionDataSourceProxy: the connection is obtained at the first statement, once the
+ * read-only flag of the transaction is known.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaRouter router;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaRouter router) {
+        this.router = router;
+        setTargetDataSources(Map.of(ReplicaRouter.Target.PRIMARY, primary, ReplicaRouter.Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return router.route(TransactionSynchronizationManager.isCurrentTransactionReadOnly(), ReadYourWrites.get());
+    }
+}
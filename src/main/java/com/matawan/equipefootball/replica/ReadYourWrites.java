@@ -0,0 +1,50 @@
+package com.matawan.equipefootball.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Time of the last write of the client the current thread works for, set by the ReadYourWritesFilter for the requests
+ */
+public final class ReadYourWrites {
+
+    // a write request reads its own writes from the primary whatever the state of the replica
+    static final long WRITING = Long.MAX_VALUE;
+
+    private static final ThreadLocal<Long> LAST_WRITE = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    static Long get() {
+        return LAST_WRITE.get();
+    }
+
+    /**
+     * Run a task for a client that wrote at a given time, its reads go to the primary until the replica has that write
+     *
+     * @param lastWriteMillis the time of the last write of the client, null if unknown
+     * @param task the task
+     * @return the result of the task
+     */
+    public static <T> T callAfterWrite(Long lastWriteMillis, Supplier<T> task) {
+        Long previous = set(lastWriteMillis);
+        try {
+            return task.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * @return the previous value, to restore once done
+     */
+    static Long set(Long lastWriteMillis) {
+        Long previous = LAST_WRITE.get();
+        if (lastWriteMillis == null) {
+            LAST_WRITE.remove();
+        } else {
+            LAST_WRITE.set(lastWriteMillis);
+        }
+        return previous;
+    }
+}
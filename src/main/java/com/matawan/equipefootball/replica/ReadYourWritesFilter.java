@@ -0,0 +1,83 @@
+package com.matawan.equipefootball.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+
+/**
+ * Remembers the last write of each client in a cookie, so its next reads go to the primary until the replica has the write
+ *
+ * The response of a write is buffered: the cookie is added once the transaction has committed, with the commit time.
+ * The cookie expires after max-lag-ms, by then the replica either has the write or is too late to be read at all.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "equipe-last-write";
+
+    private final int cookieMaxAgeSeconds;
+
+    public ReadYourWritesFilter(long maxLagMillis) {
+        this.cookieMaxAgeSeconds = (int) Math.max(1, (maxLagMillis + 999) / 1000);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isRead(request)) {
+            Long previous = ReadYourWrites.set(lastWrite(request));
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                ReadYourWrites.set(previous);
+            }
+            return;
+        }
+        ContentCachingResponseWrapper bufferedResponse = new ContentCachingResponseWrapper(response);
+        Long previous = ReadYourWrites.set(ReadYourWrites.WRITING);
+        try {
+            filterChain.doFilter(request, bufferedResponse);
+        } finally {
+            ReadYourWrites.set(previous);
+        }
+        if (bufferedResponse.getStatus() < 400) {
+            Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(cookieMaxAgeSeconds);
+            bufferedResponse.addCookie(cookie);
+        }
+        bufferedResponse.copyBodyToResponse();
+    }
+
+    /**
+     * The change feed is a long-lived asynchronous stream, it is not buffered
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().endsWith("/api/teams/changes");
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())
+                || ("POST".equals(request.getMethod()) && request.getRequestURI().endsWith("/lookup")); // multi-get with the ids in the body
+    }
+
+    private Long lastWrite(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
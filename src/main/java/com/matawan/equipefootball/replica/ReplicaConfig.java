@@ -0,0 +1,73 @@
+package com.matawan.equipefootball.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Read/write splitting, enabled by equipe.replica.enabled: read-only transactions are served by the replica at
+ * equipe.replica.url while its lag is below equipe.replica.max-lag-ms, writes go to the spring.datasource primary
+ * The replica is fed by the replication of the database, or by the ReplicaStandIn when equipe.replica.stand-in.enabled is set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "equipe.replica.enabled", havingValue = "true")
+public class ReplicaConfig {
+
+    public ReplicaConfig(@Value("${equipe.sharding.enabled:false}") boolean sharding) {
+        if (sharding) {
+            throw new IllegalStateException("Read replicas are not supported together with sharding");
+        }
+    }
+
+    @Bean
+    public ReplicaRouter replicaRouter(@Value("${equipe.replica.max-lag-ms:1000}") long maxLagMillis) {
+        return new ReplicaRouter(maxLagMillis);
+    }
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(@Value("${equipe.replica.url}") String url, DataSourceProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(properties.determineUsername()).password(properties.determinePassword()).build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource, ReplicaRouter replicaRouter) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaRouter));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaRouter replicaRouter) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(replicaRouter.getMaxLagMillis()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "equipe.replica.stand-in.enabled", havingValue = "true")
+    public ReplicaStandIn replicaStandIn(HikariDataSource primaryDataSource, @Value("${equipe.replica.url}") String url,
+                                         DataSourceProperties properties, ReplicaRouter replicaRouter,
+                                         @Value("${equipe.replica.stand-in.sync-interval-ms:200}") long syncIntervalMillis) {
+        return new ReplicaStandIn(primaryDataSource, url, properties.determineUsername(), properties.determinePassword(),
+                replicaRouter, syncIntervalMillis);
+    }
+}
@@ -0,0 +1,79 @@
+package com.matawan.equipefootball.replica;
+
+import com.matawan.equipefootball.dto.ReplicaRoutingStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses between the primary and the replica for every connection, and counts the decisions
+ *
+ * Read-only transactions go to the replica unless it lags more than max-lag-ms behind the primary, or the client has written
+ * something the replica has not received yet (read-your-writes). Everything else goes to the primary.
+ */
+public class ReplicaRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    enum Target {PRIMARY, REPLICA}
+
+    private final long maxLagMillis;
+
+    // every change committed on the primary before this time is on the replica, 0 until the first synchronization
+    private volatile long syncedUpToMillis;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder readYourWrites = new LongAdder();
+    private final LongAdder replicaLagging = new LongAdder();
+    private final LongAdder replicaReads = new LongAdder();
+
+    public ReplicaRouter(long maxLagMillis) {
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * @param readOnly whether the connection is for a read-only transaction
+     * @param lastWriteMillis the time of the last write of the client, null if it has not written recently
+     * @return where the connection goes
+     */
+    Target route(boolean readOnly, Long lastWriteMillis) {
+        if (!readOnly) {
+            writes.increment();
+            return Target.PRIMARY;
+        }
+        if (lastWriteMillis != null && lastWriteMillis >= syncedUpToMillis) {
+            readYourWrites.increment();
+            return Target.PRIMARY;
+        }
+        if (getLagMillis() > maxLagMillis) {
+            replicaLagging.increment();
+            logger.debug("Replica is {} ms behind, reading from the primary", getLagMillis());
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    /**
+     * Record that the replica holds every change committed on the primary before a time
+     *
+     * @param primaryTimeMillis the time of the state of the primary the replica has received
+     */
+    public void markSynced(long primaryTimeMillis) {
+        syncedUpToMillis = Math.max(syncedUpToMillis, primaryTimeMillis);
+    }
+
+    public long getLagMillis() {
+        return System.currentTimeMillis() - syncedUpToMillis;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    public ReplicaRoutingStatsDto getStats() {
+        return new ReplicaRoutingStatsDto(writes.sum(), readYourWrites.sum(), replicaLagging.sum(), replicaReads.sum(),
+                syncedUpToMillis == 0 ? null : getLagMillis());
+    }
+}
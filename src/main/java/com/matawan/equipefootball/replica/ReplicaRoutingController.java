@@ -0,0 +1,30 @@
+package com.matawan.equipefootball.replica;
+
+import com.matawan.equipefootball.dto.ReplicaRoutingStatsDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/replica")
+@ConditionalOnProperty(name = "equipe.replica.enabled", havingValue = "true")
+public class ReplicaRoutingController {
+
+    private final ReplicaRouter replicaRouter;
+
+    public ReplicaRoutingController(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    /**
+     * Get the number of connections routed to the primary (by reason) and to the replica, and the current lag of the replica
+     *
+     * @return the routing statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ReplicaRoutingStatsDto> getStats() {
+        return ResponseEntity.ok(replicaRouter.getStats());
+    }
+}
@@ -0,0 +1,161 @@
+package com.matawan.equipefootball.replica;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replication stand-in for local setups, where the replica is a second H2 database: the primary is copied to the replica
+ * every sync-interval-ms
+ *
+ * Each copy reads a consistent snapshot of the primary (serializable transaction) and replaces the rows of the replica in a
+ * single transaction, so readers of the replica always see a state the primary has been in. The schema is copied again
+ * when the columns of the primary change. Copying everything is only reasonable for small development databases.
+ */
+public class ReplicaStandIn {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaStandIn.class);
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaRouter router;
+    private final long syncIntervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // guarded by this
+    private String copiedSchema;
+
+    public ReplicaStandIn(DataSource primary, String replicaUrl, String username, String password, ReplicaRouter router, long syncIntervalMillis) {
+        this.primary = primary;
+        this.replica = new DriverManagerDataSource(replicaUrl, username, password);
+        this.router = router;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (syncIntervalMillis <= 0) {
+            return; // synchronized on demand only
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                // the replica stops being read once its lag exceeds max-lag-ms
+                logger.warn("Could not synchronize the replica: {}", e.getMessage());
+            }
+        }, 0, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Copy the current state of the primary to the replica
+     */
+    public synchronized void sync() {
+        long start = System.currentTimeMillis();
+        try (Connection source = primary.getConnection(); Connection target = replica.getConnection()) {
+            source.setAutoCommit(false);
+            source.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE); // one snapshot for every table
+            source.setReadOnly(true);
+            String schema = String.join("\n", query(source, "SELECT TABLE_NAME || '.' || COLUMN_NAME || ' ' || DATA_TYPE"
+                    + " FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = 'PUBLIC' ORDER BY TABLE_NAME, ORDINAL_POSITION"));
+            if (!schema.equals(copiedSchema)) {
+                copySchema(source, target);
+                copiedSchema = schema;
+            }
+            List<String> tables = query(source, "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'");
+            int rows = 0;
+            target.setAutoCommit(false);
+            try (Statement statement = target.createStatement()) {
+                statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                for (String table : tables) {
+                    statement.execute("DELETE FROM \"" + table + "\"");
+                    rows += copyRows(source, target, table);
+                }
+                target.commit();
+                statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            } catch (SQLException e) {
+                target.rollback();
+                throw e;
+            }
+            source.commit();
+            router.markSynced(start);
+            logger.debug("Replica synchronized in {} ms, {} rows", System.currentTimeMillis() - start, rows);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Replica synchronization failed", e);
+        }
+    }
+
+    private void copySchema(Connection source, Connection target) throws SQLException {
+        List<String> statements = query(source, "SCRIPT NODATA");
+        try (Statement statement = target.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : statements) {
+                if (!sql.startsWith("--") && !sql.startsWith("CREATE USER")) {
+                    statement.execute(sql);
+                }
+            }
+        }
+        logger.info("Copied the schema of the primary to the replica");
+    }
+
+    private int copyRows(Connection source, Connection target, String table) throws SQLException {
+        int rows = 0;
+        try (Statement select = source.createStatement(); ResultSet resultSet = select.executeQuery("SELECT * FROM \"" + table + "\"")) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columns = metaData.getColumnCount();
+            List<String> names = new ArrayList<>(columns);
+            for (int column = 1; column <= columns; column++) {
+                names.add("\"" + metaData.getColumnName(column) + "\"");
+            }
+            String insert = String.format("INSERT INTO \"%s\" (%s) VALUES (%s)", table, String.join(", ", names),
+                    String.join(", ", names.stream().map(name -> "?").toList()));
+            try (PreparedStatement statement = target.prepareStatement(insert)) {
+                while (resultSet.next()) {
+                    for (int column = 1; column <= columns; column++) {
+                        statement.setObject(column, resultSet.getObject(column));
+                    }
+                    statement.addBatch();
+                    if (++rows % 500 == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+        }
+        return rows;
+    }
+
+    private List<String> query(Connection connection, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        }
+        return values;
+    }
+}
@@ -1,9 +1,56 @@
 package com.matawan.equipefootball.repository;
 
 import com.matawan.equipefootball.entity.Player;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface PlayerRepository extends JpaRepository<Player, Long> {
+
+    /**
+     * Fetch the players of a position, the position is compared through its dictionary code (indexed)
+     *
+     * @param position the position
+     * @param pageable the page to fetch
+     * @return a page of players
+     */
+    Page<Player> findByPosition(String position, Pageable pageable);
+
+    /**
+     * Fetch the players of several teams in one query
+     *
+     * @param teamIds the ids of the teams
+     * @return the players of the teams, ordered by id
+     */
+    @Query("select p from Player p where p.team.id in :teamIds order by p.id")
+    List<Player> findByTeamIdIn(@Param("teamIds") Collection<Long> teamIds);
+
+    /**
+     * Remove a player from a team with a single delete statement, without loading the roster
+     *
+     * @param playerId the id of the player
+     * @param teamId the id of the team the player belongs to
+     * @return the number of deleted rows (0 if the player does not belong to the team)
+     */
+    @Modifying
+    @Query("delete from Player p where p.id = :playerId and p.team.id = :teamId")
+    int deleteByIdAndTeamId(@Param("playerId") Long playerId, @Param("teamId") Long teamId);
+
+    /**
+     * Remove every player of a team with a single delete statement
+     *
+     * @param teamId the id of the team
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("delete from Player p where p.team.id = :teamId")
+    int deleteByTeamId(@Param("teamId") Long teamId);
 }
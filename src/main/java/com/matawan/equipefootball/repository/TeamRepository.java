@@ -1,9 +1,38 @@
 package com.matawan.equipefootball.repository;
 
 import com.matawan.equipefootball.entity.Team;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface TeamRepository  extends JpaRepository<Team, Long> {
+
+    /**
+     * Fetch the teams written in a range of the change sequence, in sequence order
+     */
+    List<Team> findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(Long since, Long upTo, Pageable pageable);
+
+    /**
+     * Find the id of the team with an acronym, a seek on the unique acronym index
+     */
+    @Query("select t.id from Team t where t.acronym = :acronym")
+    Optional<Long> findIdByAcronym(@Param("acronym") String acronym);
+
+    /**
+     * Record a change to the roster of a team without loading it
+     *
+     * @param id the id of the team
+     * @param changeSeq the sequence number of the change
+     * @return the number of updated rows (0 if the team does not exist)
+     */
+    @Modifying
+    @Query("update Team t set t.changeSeq = :changeSeq where t.id = :id")
+    int updateChangeSeq(@Param("id") Long id, @Param("changeSeq") Long changeSeq);
 }
@@ -0,0 +1,17 @@
+package com.matawan.equipefootball.repository;
+
+import com.matawan.equipefootball.entity.TeamTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TeamTombstoneRepository extends JpaRepository<TeamTombstone, Long> {
+
+    /**
+     * Fetch the deletions in a range of the change sequence, in sequence order
+     */
+    List<TeamTombstone> findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(Long since, Long upTo, Pageable pageable);
+}
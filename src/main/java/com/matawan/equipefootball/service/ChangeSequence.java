@@ -0,0 +1,114 @@
+package com.matawan.equipefootball.service;
+
+import com.matawan.equipefootball.sharding.Shards;
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Monotonic sequence numbering every write to a team, backed by a database sequence
+ * Numbers are allocated before the writing transaction commits, so a transaction holding a lower number can commit after
+ * a higher one is visible. The numbers of the transactions still in flight are tracked, and readers only consider the
+ * changes below the lowest of them: nothing can appear later behind a token handed to a client. A number is tracked
+ * before any reader can compute a bound above it (the allocations share a lock the readers take exclusively).
+ * The tracking covers the transactions of this instance.
+ * With several shards, the sequence of the home shard numbers the writes of every shard.
+ */
+@Component
+public class ChangeSequence {
+
+    static final String SEQUENCE_NAME = "team_change_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // numbers allocated by transactions that have not completed yet
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+    // held shared from the allocation of a number to its tracking, exclusively to compute a bound
+    private final ReadWriteLock allocation = new ReentrantReadWriteLock();
+
+    public ChangeSequence(Shards shards) {
+        this.jdbcTemplate = shards.getHomeJdbcTemplate();
+    }
+
+    @PostConstruct
+    public void createSequence() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE_NAME);
+    }
+
+    /**
+     * Allocate the next number of the sequence for a write in the current transaction
+     *
+     * @return the allocated number
+     */
+    public long next() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + SEQUENCE_NAME, Long.class);
+        }
+        Long value;
+        allocation.readLock().lock();
+        try {
+            value = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + SEQUENCE_NAME, Long.class);
+            pending.add(value);
+        } finally {
+            allocation.readLock().unlock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                pending.remove(value);
+            }
+        });
+        return value;
+    }
+
+    /**
+     * Allocate several numbers of the sequence for the writes of the current transaction (a snapshot restore)
+     *
+     * @param count how many numbers to allocate
+     * @return the allocated numbers, in increasing order
+     */
+    public long[] next(int count) {
+        long[] values;
+        allocation.readLock().lock();
+        try {
+            values = jdbcTemplate.queryForList("SELECT NEXT VALUE FOR " + SEQUENCE_NAME + " FROM SYSTEM_RANGE(1, ?)", Long.class, count)
+                    .stream().mapToLong(Long::longValue).sorted().toArray();
+            for (long value : values) {
+                pending.add(value);
+            }
+        } finally {
+            allocation.readLock().unlock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (long value : values) {
+                    pending.remove(value);
+                }
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Highest number below which every change is either committed or rolled back
+     *
+     * @return the upper bound readers may safely expose
+     */
+    public long stableUpperBound() {
+        // waits for the numbers being allocated, they may be lower than numbers already committed
+        allocation.writeLock().lock();
+        try {
+            Long lowestPending = pending.ceiling(Long.MIN_VALUE); // unlike first(), does not throw when emptied concurrently
+            return lowestPending == null ? Long.MAX_VALUE : lowestPending - 1;
+        } finally {
+            allocation.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.matawan.equipefootball.service;
+
+import com.matawan.equipefootball.exception.ConflictException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a write in its own transaction and retries it when it loses an optimistic locking race
+ * Each attempt re-reads the entity, so short conflicts between concurrent editors resolve themselves without row locks
+ * The wait between attempts grows exponentially (with jitter so the competing writers do not retry in lockstep) up to a bound
+ */
+@Component
+public class OptimisticLockRetrier {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticLockRetrier.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public OptimisticLockRetrier(PlatformTransactionManager transactionManager,
+                                 @Value("${equipe.optimistic-lock.max-attempts:5}") int maxAttempts,
+                                 @Value("${equipe.optimistic-lock.initial-backoff-ms:5}") long initialBackoffMillis,
+                                 @Value("${equipe.optimistic-lock.max-backoff-ms:100}") long maxBackoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    /**
+     * Execute the action in a transaction, retrying it on optimistic locking failures
+     *
+     * @param description a description of the modified resource, used in logs and in the conflict message
+     * @param action the action to run, it must read the current state of the entity itself so a retry sees the latest version
+     * @return the result of the action
+     * @throws ConflictException if every attempt lost the race
+     */
+    public <T> T execute(String description, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // we joined a transaction started by the caller: a failed attempt marks it rollback-only, so it cannot be retried here
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                throw conflict(description);
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    logger.warn("Giving up on {} after {} optimistic locking conflicts", description, attempt);
+                    throw conflict(description);
+                }
+                long backoff = backoffMillis(attempt);
+                logger.info("Optimistic locking conflict on {} (attempt {}/{}), retrying in {} ms", description, attempt, maxAttempts, backoff);
+                sleep(backoff, description);
+            }
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter: a random wait between 0 and min(max, initial * 2^(attempt - 1))
+     */
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void sleep(long millis, String description) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict(description);
+        }
+    }
+
+    private ConflictException conflict(String description) {
+        return new ConflictException(String.format("%s was modified concurrently, please retry", description));
+    }
+}
@@ -0,0 +1,153 @@
+package com.matawan.equipefootball.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated fork-join pool converting large pages and exports by chunks, in parallel but in order
+ *
+ * The thread feeding a pipeline loads each chunk (on its own thread, so in its transaction) and hands its conversion to
+ * the pool, then loads the next chunk while the previous ones are converted. The results are consumed in submission
+ * order on the feeding thread. At most twice the parallelism of chunks are pending per pipeline, the feeding thread
+ * waits for the oldest beyond that, and the pool threads are shared by all the requests so they do not multiply the
+ * threads competing for the cores. Lists of at most chunk-size elements are converted on the calling thread.
+ */
+@Component
+public class ParallelMapping {
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    public ParallelMapping(@Value("${equipe.mapping.parallelism:0}") int parallelism,
+                           @Value("${equipe.mapping.chunk-size:250}") int chunkSize) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("dto-mapping-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.chunkSize = chunkSize;
+        this.maxInFlight = 2 * threads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Convert a list by chunks: each chunk is loaded on the calling thread, then converted on the pool
+     *
+     * @param elements the elements to convert
+     * @param load loads what the conversion of a chunk needs, on the calling thread (if it fails, the pending conversions
+     *             are cancelled and its exception is rethrown)
+     * @param convert converts a chunk with what was loaded for it, on a thread of the pool
+     * @return the converted elements, in the order of the elements
+     */
+    public <T, L, R> List<R> map(List<T> elements, Function<List<T>, L> load, BiFunction<List<T>, L, List<R>> convert) {
+        if (elements.size() <= chunkSize) {
+            return convert.apply(elements, load.apply(elements));
+        }
+        List<R> results = new ArrayList<>(elements.size());
+        Pipeline<List<R>> pipeline = pipeline(results::addAll);
+        for (int start = 0; start < elements.size(); start += chunkSize) {
+            List<T> chunk = elements.subList(start, Math.min(start + chunkSize, elements.size()));
+            L loaded;
+            try {
+                loaded = load.apply(chunk);
+            } catch (RuntimeException | Error e) {
+                pipeline.cancel();
+                throw e;
+            }
+            pipeline.submit(() -> convert.apply(chunk, loaded));
+        }
+        pipeline.finish();
+        return results;
+    }
+
+    /**
+     * Start a pipeline whose results are consumed in submission order, on the thread feeding it
+     *
+     * @param consumer the consumer of the results
+     * @return the pipeline
+     */
+    public <R> Pipeline<R> pipeline(Consumer<R> consumer) {
+        return new Pipeline<>(consumer);
+    }
+
+    /**
+     * Tasks converted on the pool, fed and consumed by a single thread
+     * A failed task fails the pipeline: its exception is rethrown as is by submit or finish and the pending tasks are
+     * cancelled.
+     */
+    public final class Pipeline<R> {
+
+        private final Consumer<R> consumer;
+        private final ArrayDeque<CompletableFuture<R>> pending = new ArrayDeque<>();
+
+        private Pipeline(Consumer<R> consumer) {
+            this.consumer = consumer;
+        }
+
+        public void submit(Supplier<R> task) {
+            if (pending.size() >= maxInFlight) {
+                consumeOldest();
+            }
+            pending.add(CompletableFuture.supplyAsync(task, pool));
+        }
+
+        /**
+         * Wait for the pending tasks and consume their results
+         */
+        public void finish() {
+            while (!pending.isEmpty()) {
+                consumeOldest();
+            }
+        }
+
+        /**
+         * Cancel the pending tasks, when the feeding thread fails
+         */
+        public void cancel() {
+            pending.forEach(task -> task.cancel(false));
+            pending.clear();
+        }
+
+        private void consumeOldest() {
+            R result;
+            try {
+                result = pending.poll().join();
+            } catch (CompletionException e) {
+                cancel();
+                // rethrow the exception of the task as is, like if it ran on the calling thread
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+            consumer.accept(result);
+        }
+    }
+}
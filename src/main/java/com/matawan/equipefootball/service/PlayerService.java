@@ -1,18 +1,62 @@
 package com.matawan.equipefootball.service;
 
 import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamPlayerDto;
 import com.matawan.equipefootball.entity.Player;
+import com.matawan.equipefootball.repository.PlayerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Service
 public class PlayerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PlayerService.class);
+
+    private final PlayerRepository playerRepository;
+    private final PositionDictionary positionDictionary;
+
+    public PlayerService(PlayerRepository playerRepository, PositionDictionary positionDictionary) {
+        this.playerRepository = playerRepository;
+        this.positionDictionary = positionDictionary;
+    }
+
+    /**
+     * Get the players of a position across all the teams, with an indexed lookup on the position code
+     *
+     * @param position the position, case is ignored
+     * @param page the page number
+     * @param size the number of items per page
+     * @return a paginated list of players ordered by id, empty if nobody ever played the position
+     */
+    @Transactional(readOnly = true)
+    public Page<TeamPlayerDto> getPlayersByPosition(String position, int page, int size) {
+        logger.info("Fetching players with position {}, page {}, size {}...", position, page, size);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+        if (positionDictionary.getCode(position) == null) {
+            logger.info("Unknown position: {}", position);
+            return Page.empty(pageable);
+        }
+        Page<TeamPlayerDto> result = playerRepository.findByPosition(position, pageable)
+                .map(player -> new TeamPlayerDto(player.getId(), player.getName(), player.getPosition(),
+                        player.getTeam() != null ? player.getTeam().getId() : null)); // the id of the proxy, the team is not loaded
+        logger.info("Fetched {} players with position {}", result.getTotalElements(), position);
+        return result;
+    }
+
     public PlayerDto convertToDto(Player player) {
         return new PlayerDto(player.getId(), player.getName(), player.getPosition());
     }
 
     public Player convertToEntity(PlayerDto playerDto) {
-        return new Player(playerDto.getId(), playerDto.getName(), playerDto.getPosition());
+        // new positions are added to the dictionary here rather than while Hibernate flushes the player
+        Short code = positionDictionary.register(playerDto.getPosition());
+        return new Player(playerDto.getId(), playerDto.getName(), positionDictionary.getName(code));
     }
 }
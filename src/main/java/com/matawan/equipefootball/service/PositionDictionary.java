@@ -0,0 +1,160 @@
+package com.matawan.equipefootball.service;
+
+import com.matawan.equipefootball.sharding.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the player_position dictionary, mapping the position texts to their codes and back
+ *
+ * The dictionary is read once on first use (it holds a handful of rows). A new position is inserted in its own transaction,
+ * so the code stays valid even if the transaction of the player rolls back, and an insert racing with another one
+ * (or another instance) simply reads the winner's code.
+ * With several shards, the dictionary lives in the home shard and is written outside of the transaction of the player.
+ */
+@Component
+public class PositionDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(PositionDictionary.class);
+
+    private final Shards shards;
+    private final JdbcTemplate jdbcTemplate;
+    // the transaction manager is created with the entity manager factory, which needs the position converter first
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    private final Map<String, Entry> byKey = new ConcurrentHashMap<>();
+    private final Map<Short, Entry> byCode = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public PositionDictionary(Shards shards, ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.shards = shards;
+        this.jdbcTemplate = shards.getHomeJdbcTemplate();
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Get the code of a position, adding it to the dictionary if it is new
+     *
+     * @param position the text of the position
+     * @return the code, null for a missing or blank position
+     */
+    public Short register(String position) {
+        String key = key(position);
+        if (key == null) {
+            return null;
+        }
+        Entry entry = find(key);
+        if (entry == null) {
+            entry = insert(position.trim(), key);
+        }
+        return entry.code();
+    }
+
+    /**
+     * Get the code of a known position, without adding it
+     *
+     * @param position the text of the position
+     * @return the code, null if the position is not in the dictionary
+     */
+    public Short getCode(String position) {
+        String key = key(position);
+        Entry entry = key == null ? null : find(key);
+        return entry == null ? null : entry.code();
+    }
+
+    /**
+     * Get the canonical text of a position code, the same String instance is returned for every call
+     *
+     * @param code the code of the position
+     * @return the text, null for a null code
+     */
+    public String getName(Short code) {
+        if (code == null) {
+            return null;
+        }
+        ensureLoaded();
+        Entry entry = byCode.get(code);
+        if (entry == null) {
+            reload(); // added by another instance
+            entry = byCode.get(code);
+        }
+        if (entry == null) {
+            throw new IllegalStateException("Unknown position code " + code);
+        }
+        return entry.name();
+    }
+
+    public int size() {
+        ensureLoaded();
+        return byCode.size();
+    }
+
+    private Entry find(String key) {
+        ensureLoaded();
+        return byKey.get(key);
+    }
+
+    private synchronized Entry insert(String name, String key) {
+        Entry entry = byKey.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        if (shards.isSharded()) {
+            insertRow(name, key); // the home template is not bound to the transaction of the shard, the insert commits on its own
+        } else {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager.getObject());
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transactionTemplate.executeWithoutResult(status -> insertRow(name, key));
+        }
+        reload();
+        return byKey.get(key);
+    }
+
+    private void insertRow(String name, String key) {
+        try {
+            jdbcTemplate.update("INSERT INTO player_position (name, name_key) VALUES (?, ?)", name, key);
+            logger.info("Added the position '{}' to the dictionary", name);
+        } catch (DuplicateKeyException e) {
+            logger.info("Position '{}' was added concurrently", name);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    private synchronized void reload() {
+        jdbcTemplate.query("SELECT id, name, name_key FROM player_position", resultSet -> {
+            short code = resultSet.getShort("id");
+            if (!byCode.containsKey(code)) {
+                Entry entry = new Entry(code, resultSet.getString("name"));
+                byCode.put(code, entry);
+                byKey.put(resultSet.getString("name_key"), entry);
+            }
+        });
+        loaded = true;
+    }
+
+    private static String key(String position) {
+        if (position == null || position.isBlank()) {
+            return null;
+        }
+        return position.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(short code, String name) {
+    }
+}
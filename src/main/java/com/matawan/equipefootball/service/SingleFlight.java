@@ -0,0 +1,76 @@
+package com.matawan.equipefootball.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader on its own thread,
+ * the callers arriving while it runs wait for its result (or its exception) instead of running the loader again
+ * Nothing is cached, once the load completes the next caller starts a new one
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the loaded values
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Load the value of a key, sharing the load with the concurrent callers for the same key
+     *
+     * @param key the key to load
+     * @param loader the loader, only called if no load of the key is in flight
+     * @return the loaded value
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = loader.get();
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Detach the load in flight for a key (if any), so the callers arriving from now on start a new load
+     * Used after a write: a load started before the write may return the old state
+     *
+     * @param key the key
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Detach every load in flight
+     */
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    private V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            // rethrow the exception of the loader as is, so waiters get the same error as the caller that ran it
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
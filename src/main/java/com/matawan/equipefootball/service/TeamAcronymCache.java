@@ -0,0 +1,46 @@
+package com.matawan.equipefootball.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small cache of the ids of the teams recently looked up by acronym (least recently used entries are evicted)
+ *
+ * An entry is only a hint: the team is then read by id, through the coherent team cache, and the entry is dropped when
+ * that team no longer has the acronym. Renames and deletes, local or not, need no invalidation.
+ */
+@Component
+public class TeamAcronymCache {
+
+    private final Map<String, Long> ids;
+
+    public TeamAcronymCache(@Value("${equipe.cache.acronyms.max-entries:1000}") int maxEntries) {
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the id of the team last found with the acronym, null if not cached
+     */
+    public synchronized Long get(String acronym) {
+        return ids.get(acronym);
+    }
+
+    public synchronized void put(String acronym, Long id) {
+        ids.put(acronym, id);
+    }
+
+    /**
+     * Drop an entry found stale, unless it was replaced in the meantime
+     */
+    public synchronized void remove(String acronym, Long id) {
+        ids.remove(acronym, id);
+    }
+}
@@ -0,0 +1,187 @@
+package com.matawan.equipefootball.service;
+
+import com.matawan.equipefootball.dto.TeamDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache of the teams read by id (least recently used entries are evicted)
+ *
+ * Entries are invalidated by the local writes and by the writes of the other instances found in the change log. A
+ * logged write that carries the version of the team only evicts an entry of an older version (the poll may come after
+ * the team was loaded again), and a load older than that version is not cached.
+ * The cache is only trusted while the change log is polled: when the last successful poll started more than
+ * max-staleness-ms ago, the cache is emptied and bypassed, so an entry is never staler than that bound.
+ * When the reads are served by a replica, a load right after a write may still read the previous state: a team is not
+ * cached again until the maximum replica lag has passed since its last invalidation.
+ */
+@Component
+public class TeamCache {
+
+    private final int maxEntries;
+    private final long maxStalenessNanos;
+    private final long writeHoldOffNanos;
+
+    // guarded by this
+    private final Map<Long, TeamDto> entries;
+    // time of the last invalidation of the recently invalidated teams, oldest first (only with a replica)
+    private final LinkedHashMap<Long, Long> recentInvalidations = new LinkedHashMap<>();
+    // latest versions written by the other instances, oldest write first
+    private final LinkedHashMap<Long, Long> remoteVersions;
+    private long lastInvalidateAllNanos;
+    // incremented by every invalidation, a load that overlaps an invalidation is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile long coherentUntilNanos;
+
+    public TeamCache(@Value("${equipe.cache.teams.max-entries:10000}") int maxEntries,
+                     @Value("${equipe.cache.teams.max-staleness-ms:2000}") long maxStalenessMillis,
+                     @Value("#{${equipe.replica.enabled:false} ? ${equipe.replica.max-lag-ms:1000} : 0}") long writeHoldOffMillis) {
+        this.maxEntries = maxEntries;
+        this.maxStalenessNanos = maxStalenessMillis * 1_000_000;
+        this.writeHoldOffNanos = writeHoldOffMillis * 1_000_000;
+        this.lastInvalidateAllNanos = System.nanoTime() - writeHoldOffNanos;
+        this.coherentUntilNanos = System.nanoTime() + maxStalenessNanos;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TeamDto> eldest) {
+                return size() > TeamCache.this.maxEntries;
+            }
+        };
+        this.remoteVersions = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                if (size() > TeamCache.this.maxEntries) {
+                    invalidations.incrementAndGet(); // a load still in flight may be older than the forgotten version
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cached team, null if it is not cached or if the cache may be stale
+     */
+    public TeamDto get(Long id) {
+        if (!isCoherent()) {
+            invalidateAll();
+            return null;
+        }
+        synchronized (this) {
+            return entries.get(id);
+        }
+    }
+
+    /**
+     * Get the stamp to pass to put, taken before loading a team
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Cache a loaded team, unless an invalidation happened since the load started (it may have read the old state)
+     *
+     * @param id the id of the team
+     * @param team the loaded team
+     * @param stamp the stamp taken before the load
+     */
+    public void put(Long id, TeamDto team, long stamp) {
+        synchronized (this) {
+            if (invalidations.get() == stamp && isCoherent() && !isHeldOff(id) && !isOlderThanRemoteWrite(id, team)) {
+                entries.put(id, team);
+            }
+        }
+    }
+
+    public void invalidate(Long id) {
+        synchronized (this) {
+            invalidations.incrementAndGet();
+            evict(id);
+        }
+    }
+
+    /**
+     * Invalidate a team written by another instance
+     *
+     * @param id the id of the team
+     * @param version the version of the team after the write, null if unknown (deletes and roster changes)
+     */
+    public void invalidate(Long id, Long version) {
+        if (version == null) {
+            invalidate(id);
+            return;
+        }
+        synchronized (this) {
+            remoteVersions.merge(id, version, Math::max);
+            TeamDto cached = entries.get(id);
+            if (cached == null || cached.getVersion() == null || cached.getVersion() < version) {
+                evict(id);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (this) {
+            invalidations.incrementAndGet();
+            entries.clear();
+            lastInvalidateAllNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Record a successful poll of the change log: every change committed before it started has been invalidated
+     *
+     * @param pollStartNanos the System.nanoTime() at which the poll started
+     */
+    public void confirmCoherent(long pollStartNanos) {
+        coherentUntilNanos = pollStartNanos + maxStalenessNanos;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove a cached team, guarded by this
+     */
+    private void evict(Long id) {
+        entries.remove(id);
+        if (writeHoldOffNanos > 0) {
+            recentInvalidations.remove(id);
+            recentInvalidations.put(id, System.nanoTime());
+        }
+    }
+
+    /**
+     * Whether a loaded team misses a write of another instance, guarded by this
+     */
+    private boolean isOlderThanRemoteWrite(Long id, TeamDto team) {
+        Long remoteVersion = remoteVersions.get(id);
+        return remoteVersion != null && (team.getVersion() == null || team.getVersion() < remoteVersion);
+    }
+
+    /**
+     * Whether a team was invalidated too recently for a load to be sure to see the change, guarded by this
+     */
+    private boolean isHeldOff(Long id) {
+        if (writeHoldOffNanos == 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        Iterator<Long> times = recentInvalidations.values().iterator();
+        while (times.hasNext() && now - times.next() >= writeHoldOffNanos) {
+            times.remove();
+        }
+        return now - lastInvalidateAllNanos < writeHoldOffNanos || recentInvalidations.containsKey(id);
+    }
+
+    boolean isCoherent() {
+        return System.nanoTime() - coherentUntilNanos < 0;
+    }
+}
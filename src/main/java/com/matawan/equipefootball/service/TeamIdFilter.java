@@ -0,0 +1,265 @@
+package com.matawan.equipefootball.service;
+
+import com.matawan.equipefootball.event.TeamInsertedEvent;
+import com.matawan.equipefootball.sharding.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers the lookups of team ids that do not exist without querying the database: a Bloom filter over the ids of the
+ * teams, and a bounded cache of the ids recently found missing (deleted teams and false positives of the filter)
+ *
+ * A Bloom filter has no false negatives as long as every id is added before its team can be read: ids are added when
+ * the team is inserted (before the commit, a rolled back insert only leaves a false positive, and a miss recorded before
+ * the commit is forgotten once it is committed) and the ids written by the other instances when the change log is
+ * polled. Deleted ids stay in the filter. Like the team cache, nothing is answered from the filter while the change log
+ * is not polled, and ids above the highest known id (created by another instance since the last poll) always go to the
+ * database.
+ */
+@Component
+public class TeamIdFilter implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamIdFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final TeamCache teamCache;
+    private final int expectedTeams;
+    private final double falsePositiveRate;
+    private final int maxMissingEntries;
+
+    // adds hold the read lock, a rebuild holds the write lock while it swaps the filters
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Bits bits;
+    private Bits building; // guarded by lock, receives the adds made during a rebuild
+    private final AtomicLong highestId = new AtomicLong();
+    // incremented by every add, a miss that overlaps an add is not cached
+    private final AtomicLong adds = new AtomicLong();
+    // guarded by itself
+    private final Map<Long, Boolean> missing;
+
+    public TeamIdFilter(JdbcTemplate jdbcTemplate, Shards shards, TeamCache teamCache,
+                        @Value("${equipe.team-id-filter.expected-teams:100000}") int expectedTeams,
+                        @Value("${equipe.team-id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                        @Value("#{${equipe.replica.enabled:false} ? 0 : ${equipe.team-id-filter.missing-entries:10000}}") int maxMissingEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.teamCache = teamCache;
+        this.expectedTeams = expectedTeams;
+        this.falsePositiveRate = falsePositiveRate;
+        // a miss read from a lagging replica says nothing about the primary, misses are not cached with a replica
+        this.maxMissingEntries = maxMissingEntries;
+        this.missing = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > TeamIdFilter.this.maxMissingEntries;
+            }
+        };
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Reload the ids of all the teams, sized for twice the current number of teams
+     * An insert that is still uncommitted when the table is read is only kept if it was added after the rebuild started,
+     * rebuilds are meant for startup and restores.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        long count = shards.scatter(shards.all(), shard -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM team", Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+        Bits rebuilt = new Bits((int) Math.min(Math.max(expectedTeams, 2 * count), Integer.MAX_VALUE / 64), falsePositiveRate);
+        lock.writeLock().lock();
+        try {
+            building = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        shards.forEach(() -> jdbcTemplate.query("SELECT id FROM team", resultSet -> {
+            long id = resultSet.getLong(1);
+            rebuilt.add(id);
+            highestId.accumulateAndGet(id, Math::max);
+        }));
+        lock.writeLock().lock();
+        try {
+            bits = rebuilt;
+            building = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        synchronized (missing) {
+            missing.clear();
+        }
+        logger.info("Team id filter built in {} ms with {} teams ({} bits, {} hashes)", (System.nanoTime() - start) / 1_000_000,
+                count, rebuilt.size(), rebuilt.hashes);
+    }
+
+    /**
+     * Record the id of a team that exists (or is being inserted)
+     *
+     * @param id the id of the team
+     */
+    public void add(long id) {
+        lock.readLock().lock();
+        try {
+            if (bits != null) {
+                bits.add(id);
+            }
+            if (building != null) {
+                building.add(id);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        highestId.accumulateAndGet(id, Math::max);
+        adds.incrementAndGet();
+        if (maxMissingEntries > 0) {
+            synchronized (missing) {
+                missing.remove(id);
+            }
+        }
+    }
+
+    /**
+     * @return true if the team certainly does not exist, false if the database has to be asked
+     */
+    public boolean isKnownMissing(long id) {
+        Bits current = bits;
+        if (current == null || id > highestId.get() || !teamCache.isCoherent()) {
+            return false;
+        }
+        if (!current.mightContain(id)) {
+            return true;
+        }
+        if (maxMissingEntries == 0) {
+            return false;
+        }
+        synchronized (missing) {
+            return missing.containsKey(id);
+        }
+    }
+
+    /**
+     * Get the stamp to pass to recordMissing, taken before looking the team up
+     */
+    public long stamp() {
+        return adds.get();
+    }
+
+    /**
+     * Remember an id the database did not find, unless an id was added since the lookup started (it may be that one)
+     *
+     * @param id the id of the team
+     * @param stamp the stamp taken before the lookup
+     */
+    public void recordMissing(long id, long stamp) {
+        if (maxMissingEntries == 0) {
+            return;
+        }
+        synchronized (missing) {
+            if (adds.get() == stamp) {
+                missing.put(id, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Add the id of a team inserted through JPA to the filter, before the insert is committed
+     *
+     * @param event the insert
+     */
+    @EventListener
+    public void onTeamInserted(TeamInsertedEvent event) {
+        add(event.getTeamId());
+    }
+
+    /**
+     * Forget that the id of an inserted team was found missing: a lookup between the insert and its commit does not see
+     * the team, and its miss is not prevented by the stamp since the id was added before the lookup
+     *
+     * @param event the committed insert
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamInsertCommitted(TeamInsertedEvent event) {
+        if (maxMissingEntries == 0) {
+            return;
+        }
+        synchronized (missing) {
+            adds.incrementAndGet(); // a lookup still running may have missed the uncommitted insert too
+            missing.remove(event.getTeamId());
+        }
+    }
+
+    /**
+     * Bit array of the filter, the bit indexes of an id are derived from a 64-bit mix of the id (double hashing)
+     */
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashes;
+
+        private Bits(int expectedEntries, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+            this.bitCount = words.length() * 64L;
+            this.hashes = (int) Math.max(1, Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        }
+
+        private void add(long id) {
+            long hash1 = mix(id);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long index = Math.floorMod(hash1 + i * hash2, bitCount);
+                long mask = 1L << index;
+                int word = (int) (index >>> 6);
+                long current = words.get(word);
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    current = words.get(word);
+                }
+            }
+        }
+
+        private boolean mightContain(long id) {
+            long hash1 = mix(id);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long index = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long size() {
+            return bitCount;
+        }
+
+        // finalizer of MurmurHash3, consecutive ids are spread over the whole array
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
@@ -1,20 +1,49 @@
 package com.matawan.equipefootball.service;
 
 import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamBatchDto;
+import com.matawan.equipefootball.dto.TeamDeltaDto;
 import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.TeamPatchDto;
 import com.matawan.equipefootball.entity.Player;
 import com.matawan.equipefootball.entity.Team;
+import com.matawan.equipefootball.entity.TeamTombstone;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import com.matawan.equipefootball.exception.ConflictException;
 import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.repository.PlayerRepository;
 import com.matawan.equipefootball.repository.TeamRepository;
+import com.matawan.equipefootball.repository.TeamTombstoneRepository;
+import com.matawan.equipefootball.sharding.Shards;
+import com.matawan.equipefootball.sharding.SortedMerge;
+import com.matawan.equipefootball.timing.RequestTiming;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,17 +53,56 @@ public class TeamService {
 
 
     private final TeamRepository teamRepository;
+    private final PlayerRepository playerRepository;
     private final PlayerService playerService;
+    private final OptimisticLockRetrier optimisticLockRetrier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChangeSequence changeSequence;
+    private final TeamTombstoneRepository tombstoneRepository;
+    private final TeamCache teamCache;
+    private final TeamIdFilter teamIdFilter;
+    private final TeamAcronymCache teamAcronymCache;
+    private final ParallelMapping parallelMapping;
+    private final Shards shards;
+    // read-only transaction of the loads shared by concurrent readers and of the shard queries, only the thread running the load holds a connection
+    private final TransactionTemplate readOnlyTransaction;
+
+    // concurrent identical reads share a single load (by team id and by list query)
+    private final SingleFlight<Long, TeamDto> teamLoads = new SingleFlight<>();
+    private final SingleFlight<TeamsQuery, Page<TeamDto>> teamsQueryLoads = new SingleFlight<>();
 
     private static final List<String> SORT_FIELDS = List.of("name", "acronym", "budget");
 
-    public TeamService(TeamRepository teamRepository, PlayerService playerService) {
+    // upper bound of ids in a multi-get, keeps the IN lists and the response size reasonable
+    public static final int MAX_BATCH_IDS = 500;
+
+    // with several shards, every shard returns all the teams up to the end of the requested page, deeper pages are refused
+    public static final int MAX_SHARDED_PAGE_END = 10_000;
+
+    public TeamService(TeamRepository teamRepository, PlayerRepository playerRepository, PlayerService playerService,
+                       OptimisticLockRetrier optimisticLockRetrier, ApplicationEventPublisher eventPublisher,
+                       ChangeSequence changeSequence, TeamTombstoneRepository tombstoneRepository, TeamCache teamCache,
+                       TeamIdFilter teamIdFilter, TeamAcronymCache teamAcronymCache, ParallelMapping parallelMapping,
+                       Shards shards, PlatformTransactionManager transactionManager) {
         this.teamRepository = teamRepository;
+        this.playerRepository = playerRepository;
         this.playerService = playerService;
+        this.optimisticLockRetrier = optimisticLockRetrier;
+        this.eventPublisher = eventPublisher;
+        this.changeSequence = changeSequence;
+        this.tombstoneRepository = tombstoneRepository;
+        this.teamCache = teamCache;
+        this.teamIdFilter = teamIdFilter;
+        this.teamAcronymCache = teamAcronymCache;
+        this.parallelMapping = parallelMapping;
+        this.shards = shards;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
-     * Get a team by its id
+     * Get a team by its id, from the local cache when possible
+     * Ids that do not exist are mostly answered by the id filter, without querying the database
      *
      * @param id the id of the team
      * @return the team with the given id
@@ -42,12 +110,59 @@ public class TeamService {
      */
     public TeamDto getTeamById(Long id) {
         logger.info("Fetching team with id {}...", id);
-        Team team = teamRepository.findById(id).orElseThrow(() -> {
-            logger.error("Team with id {} not found", id);
-            return new ResourceNotFoundException(String.format("Team with id %d not found", id));
-        });
-        logger.info("Team with id {} found: {}", id, team.toString());
-        return convertToDto(team);
+        if (teamIdFilter.isKnownMissing(id)) {
+            throw teamNotFound(id);
+        }
+        TeamDto cached = teamCache.get(id);
+        if (cached != null) {
+            logger.info("Team with id {} found in the cache", id);
+            return cached;
+        }
+        return teamLoads.execute(id, () -> shards.callOn(shards.shardOf(id), () -> readOnlyTransaction.execute(status -> {
+            long stamp = teamCache.stamp();
+            long missStamp = teamIdFilter.stamp();
+            Team team = teamRepository.findById(id).orElse(null);
+            if (team == null) {
+                teamIdFilter.recordMissing(id, missStamp);
+                throw teamNotFound(id);
+            }
+            logger.info("Team with id {} found: {}", id, team.getName());
+            TeamDto teamDto = convertToDtos(List.of(team)).get(0);
+            // a read inside a write transaction may see uncommitted changes, it is not cached
+            if (!TransactionSynchronizationManager.isActualTransactionActive() || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                teamCache.put(id, teamDto, stamp);
+            }
+            return teamDto;
+        })));
+    }
+
+    /**
+     * Get a team by its acronym
+     * The id is found with a seek on the unique acronym index, or from the acronym cache, and the team is then read by id
+     * (from the team cache when possible)
+     *
+     * @param acronym the acronym of the team
+     * @return the team with the given acronym
+     * @throws ResourceNotFoundException if no team has the given acronym
+     */
+    public TeamDto getTeamByAcronym(String acronym) {
+        logger.info("Fetching team with acronym {}...", acronym);
+        Long cachedId = teamAcronymCache.get(acronym);
+        if (cachedId != null) {
+            TeamDto team = findTeamWithAcronym(cachedId, acronym);
+            if (team != null) {
+                return team;
+            }
+            teamAcronymCache.remove(acronym, cachedId); // renamed or deleted since it was cached
+        }
+        Long id = findTeamIdByAcronym(acronym);
+        TeamDto team = id == null ? null : findTeamWithAcronym(id, acronym);
+        if (team == null) {
+            logger.debug("Team with acronym {} not found", acronym);
+            throw new ResourceNotFoundException("Team not found with acronym " + acronym);
+        }
+        teamAcronymCache.put(acronym, id);
+        return team;
     }
 
     /**
@@ -61,6 +176,10 @@ public class TeamService {
      */
     public Page<TeamDto> getTeams(int page, int size, List<String> sortBy) {
         logger.info("Fetching teams with page {}, size {}, sortBy: {}...", page, size, sortBy);
+        return teamsQueryLoads.execute(new TeamsQuery(page, size, sortBy), () -> loadTeams(page, size, sortBy));
+    }
+
+    private Page<TeamDto> loadTeams(int page, int size, List<String> sortBy) {
         Pageable pageable;
         // handle the case when sortBy is null by providing a default sorting criterion
         if (sortBy == null || sortBy.isEmpty()) {
@@ -68,26 +187,427 @@ public class TeamService {
             logger.info("No sorting criteria provided, fetching teams without sorting.");
             pageable = PageRequest.of(page, size); // No sorting
         } else {
-            // apply sorting criteria if sortBy is provided
-            pageable = PageRequest.of(page, size, Sort.by(getSortOrders(sortBy)));
+            // apply sorting criteria if sortBy is provided, the id breaks the ties so the order is stable across pages
+            pageable = PageRequest.of(page, size, Sort.by(getSortOrders(sortBy)).and(Sort.by("id")));
         }
-        Page<TeamDto> result = teamRepository.findAll(pageable).map(this::convertToDto);
+        Page<TeamDto> result = shards.isSharded() ? loadTeamsFromShards(pageable) : readOnlyTransaction.execute(status -> findTeams(pageable));
         logger.info("Fetched {} teams", result.getTotalElements());
         return result;
     }
 
+    /**
+     * Scatter-gather of a page: every shard returns its teams up to the end of the page in the requested order, and the
+     * sorted lists are merged to find the teams of the page. The total is the sum of the shard totals.
+     * Without sorting criteria the teams are returned in id order.
+     */
+    private Page<TeamDto> loadTeamsFromShards(Pageable pageable) {
+        long end = pageable.getOffset() + pageable.getPageSize();
+        if (end > MAX_SHARDED_PAGE_END) {
+            logger.error("Page ending at {} is too deep for a sharded query", end);
+            throw new IllegalArgumentException(String.format("Pages ending after the first %d teams are not supported", MAX_SHARDED_PAGE_END));
+        }
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by("id");
+        Pageable shardPage = PageRequest.of(0, (int) end, sort);
+        List<Page<TeamDto>> pages = shards.scatter(shards.all(), shard -> readOnlyTransaction.execute(status -> findTeams(shardPage)));
+        List<TeamDto> content = SortedMerge.merge(pages.stream().map(Page::getContent).toList(), teamOrder(sort),
+                (int) pageable.getOffset(), pageable.getPageSize());
+        long total = pages.stream().mapToLong(Page::getTotalElements).sum();
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Fetch plan of a page of teams: one query for the teams, one for all their players (and one for the count)
+     * The players of a large page are fetched by chunk while the previous chunks are converted, one query per chunk.
+     */
+    private Page<TeamDto> findTeams(Pageable pageable) {
+        Page<Team> teams = teamRepository.findAll(pageable);
+        return new PageImpl<>(convertToDtos(teams.getContent()), pageable, teams.getTotalElements());
+    }
+
+    /**
+     * Get several teams by their ids with a constant number of queries (one for the teams, one for all their players, per shard)
+     * Unknown ids are reported instead of failing the whole request
+     *
+     * @param ids the ids of the teams, duplicates are ignored
+     * @return the teams found in the requested order and the missing ids
+     * @throws IllegalArgumentException if more than MAX_BATCH_IDS ids are requested
+     */
+    @Transactional(readOnly = true)
+    public TeamBatchDto getTeamsByIds(List<Long> ids) {
+        logger.info("Fetching {} teams by id...", ids.size());
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+        requestedIds.remove(null);
+        if (requestedIds.size() > MAX_BATCH_IDS) {
+            logger.error("Too many ids requested: {}", requestedIds.size());
+            throw new IllegalArgumentException(String.format("At most %d ids can be requested at once", MAX_BATCH_IDS));
+        }
+
+        // each shard is asked for its own teams only, ids known to be missing are not queried
+        Map<Integer, List<Long>> idsByShard = requestedIds.stream().filter(id -> !teamIdFilter.isKnownMissing(id)).collect(Collectors.groupingBy(shards::shardOf, TreeMap::new, Collectors.toList()));
+        Map<Long, TeamDto> teamsById = new HashMap<>();
+        shards.scatter(idsByShard.keySet(), shard -> readOnlyTransaction.execute(status -> convertToDtos(teamRepository.findAllById(idsByShard.get(shard)))))
+                .forEach(found -> found.forEach(team -> teamsById.put(team.getId(), team)));
+
+        List<TeamDto> teams = new ArrayList<>(teamsById.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requestedIds) {
+            TeamDto team = teamsById.get(id);
+            if (team == null) {
+                missingIds.add(id);
+            } else {
+                teams.add(team);
+            }
+        }
+        logger.info("Fetched {} teams, {} ids not found", teams.size(), missingIds.size());
+        return new TeamBatchDto(teams, missingIds);
+    }
+
+    /**
+     * Get the teams created, modified or deleted since a sync token, in the order of the changes
+     * Only the changed rows are read (through the indexed change sequence), whatever the number of teams
+     *
+     * @param since the token returned by the previous sync, 0 for a full sync
+     * @param limit the maximum number of changes to return, the client calls again with the new token while hasMore is set
+     * @return the changed teams, the ids of the deleted teams and the next token
+     * @throws IllegalArgumentException if the token or the limit is invalid
+     */
+    @Transactional(readOnly = true)
+    public TeamDeltaDto getTeamsDelta(long since, int limit) {
+        logger.info("Fetching team changes since {} (limit {})...", since, limit);
+        if (since < 0) {
+            logger.error("Invalid sync token: {}", since);
+            throw new IllegalArgumentException("Invalid sync token: " + since);
+        }
+        if (limit < 1 || limit > MAX_BATCH_IDS) {
+            logger.error("Invalid delta limit: {}", limit);
+            throw new IllegalArgumentException(String.format("The limit must be between 1 and %d", MAX_BATCH_IDS));
+        }
+
+        // changes of transactions still in flight are left for the next sync, they may get a lower number than visible ones
+        long upTo = changeSequence.stableUpperBound();
+        if (upTo <= since) {
+            return new TeamDeltaDto(Collections.emptyList(), Collections.emptyList(), since, false);
+        }
+        // each shard returns its first changes up to the limit, the first changes overall are among them
+        Pageable first = PageRequest.of(0, limit);
+        List<ShardChanges> shardChanges = shards.scatter(shards.all(), shard -> readOnlyTransaction.execute(status -> {
+            List<Team> teams = teamRepository.findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(since, upTo, first);
+            List<TeamTombstone> tombstones = tombstoneRepository.findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(since, upTo, first);
+            List<TeamDto> teamDtos = convertToDtos(teams);
+            List<Change> changes = new ArrayList<>(teams.size() + tombstones.size());
+            for (int i = 0; i < teams.size(); i++) {
+                changes.add(new Change(teams.get(i).getChangeSeq(), teamDtos.get(i), null));
+            }
+            tombstones.forEach(tombstone -> changes.add(new Change(tombstone.getChangeSeq(), null, tombstone.getTeamId())));
+            changes.sort(Comparator.comparingLong(Change::seq));
+            return new ShardChanges(changes, teams.size() == limit || tombstones.size() == limit);
+        }));
+
+        // merge the changes in sequence order and keep the first ones up to the limit
+        List<Change> changes = SortedMerge.merge(shardChanges.stream().map(ShardChanges::changes).toList(),
+                Comparator.comparingLong(Change::seq), 0, limit + 1);
+        boolean hasMore = changes.size() > limit || shardChanges.stream().anyMatch(ShardChanges::truncated);
+        List<TeamDto> teamDtos = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        long token = since;
+        for (Change change : changes.subList(0, Math.min(limit, changes.size()))) {
+            if (change.team() != null) {
+                teamDtos.add(change.team());
+            } else {
+                deletedIds.add(change.deletedId());
+            }
+            token = change.seq();
+        }
+        logger.info("Fetched {} changed and {} deleted teams, next token {}", teamDtos.size(), deletedIds.size(), token);
+        return new TeamDeltaDto(teamDtos, deletedIds, token, hasMore);
+    }
+
     /**
      * Add a new team
      *
      * @param teamDto the team to add
      * @return the added team
+     * @throws ConflictException if another team has the same acronym
      */
+    @Transactional
     public TeamDto addTeam(TeamDto teamDto) {
         logger.info("Adding new team: {}", teamDto);
+        shards.bindToTransaction(shards.nextShard());
+        checkAcronymAvailable(teamDto.getAcronym(), null);
         Team team = convertToEntity(teamDto);
-        team = teamRepository.save(team);
-        logger.info("Team added with id: {}", team.getId());
-        return convertToDto(team);
+        team.setId(null); // ids are always generated by the database
+        team.setChangeSeq(changeSequence.next());
+        Team saved;
+        try {
+            saved = teamRepository.save(team);
+        } catch (DataIntegrityViolationException e) {
+            throw acronymConflict(e, teamDto.getAcronym());
+        }
+        TeamDto savedTeam = RequestTiming.mapping(() -> convertToDto(saved, saved.getPlayers())); // the roster was just inserted, it is in memory
+        eventPublisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.CREATED, saved.getId(), savedTeam, null));
+        logger.info("Team added with id: {}", saved.getId());
+        return savedTeam;
+    }
+
+    /**
+     * Replace the name, acronym and budget of a team (the roster is managed through the player endpoints)
+     * If the version is provided, the update is rejected when the team has been modified since that version
+     * Otherwise concurrent updates are retried with a bounded backoff
+     *
+     * @param id the id of the team
+     * @param teamDto the new state of the team
+     * @return the updated team
+     * @throws ResourceNotFoundException if the team with the given id is not found
+     * @throws ConflictException if the version does not match, the team is modified concurrently for too long or another
+     * team has the same acronym
+     */
+    public TeamDto updateTeam(Long id, TeamDto teamDto) {
+        logger.info("Updating team with id {}: {}", id, teamDto);
+        TeamDto result;
+        try {
+            result = shards.callOn(shards.shardOf(id), () -> optimisticLockRetrier.execute(describe(id), () -> {
+                Team team = findTeam(id);
+                checkVersion(team, teamDto.getVersion());
+                TeamDto previous = snapshot(team);
+                if (!Objects.equals(team.getAcronym(), teamDto.getAcronym())) {
+                    checkAcronymAvailable(teamDto.getAcronym(), id);
+                }
+                if (!Objects.equals(team.getName(), teamDto.getName()) || !Objects.equals(team.getAcronym(), teamDto.getAcronym())
+                        || !Objects.equals(team.getBudget(), teamDto.getBudget())) {
+                    team.setName(teamDto.getName());
+                    team.setAcronym(teamDto.getAcronym());
+                    team.setBudget(teamDto.getBudget());
+                    team.setChangeSeq(changeSequence.next()); // a no-op update is not a change
+                }
+                teamRepository.flush(); // detect conflicts and increment the version before converting
+                TeamDto updatedTeam = convertToDtos(List.of(team)).get(0);
+                eventPublisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.UPDATED, id, updatedTeam, null, previous));
+                return updatedTeam;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            throw acronymConflict(e, teamDto.getAcronym());
+        }
+        logger.info("Team with id {} updated to version {}", id, result.getVersion());
+        return result;
+    }
+
+    /**
+     * Partially update a team, only the provided fields are changed and only the modified columns are written
+     *
+     * @param id the id of the team
+     * @param patch the fields to change
+     * @return the updated team
+     * @throws ResourceNotFoundException if the team with the given id is not found
+     * @throws ConflictException if the version does not match, the team is modified concurrently for too long or another
+     * team has the same acronym
+     */
+    public TeamDto patchTeam(Long id, TeamPatchDto patch) {
+        logger.info("Patching team with id {}: {}", id, patch);
+        TeamDto result;
+        try {
+            result = shards.callOn(shards.shardOf(id), () -> optimisticLockRetrier.execute(describe(id), () -> {
+                Team team = findTeam(id);
+                checkVersion(team, patch.getVersion());
+                TeamDto previous = snapshot(team);
+                boolean changed = false;
+                if (patch.getName() != null && !patch.getName().equals(team.getName())) {
+                    team.setName(patch.getName());
+                    changed = true;
+                }
+                if (patch.getAcronym() != null && !patch.getAcronym().equals(team.getAcronym())) {
+                    checkAcronymAvailable(patch.getAcronym(), id);
+                    team.setAcronym(patch.getAcronym());
+                    changed = true;
+                }
+                if (patch.getBudget() != null && !patch.getBudget().equals(team.getBudget())) {
+                    team.setBudget(patch.getBudget());
+                    changed = true;
+                }
+                if (changed) {
+                    team.setChangeSeq(changeSequence.next());
+                }
+                teamRepository.flush(); // detect conflicts and increment the version before converting
+                TeamDto patchedTeam = convertToDtos(List.of(team)).get(0);
+                eventPublisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.UPDATED, id, patchedTeam, null, previous));
+                return patchedTeam;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            throw acronymConflict(e, patch.getAcronym());
+        }
+        logger.info("Team with id {} patched to version {}", id, result.getVersion());
+        return result;
+    }
+
+    /**
+     * Delete a team and its roster
+     *
+     * @param id the id of the team
+     * @param version the expected version of the team, or null to delete whatever the current version is
+     * @throws ResourceNotFoundException if the team with the given id is not found
+     * @throws ConflictException if the version does not match or the team is modified concurrently for too long
+     */
+    public void deleteTeam(Long id, Long version) {
+        logger.info("Deleting team with id {} (expected version: {})", id, version);
+        shards.callOn(shards.shardOf(id), () -> optimisticLockRetrier.execute(describe(id), () -> {
+            Team team = findTeam(id);
+            checkVersion(team, version);
+            TeamDto previous = snapshot(team);
+            playerRepository.deleteByTeamId(id); // one statement for the whole roster instead of one per player
+            teamRepository.delete(team);
+            tombstoneRepository.save(new TeamTombstone(id, changeSequence.next(), LocalDateTime.now()));
+            teamRepository.flush();
+            eventPublisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.DELETED, id, null, null, previous));
+            return null;
+        }));
+        logger.info("Team with id {} deleted", id);
+    }
+
+    /**
+     * Add a player to the roster of a team
+     * The player is inserted with a reference to the team, the roster itself is never loaded
+     * The change sequence of the team is bumped by the same statement that checks the team exists
+     *
+     * @param teamId the id of the team
+     * @param playerDto the player to add
+     * @return the added player
+     * @throws ResourceNotFoundException if the team with the given id is not found
+     */
+    @Transactional
+    public PlayerDto addPlayer(Long teamId, PlayerDto playerDto) {
+        logger.info("Adding player {} to team with id {}", playerDto.getName(), teamId);
+        shards.bindToTransaction(shards.shardOf(teamId));
+        if (teamRepository.updateChangeSeq(teamId, changeSequence.next()) == 0) {
+            throw teamNotFound(teamId);
+        }
+        Player player = playerService.convertToEntity(playerDto);
+        player.setId(null); // ids are always generated by the database
+        player.setTeam(teamRepository.getReferenceById(teamId)); // proxy, no select is issued
+        player = playerRepository.save(player);
+        PlayerDto savedPlayer = playerService.convertToDto(player);
+        eventPublisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.PLAYER_ADDED, teamId, null, savedPlayer));
+        logger.info("Player added with id: {} to team with id: {}", player.getId(), teamId);
+        return savedPlayer;
+    }
+
+    /**
+     * Remove a player from the roster of a team with a single delete statement
+     *
+     * @param teamId the id of the team
+     * @param playerId the id of the player to remove
+     * @throws ResourceNotFoundException if the player is not found in the team with the given id
+     */
+    @Transactional
+    public void removePlayer(Long teamId, Long playerId) {
+        logger.info("Removing player with id {} from team with id {}", playerId, teamId);
+        shards.bindToTransaction(shards.shardOf(teamId));
+        if (playerRepository.deleteByIdAndTeamId(playerId, teamId) == 0) {
+            logger.error("Player with id {} not found in team with id {}", playerId, teamId);
+            throw new ResourceNotFoundException(String.format("Player with id %d not found in team with id %d", playerId, teamId));
+        }
+        teamRepository.updateChangeSeq(teamId, changeSequence.next());
+        eventPublisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.PLAYER_REMOVED, teamId, null, new PlayerDto(playerId, null, null)));
+        logger.info("Player with id {} removed from team with id {}", playerId, teamId);
+    }
+
+    /**
+     * Evict the cached team and detach the loads in flight that may have read the state before a write, so the next reads see the change
+     * Loads of other teams are kept, but every list query may contain the changed team
+     * Writes of the other instances are evicted by the change log poller
+     *
+     * @param event the change that was committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        teamCache.invalidate(event.getTeamId());
+        teamLoads.forget(event.getTeamId());
+        teamsQueryLoads.forgetAll();
+    }
+
+    /**
+     * Fetch the players of several teams with a single query instead of initializing each roster separately
+     *
+     * @param teamIds the ids of the teams
+     * @return the players grouped by team id, in id order
+     */
+    private Map<Long, List<Player>> findPlayersByTeam(Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return playerRepository.findByTeamIdIn(teamIds).stream()
+                .collect(Collectors.groupingBy(player -> player.getTeam().getId()));
+    }
+
+    private Team findTeam(Long id) {
+        return teamRepository.findById(id).orElseThrow(() -> teamNotFound(id));
+    }
+
+    /**
+     * Read a team by id, if it still has the given acronym
+     */
+    private TeamDto findTeamWithAcronym(Long id, String acronym) {
+        try {
+            TeamDto team = getTeamById(id);
+            return acronym.equals(team.getAcronym()) ? team : null;
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+
+    private Long findTeamIdByAcronym(String acronym) {
+        return shards.scatter(shards.all(), shard -> readOnlyTransaction.execute(status -> teamRepository.findIdByAcronym(acronym).orElse(null)))
+                .stream().filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    /**
+     * With several shards the unique index only covers the shard of the team, the other shards are checked first
+     * (two teams created at the same time on different shards can still get the same acronym)
+     * With a single database the unique index alone rejects the duplicates.
+     */
+    private void checkAcronymAvailable(String acronym, Long teamId) {
+        if (!shards.isSharded()) {
+            return;
+        }
+        Long existingId = findTeamIdByAcronym(acronym);
+        if (existingId != null && !existingId.equals(teamId)) {
+            logger.error("Acronym {} is already used by team {}", acronym, existingId);
+            throw new ConflictException(String.format("A team with acronym %s already exists", acronym));
+        }
+    }
+
+    /**
+     * Turn the violation of the unique acronym index into a conflict, other integrity violations are rethrown
+     */
+    private RuntimeException acronymConflict(DataIntegrityViolationException e, String acronym) {
+        String message = e.getMostSpecificCause().getMessage();
+        if (message == null || !message.toLowerCase(Locale.ROOT).contains(Team.ACRONYM_CONSTRAINT)) {
+            return e;
+        }
+        logger.error("Acronym {} is already used by another team", acronym);
+        return new ConflictException(String.format("A team with acronym %s already exists", acronym));
+    }
+
+    // unknown ids are expected (stale clients, scrapers), they are not logged as errors
+    private ResourceNotFoundException teamNotFound(Long id) {
+        logger.debug("Team with id {} not found", id);
+        return new ResourceNotFoundException(String.format("Team with id %d not found", id));
+    }
+
+    /**
+     * Make sure the team has not been modified since the version the client has read
+     * @param team the current state of the team
+     * @param expectedVersion the version provided by the client, null skips the check
+     * @throws ConflictException if the versions do not match
+     */
+    private void checkVersion(Team team, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(team.getVersion())) {
+            logger.error("Team with id {} is at version {}, expected version {}", team.getId(), team.getVersion(), expectedVersion);
+            throw new ConflictException(String.format("Team with id %d has been modified (expected version %d, current version %d)",
+                    team.getId(), expectedVersion, team.getVersion()));
+        }
+    }
+
+    private String describe(Long id) {
+        return String.format("Team with id %d", id);
     }
 
     /**
@@ -132,16 +652,62 @@ public class TeamService {
         }).collect(Collectors.toList());
     }
 
-    private TeamDto convertToDto(Team team) {
+    /**
+     * Order of the teams in memory matching the order of the database for the sortable fields (null values first, strings
+     * compared by code point), used to merge the pages of the shards
+     */
+    private Comparator<TeamDto> teamOrder(Sort sort) {
+        Comparator<TeamDto> order = null;
+        for (Sort.Order sortOrder : sort) {
+            Comparator<TeamDto> field = switch (sortOrder.getProperty()) {
+                case "name" -> Comparator.comparing(TeamDto::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+                case "acronym" -> Comparator.comparing(TeamDto::getAcronym, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+                case "budget" -> Comparator.comparing(TeamDto::getBudget, Comparator.nullsFirst(Comparator.<Double>naturalOrder()));
+                case "id" -> Comparator.comparing(TeamDto::getId);
+                default -> throw new IllegalArgumentException("Invalid field name for sorting: " + sortOrder.getProperty());
+            };
+            if (sortOrder.isDescending()) {
+                field = field.reversed();
+            }
+            order = order == null ? field : order.thenComparing(field);
+        }
+        return order;
+    }
+
+    /**
+     * Copy of the team fields before a write, for the listeners that need the previous values (the roster is not loaded)
+     */
+    private TeamDto snapshot(Team team) {
+        return convertToDto(team, Collections.emptyList());
+    }
+
+    /**
+     * Convert teams with their rosters, the lazy collection of the players is never initialized
+     * The rosters are fetched by one query per chunk of teams on the calling thread, in its transaction, while the previous
+     * chunks are converted in parallel (see ParallelMapping)
+     *
+     * @param teams the teams
+     * @return the teams in the same order
+     */
+    private List<TeamDto> convertToDtos(List<Team> teams) {
+        return RequestTiming.mapping(() -> parallelMapping.map(teams,
+                chunk -> findPlayersByTeam(chunk.stream().map(Team::getId).toList()),
+                (chunk, playersByTeam) -> chunk.stream()
+                        .map(team -> convertToDto(team, playersByTeam.getOrDefault(team.getId(), Collections.emptyList())))
+                        .toList()));
+    }
+
+    private TeamDto convertToDto(Team team, Collection<Player> players) {
         TeamDto teamDto = new TeamDto();
         teamDto.setId(team.getId());
         teamDto.setName(team.getName());
         teamDto.setAcronym(team.getAcronym());
         teamDto.setBudget(team.getBudget());
+        teamDto.setVersion(team.getVersion());
 
         // handle the case where players might be null
-        List<PlayerDto> playerDTOs = team.getPlayers() != null ?
-                team.getPlayers().stream().map(playerService::convertToDto).toList() :
+        List<PlayerDto> playerDTOs = players != null ?
+                players.stream().map(playerService::convertToDto).toList() :
                 Collections.emptyList();  // return an empty list if players are null
         teamDto.setPlayers(playerDTOs);
 
@@ -161,10 +727,15 @@ public class TeamService {
             team.setBudget(teamDto.getBudget());
         }
 
-        // handle the case where players might be null
-        List<Player> players = teamDto.getPlayers() != null ?
-                teamDto.getPlayers().stream().map(playerService::convertToEntity).toList() :
-                Collections.emptyList();  // return an empty list if players are null
+        // handle the case where players might be null, each player points back to the team so the cascade insert sets the foreign key
+        Set<Player> players = new LinkedHashSet<>();
+        if (teamDto.getPlayers() != null) {
+            teamDto.getPlayers().stream().map(playerService::convertToEntity).forEach(player -> {
+                player.setId(null);
+                player.setTeam(team);
+                players.add(player);
+            });
+        }
         team.setPlayers(players);
 
         logger.info("Converted TeamDto to Team entity: {}", team.getName());
@@ -172,4 +743,21 @@ public class TeamService {
         return team;
     }
 
+    /**
+     * Key of a list query, identical queries share the same load
+     */
+    private record TeamsQuery(int page, int size, List<String> sortBy) {
+    }
+
+    /**
+     * A change of the delta: the new state of a team, or the id of a deleted team
+     */
+    private record Change(long seq, TeamDto team, Long deletedId) {
+    }
+
+    /**
+     * The first changes of a shard, truncated when the shard has more changes than the limit
+     */
+    private record ShardChanges(List<Change> changes, boolean truncated) {
+    }
 }
@@ -0,0 +1,65 @@
+package com.matawan.equipefootball.sharding;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Prepares the shards once Hibernate has created or updated the schema of the home shard
+ *
+ * An empty shard gets a copy of the home schema (later schema changes of the other shards need a migration).
+ * The identity columns of the teams and players of shard k are then set to generate only ids equal to k + 1 modulo the
+ * number of shards, and every shard is checked to only hold teams whose id maps to it: an existing single database cannot
+ * be turned into a shard without moving its teams first.
+ */
+public class ShardSchemaInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    private static final List<String> ROUTED_TABLES = List.of("team", "player");
+
+    private final Shards shards;
+
+    ShardSchemaInitializer(Shards shards) {
+        this.shards = shards;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        List<String> schema = null;
+        for (int shard = 0; shard < shards.getCount(); shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shards.getDataSources().get(shard));
+            if (shard != Shards.HOME && !hasTeamTable(jdbcTemplate)) {
+                if (schema == null) {
+                    schema = shards.getHomeJdbcTemplate().queryForList("SCRIPT NODATA", String.class).stream()
+                            .filter(statement -> !statement.startsWith("--") && !statement.startsWith("CREATE USER"))
+                            .toList();
+                }
+                schema.forEach(jdbcTemplate::execute);
+                logger.info("Created the schema of shard {}", shard);
+            }
+            checkTeamIds(jdbcTemplate, shard);
+            for (String table : ROUTED_TABLES) {
+                shards.restartIdentity(jdbcTemplate, table, shard);
+            }
+        }
+        logger.info("{} shards ready", shards.getCount());
+    }
+
+    private boolean hasTeamTable(JdbcTemplate jdbcTemplate) {
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'TEAM'", Integer.class);
+        return tables != null && tables > 0;
+    }
+
+    private void checkTeamIds(JdbcTemplate jdbcTemplate, int shard) {
+        Integer misplaced = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM team WHERE MOD(id - 1, ?) <> ?",
+                Integer.class, shards.getCount(), shard);
+        if (misplaced != null && misplaced > 0) {
+            throw new IllegalStateException(String.format("Shard %d holds %d teams whose id maps to another shard", shard, misplaced));
+        }
+    }
+}
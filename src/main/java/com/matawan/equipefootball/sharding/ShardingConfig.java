@@ -0,0 +1,60 @@
+package com.matawan.equipefootball.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Partitions the teams across the databases listed in equipe.sharding.urls when equipe.sharding.enabled is set,
+ * otherwise everything stays in the spring.datasource database
+ * The number of shards must not change once teams have been written, the shard of a team is derived from its id.
+ */
+@Configuration
+public class ShardingConfig {
+
+    private static final String ENABLED = "equipe.sharding.enabled";
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "false", matchIfMissing = true)
+    public Shards singleDatabase(DataSource dataSource) {
+        return new Shards(List.of(dataSource));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    public Shards shards(@Value("${equipe.sharding.urls}") String urls,
+                         @Value("${spring.datasource.username:sa}") String username,
+                         @Value("${spring.datasource.password:}") String password) {
+        List<DataSource> dataSources = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .<DataSource>map(url -> DataSourceBuilder.create().type(HikariDataSource.class)
+                        .url(url).username(username).password(password).build())
+                .toList();
+        return new Shards(dataSources);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    public DataSource dataSource(Shards shards) {
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards.getDataSources()));
+    }
+
+    @Bean
+    @DependsOn("entityManagerFactory")
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true")
+    public ShardSchemaInitializer shardSchemaInitializer(Shards shards) {
+        return new ShardSchemaInitializer(shards);
+    }
+}
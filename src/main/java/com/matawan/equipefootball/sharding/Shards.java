@@ -0,0 +1,220 @@
+package com.matawan.equipefootball.sharding;
+
+import com.matawan.equipefootball.timing.RequestTiming;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * The databases the teams are partitioned across, and the routing of the current thread to one of them
+ *
+ * A team lives with its roster in a single shard, chosen in turn at creation. The identity columns of shard k only generate
+ * ids equal to k + 1 modulo the number of shards, so the shard of a team is known from its id alone.
+ * The home shard (0) also holds the data shared by every shard: the change sequence and the position dictionary.
+ * With a single database every method runs its task directly, nothing is routed.
+ */
+public class Shards {
+
+    public static final int HOME = 0;
+
+    private final List<DataSource> dataSources;
+    private final JdbcTemplate homeJdbcTemplate;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final ExecutorService executor;
+
+    public Shards(List<DataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one database is required");
+        }
+        this.dataSources = List.copyOf(dataSources);
+        this.homeJdbcTemplate = new JdbcTemplate(dataSources.get(HOME));
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = isSharded() ? Executors.newFixedThreadPool(2 * dataSources.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int getCount() {
+        return dataSources.size();
+    }
+
+    public boolean isSharded() {
+        return dataSources.size() > 1;
+    }
+
+    public List<Integer> all() {
+        return IntStream.range(0, dataSources.size()).boxed().toList();
+    }
+
+    /**
+     * @param id the id of a team
+     * @return the shard holding the team
+     */
+    public int shardOf(long id) {
+        return (int) Math.floorMod(id - 1, (long) dataSources.size());
+    }
+
+    /**
+     * @return the shard of a new team, the shards are used in turn
+     */
+    public int nextShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), dataSources.size());
+    }
+
+    /**
+     * Run a task with the connections of the current thread routed to a shard
+     * A transaction started by the task uses the shard, an enclosing transaction keeps the connection it already has
+     *
+     * @param shard the shard
+     * @param task the task
+     * @return the result of the task
+     */
+    public <T> T callOn(int shard, Supplier<T> task) {
+        if (!isSharded()) {
+            return task.get();
+        }
+        Integer previous = ShardContext.get();
+        ShardContext.set(shard);
+        try {
+            return task.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    public void runOn(int shard, Runnable task) {
+        callOn(shard, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a task on every shard in turn
+     *
+     * @param task the task
+     */
+    public void forEach(Runnable task) {
+        for (int shard = 0; shard < dataSources.size(); shard++) {
+            runOn(shard, task);
+        }
+    }
+
+    /**
+     * Run a task on several shards in parallel, each call runs in its own transactions on a thread routed to its shard
+     *
+     * @param shards the shards to query
+     * @param task the task, called with the shard
+     * @return the results, in the order of the shards
+     */
+    public <T> List<T> scatter(Collection<Integer> shards, Function<Integer, T> task) {
+        if (!isSharded()) {
+            return shards.stream().map(task).toList();
+        }
+        RequestTiming timing = RequestTiming.current(); // the shard queries count in the timing of the request
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> RequestTiming.callWith(timing, () -> callOn(shard, () -> task.apply(shard))), executor))
+                .toList();
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Route the current transaction to a shard, until it completes
+     * It must be called before the first statement of the transaction, which is when the connection is obtained
+     *
+     * @param shard the shard
+     * @throws IllegalStateException if no transaction is active, or the thread is already routed to another shard
+     */
+    public void bindToTransaction(int shard) {
+        if (!isSharded()) {
+            return;
+        }
+        Integer current = ShardContext.get();
+        if (current != null) {
+            if (current != shard) {
+                throw new IllegalStateException(String.format("A transaction cannot span several shards (%d and %d)", current, shard));
+            }
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Routing to a shard requires an active transaction");
+        }
+        ShardContext.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ShardContext.set(null);
+            }
+        });
+    }
+
+    /**
+     * Template on the home database for the data shared by every shard
+     * With several shards, its statements run outside of the transaction of the caller, which is bound to a shard
+     *
+     * @return the template
+     */
+    public JdbcTemplate getHomeJdbcTemplate() {
+        return homeJdbcTemplate;
+    }
+
+    /**
+     * Restart the identity column of a routed table above its current ids, generating only ids that map to the shard
+     *
+     * @param jdbcTemplate a template on the shard
+     * @param table the table, team or player
+     * @param shard the shard
+     */
+    public void restartIdentity(JdbcTemplate jdbcTemplate, String table, int shard) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long count = dataSources.size();
+        long next = maxId + 1 + Math.floorMod(shard - maxId, count); // lowest id above the current ones that maps to the shard
+        jdbcTemplate.execute(String.format("ALTER TABLE %s ALTER COLUMN id SET INCREMENT BY %d", table, count));
+        jdbcTemplate.execute(String.format("ALTER TABLE %s ALTER COLUMN id RESTART WITH %d", table, next));
+    }
+
+    List<DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    /**
+     * Stop the scatter threads and close the shard pools, a single database is left to Spring Boot
+     */
+    public void close() throws Exception {
+        if (isSharded()) {
+            executor.shutdownNow();
+            for (DataSource dataSource : dataSources) {
+                if (dataSource instanceof AutoCloseable closeable) {
+                    closeable.close();
+                }
+            }
+        }
+    }
+}
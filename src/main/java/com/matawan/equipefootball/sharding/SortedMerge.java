@@ -0,0 +1,50 @@
+package com.matawan.equipefootball.sharding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * k-way merge of the sorted results of several shards
+ */
+public final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    /**
+     * Merge sorted lists and keep a window of the merged order, only offset + limit elements are compared
+     *
+     * @param lists the lists, each sorted by the order
+     * @param order the order of the lists
+     * @param offset the number of merged elements to skip
+     * @param limit the maximum number of elements to return
+     * @return the elements from offset to offset + limit of the merged order
+     */
+    public static <T> List<T> merge(List<? extends List<? extends T>> lists, Comparator<? super T> order, int offset, int limit) {
+        // heads of the lists, as {list, position}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, lists.size()),
+                (a, b) -> order.compare(lists.get(a[0]).get(a[1]), lists.get(b[0]).get(b[1])));
+        for (int list = 0; list < lists.size(); list++) {
+            if (!lists.get(list).isEmpty()) {
+                heads.add(new int[]{list, 0});
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.max(0, limit));
+        int skipped = 0;
+        while (merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<? extends T> list = lists.get(head[0]);
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                merged.add(list.get(head[1]));
+            }
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,23 @@
+package com.matawan.equipefootball.slowquery;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Slow query log, enabled by equipe.slow-query.enabled: statements running for at least equipe.slow-query.threshold-ms
+ * are recorded by the timed data source (see TimingConfig), with their EXPLAIN plan unless equipe.slow-query.explain is false
+ * (captured in the background on another connection)
+ */
+@Configuration
+@ConditionalOnProperty(name = "equipe.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public SlowQueryLog slowQueryLog(@Value("${equipe.slow-query.threshold-ms:100}") long thresholdMillis,
+                                     @Value("${equipe.slow-query.max-statements:500}") int maxStatements,
+                                     @Value("${equipe.slow-query.explain:true}") boolean explain) {
+        return new SlowQueryLog(thresholdMillis, maxStatements, explain);
+    }
+}
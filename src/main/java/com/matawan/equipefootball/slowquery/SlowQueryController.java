@@ -0,0 +1,42 @@
+package com.matawan.equipefootball.slowquery;
+
+import com.matawan.equipefootball.dto.SlowQueryReportDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/slow-queries")
+@ConditionalOnProperty(name = "equipe.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryController {
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryController(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * Get the slow statements grouped by normalized statement, highest total time first
+     *
+     * @return the slow statements with their counts, times, parameters of the slowest execution and EXPLAIN plan
+     */
+    @GetMapping
+    public ResponseEntity<SlowQueryReportDto> getSlowQueries() {
+        return ResponseEntity.ok(slowQueryLog.getReport());
+    }
+
+    /**
+     * Forget the recorded statements, for instance before measuring a change
+     *
+     * @return an empty response
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        slowQueryLog.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.matawan.equipefootball.slowquery;
+
+import com.matawan.equipefootball.dto.SlowQueryDto;
+import com.matawan.equipefootball.dto.SlowQueryReportDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Statements slower than threshold-ms, aggregated by normalized statement (literals and IN lists replaced by ?)
+ *
+ * Each aggregate keeps the bind parameters of its slowest execution and the EXPLAIN plan of its first slow execution.
+ * The plan is captured in the background, on a connection of its own to the database that ran the statement (so the same
+ * shard or replica): the slow request does not wait for it and its transaction is not touched. Statements below the
+ * threshold are only compared with it. At most max-statements distinct statements are kept, the others are counted as dropped.
+ */
+public class SlowQueryLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(select|insert|update|delete|merge|with)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final long thresholdMillis;
+    private final long thresholdNanos;
+    private final int maxStatements;
+    private final boolean explain;
+    private final ConcurrentHashMap<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    // one plan at a time, the plans of a burst of new slow statements beyond the queue are skipped
+    private final ThreadPoolExecutor explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100), runnable -> {
+        Thread thread = new Thread(runnable, "slow-query-explain");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SlowQueryLog(long thresholdMillis, int maxStatements, boolean explain) {
+        this.thresholdMillis = thresholdMillis;
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.maxStatements = maxStatements;
+        this.explain = explain;
+    }
+
+    public void shutdown() {
+        explainer.shutdownNow();
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos;
+    }
+
+    public boolean isExplaining() {
+        return explain;
+    }
+
+    /**
+     * Record a slow execution
+     *
+     * @param sql the statement
+     * @param parameters the bind parameters by index (index 0 is unused), null for a plain statement
+     * @param nanos the execution time
+     * @param explainDataSource the data source of the database that ran the statement, for the EXPLAIN (called in the background)
+     */
+    public void record(String sql, Object[] parameters, long nanos, Supplier<DataSource> explainDataSource) {
+        String normalized = normalize(sql);
+        Aggregate aggregate = aggregates.get(normalized);
+        if (aggregate == null) {
+            if (aggregates.size() >= maxStatements) {
+                dropped.incrementAndGet();
+                return;
+            }
+            aggregate = aggregates.computeIfAbsent(normalized, key -> new Aggregate());
+        }
+        List<String> boundParameters = parameters == null ? List.of() : Arrays.stream(parameters, 1, parameters.length).map(String::valueOf).toList();
+        logger.warn("Slow statement ({} ms): {} {}", nanos / 1_000_000, WHITESPACE.matcher(sql).replaceAll(" ").trim(), boundParameters);
+        boolean first = aggregate.add(nanos, boundParameters);
+        if (first && explain && explainDataSource != null && EXPLAINABLE.matcher(sql).find()) {
+            Aggregate explained = aggregate;
+            try {
+                explainer.execute(() -> explained.plan = explain(sql, parameters, explainDataSource));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Too many plans pending, {} is not explained", sql);
+            }
+        }
+    }
+
+    /**
+     * @return the slow statements, highest total time first
+     */
+    public SlowQueryReportDto getReport() {
+        List<SlowQueryDto> statements = aggregates.entrySet().stream()
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .sorted(Comparator.comparingDouble(SlowQueryDto::getTotalMs).reversed())
+                .toList();
+        return new SlowQueryReportDto(thresholdMillis, dropped.get(), statements);
+    }
+
+    public void clear() {
+        aggregates.clear();
+        dropped.set(0);
+    }
+
+    static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return IN_LIST.matcher(normalized).replaceAll("(?, ...)");
+    }
+
+    private String explain(String sql, Object[] parameters, Supplier<DataSource> dataSource) {
+        try (Connection connection = dataSource.get().getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            if (parameters != null) {
+                for (int index = 1; index < parameters.length; index++) {
+                    statement.setObject(index, parameters[index]);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return plan.toString().trim();
+        } catch (SQLException | RuntimeException e) {
+            logger.debug("Could not explain {}: {}", sql, e.getMessage());
+            return "EXPLAIN failed: " + e.getMessage();
+        }
+    }
+
+    private static final class Aggregate {
+
+        // guarded by this
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private List<String> slowestParameters;
+        private volatile String plan;
+
+        /**
+         * @return true for the first execution
+         */
+        private synchronized boolean add(long nanos, List<String> parameters) {
+            count++;
+            totalNanos += nanos;
+            if (nanos >= maxNanos) {
+                maxNanos = nanos;
+                slowestParameters = parameters;
+            }
+            return count == 1;
+        }
+
+        private synchronized SlowQueryDto toDto(String sql) {
+            return new SlowQueryDto(sql, count, millis(totalNanos), millis(totalNanos / Math.max(1, count)), millis(maxNanos),
+                    slowestParameters, plan);
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+}
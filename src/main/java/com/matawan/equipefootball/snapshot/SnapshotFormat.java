@@ -0,0 +1,72 @@
+package com.matawan.equipefootball.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a snapshot file
+ *
+ * The file starts with the magic number and the format version, followed by blocks. A block is its payload length and
+ * the CRC32C of its payload (two ints), then the payload: a sequence of records, never split across blocks.
+ * Every record starts with its kind:
+ * - POSITION: code (short), name
+ * - TEAM: id (long), name, acronym, budget (double), version and change sequence (nullable longs)
+ * - PLAYER: id (long), team id (long, 0 for none), name, position code (short, -1 for none)
+ * - END: number of teams and players (longs), the last record of the file
+ * Strings are their UTF-8 length (int, -1 for null) and bytes, nullable longs a presence byte and the value.
+ * Positions come first, and a player always comes after its team.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x45514653; // "EQFS"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    static final int BLOCK_HEADER_SIZE = 8;
+
+    static final byte POSITION = 1;
+    static final byte TEAM = 2;
+    static final byte PLAYER = 3;
+    static final byte END = 4;
+
+    static final long NO_TEAM = 0;
+    static final short NO_POSITION = -1;
+
+    private SnapshotFormat() {
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    static void putNullableLong(ByteBuffer buffer, Long value) {
+        buffer.put((byte) (value == null ? 0 : 1)).putLong(value == null ? 0 : value);
+    }
+
+    static Long getNullableLong(ByteBuffer buffer) {
+        boolean present = buffer.get() != 0;
+        long value = buffer.getLong();
+        return present ? value : null;
+    }
+
+    /**
+     * @return the maximum encoded size of a string, for sizing the record buffer
+     */
+    static int maxStringSize(String value) {
+        return 4 + (value == null ? 0 : 3 * value.length()); // a UTF-16 char never takes more than 3 UTF-8 bytes
+    }
+}
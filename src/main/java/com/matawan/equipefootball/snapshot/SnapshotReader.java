@@ -0,0 +1,136 @@
+package com.matawan.equipefootball.snapshot;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.zip.CRC32C;
+
+import static com.matawan.equipefootball.snapshot.SnapshotFormat.*;
+
+/**
+ * Reads a snapshot file (see SnapshotFormat) block by block from its file channel, checking the checksum of every block
+ * before handing its records to a visitor
+ * A damaged or truncated file is reported with an IllegalArgumentException, after the records of its valid blocks.
+ */
+final class SnapshotReader {
+
+    /**
+     * Receives the records of a snapshot in file order
+     */
+    interface Visitor {
+
+        default void position(short code, String name) throws SQLException {
+        }
+
+        default void team(long id, String name, String acronym, double budget, Long version, Long changeSeq) throws SQLException {
+        }
+
+        default void player(long id, long teamId, String name, short positionCode) throws SQLException {
+        }
+
+        /**
+         * Called after the records of each block
+         */
+        default void endOfBlock() throws SQLException {
+        }
+    }
+
+    record Totals(long teams, long players) {
+    }
+
+    private SnapshotReader() {
+    }
+
+    /**
+     * Read a snapshot
+     *
+     * @param file the snapshot file
+     * @param visitor the visitor of the records
+     * @return the number of teams and players of the snapshot
+     * @throws IllegalArgumentException if the file is not a snapshot, or is damaged or truncated
+     */
+    static Totals read(Path file, Visitor visitor) throws IOException, SQLException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Math.max(FILE_HEADER_SIZE, BLOCK_HEADER_SIZE));
+            if (!readFully(channel, header.limit(FILE_HEADER_SIZE)) || header.getInt(0) != MAGIC) {
+                throw corrupt(file, "not a snapshot file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw corrupt(file, "unsupported format version " + header.getInt(4));
+            }
+
+            CRC32C checksum = new CRC32C();
+            ByteBuffer block = ByteBuffer.allocate(0);
+            long teams = 0;
+            long players = 0;
+            for (int index = 0; ; index++) {
+                if (!readFully(channel, header.clear().limit(BLOCK_HEADER_SIZE))) {
+                    throw corrupt(file, "truncated after block " + index);
+                }
+                int length = header.getInt(0);
+                if (length <= 0 || length > channel.size()) {
+                    throw corrupt(file, "invalid length of block " + index);
+                }
+                if (block.capacity() < length) {
+                    block = ByteBuffer.allocate(length);
+                }
+                if (!readFully(channel, block.clear().limit(length))) {
+                    throw corrupt(file, "truncated in block " + index);
+                }
+                checksum.reset();
+                checksum.update(block.array(), 0, length);
+                if ((int) checksum.getValue() != header.getInt(4)) {
+                    throw corrupt(file, "checksum mismatch in block " + index);
+                }
+
+                block.flip();
+                try {
+                    while (block.hasRemaining()) {
+                        byte kind = block.get();
+                        switch (kind) {
+                            case POSITION -> visitor.position(block.getShort(), getString(block));
+                            case TEAM -> {
+                                visitor.team(block.getLong(), getString(block), getString(block), block.getDouble(),
+                                        getNullableLong(block), getNullableLong(block));
+                                teams++;
+                            }
+                            case PLAYER -> {
+                                visitor.player(block.getLong(), block.getLong(), getString(block), block.getShort());
+                                players++;
+                            }
+                            case END -> {
+                                if (block.getLong() != teams || block.getLong() != players || block.hasRemaining()
+                                        || channel.position() != channel.size()) {
+                                    throw corrupt(file, "records missing or following the end record");
+                                }
+                                visitor.endOfBlock();
+                                return new Totals(teams, players);
+                            }
+                            default -> throw corrupt(file, "unknown record kind " + kind + " in block " + index);
+                        }
+                    }
+                } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                    throw corrupt(file, "record overflowing block " + index);
+                }
+                visitor.endOfBlock();
+            }
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IllegalArgumentException corrupt(Path file, String reason) {
+        return new IllegalArgumentException(String.format("Invalid snapshot %s: %s", file.getFileName(), reason));
+    }
+}
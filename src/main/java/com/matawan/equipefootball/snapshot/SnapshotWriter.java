@@ -0,0 +1,123 @@
+package com.matawan.equipefootball.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import static com.matawan.equipefootball.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes a snapshot file (see SnapshotFormat), the records are encoded straight into a direct block buffer that is
+ * written to the file channel once full
+ * The writer is fed from JDBC row callbacks, so I/O errors are thrown as UncheckedIOException.
+ */
+final class SnapshotWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer block;
+    private long teams;
+    private long players;
+    private long bytes;
+
+    SnapshotWriter(Path file, int blockSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.block = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + blockSize);
+        write(ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+        block.position(BLOCK_HEADER_SIZE);
+    }
+
+    void position(short code, String name) {
+        reserve(1 + 2 + maxStringSize(name));
+        block.put(POSITION).putShort(code);
+        putString(block, name);
+    }
+
+    void team(long id, String name, String acronym, double budget, Long version, Long changeSeq) {
+        reserve(1 + 8 + maxStringSize(name) + maxStringSize(acronym) + 8 + 9 + 9);
+        block.put(TEAM).putLong(id);
+        putString(block, name);
+        putString(block, acronym);
+        block.putDouble(budget);
+        putNullableLong(block, version);
+        putNullableLong(block, changeSeq);
+        teams++;
+    }
+
+    void player(long id, long teamId, String name, short positionCode) {
+        reserve(1 + 8 + 8 + maxStringSize(name) + 2);
+        block.put(PLAYER).putLong(id).putLong(teamId);
+        putString(block, name);
+        block.putShort(positionCode);
+        players++;
+    }
+
+    /**
+     * Write the end record and the last block, and force the file to the disk
+     */
+    void finish() {
+        reserve(1 + 8 + 8);
+        block.put(END).putLong(teams).putLong(players);
+        flush();
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long getTeams() {
+        return teams;
+    }
+
+    long getPlayers() {
+        return players;
+    }
+
+    long getBytes() {
+        return FILE_HEADER_SIZE + bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void reserve(int size) {
+        if (block.remaining() >= size) {
+            return;
+        }
+        flush();
+        if (block.remaining() < size) {
+            block = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + size).position(BLOCK_HEADER_SIZE); // a record larger than a block
+        }
+    }
+
+    private void flush() {
+        int length = block.position() - BLOCK_HEADER_SIZE;
+        if (length == 0) {
+            return;
+        }
+        block.flip().position(BLOCK_HEADER_SIZE);
+        checksum.reset();
+        checksum.update(block);
+        block.putInt(0, length).putInt(4, (int) checksum.getValue()).position(0);
+        write(block);
+        bytes += BLOCK_HEADER_SIZE + length;
+        block.clear().position(BLOCK_HEADER_SIZE);
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
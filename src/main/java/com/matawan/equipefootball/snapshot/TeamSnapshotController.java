@@ -0,0 +1,59 @@
+package com.matawan.equipefootball.snapshot;
+
+import com.matawan.equipefootball.dto.TeamSnapshotDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/snapshots")
+public class TeamSnapshotController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamSnapshotController.class);
+
+    private final TeamSnapshots teamSnapshots;
+
+    public TeamSnapshotController(TeamSnapshots teamSnapshots) {
+        this.teamSnapshots = teamSnapshots;
+    }
+
+    /**
+     * Write a snapshot of all the teams and players to the snapshot directory, for example POST /api/admin/snapshots/staging
+     *
+     * @param name the name of the snapshot (letters, digits, '.', '_' and '-'), an existing snapshot is replaced
+     * @return the written snapshot
+     */
+    @PostMapping("/{name}")
+    public ResponseEntity<?> writeSnapshot(@PathVariable String name) {
+        logger.info("Received request to write snapshot {}", name);
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(teamSnapshots.write(name));
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid snapshot request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Replace all the teams and players with those of a snapshot, for example POST /api/admin/snapshots/staging/restore
+     *
+     * @param name the name of the snapshot
+     * @return the restored snapshot
+     */
+    @PostMapping("/{name}/restore")
+    public ResponseEntity<?> restoreSnapshot(@PathVariable String name) {
+        logger.info("Received request to restore snapshot {}", name);
+        try {
+            TeamSnapshotDto snapshot = teamSnapshots.restore(name);
+            return ResponseEntity.ok(snapshot);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid snapshot request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.matawan.equipefootball.snapshot;
+
+import com.matawan.equipefootball.analytics.BudgetDistribution;
+import com.matawan.equipefootball.changefeed.TeamChangeFeed;
+import com.matawan.equipefootball.dto.TeamSnapshotDto;
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.leaderboard.BudgetLeaderboard;
+import com.matawan.equipefootball.service.ChangeSequence;
+import com.matawan.equipefootball.service.PositionDictionary;
+import com.matawan.equipefootball.service.TeamCache;
+import com.matawan.equipefootball.service.TeamIdFilter;
+import com.matawan.equipefootball.sharding.Shards;
+import com.matawan.equipefootball.suggest.TeamSuggestIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Binary snapshots of all the teams and players, to rebuild a test or staging environment without replaying the writes
+ *
+ * A snapshot streams every shard with a single join ordered by team, so each shard is read consistently, and writes
+ * checksummed blocks to a temporary file renamed once complete (see SnapshotFormat).
+ * A restore first checks the whole file, then replaces the teams and players of each shard in one transaction with
+ * batched JDBC inserts keeping the ids and the versions of the snapshot (the entities, the events and the change log are
+ * bypassed). The restored teams get new change sequence numbers and the teams the restore removes get tombstones, so the
+ * delta sync sends the restore to its clients like any other change; the subscribers of the change feed get a "reset"
+ * event. The identity columns are moved past the restored ids, and the in-memory indexes of this instance are rebuilt.
+ * A restore is an offline operation: the other instances must be restarted. The shards are restored one after the other,
+ * a failure on a shard (after the checks of the file) leaves the shards before it restored and the others unchanged: the
+ * restore can be run again.
+ */
+@Component
+public class TeamSnapshots {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamSnapshots.class);
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,99}");
+    private static final String EXTENSION = ".snapshot";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeSequence changeSequence;
+    private final PositionDictionary positionDictionary;
+    private final TeamCache teamCache;
+    private final TeamIdFilter teamIdFilter;
+    private final TeamSuggestIndex teamSuggestIndex;
+    private final BudgetLeaderboard budgetLeaderboard;
+    private final BudgetDistribution budgetDistribution;
+    private final TeamChangeFeed teamChangeFeed;
+    private final Path directory;
+    private final int blockSize;
+
+    public TeamSnapshots(JdbcTemplate jdbcTemplate, Shards shards, PlatformTransactionManager transactionManager,
+                         ChangeSequence changeSequence, PositionDictionary positionDictionary, TeamCache teamCache,
+                         TeamIdFilter teamIdFilter, TeamSuggestIndex teamSuggestIndex, BudgetLeaderboard budgetLeaderboard,
+                         BudgetDistribution budgetDistribution, TeamChangeFeed teamChangeFeed,
+                         @Value("${equipe.snapshot.directory:${user.home}/equipe-football-snapshots}") String directory,
+                         @Value("${equipe.snapshot.block-size:1048576}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.changeSequence = changeSequence;
+        this.positionDictionary = positionDictionary;
+        this.teamCache = teamCache;
+        this.teamIdFilter = teamIdFilter;
+        this.teamSuggestIndex = teamSuggestIndex;
+        this.budgetLeaderboard = budgetLeaderboard;
+        this.budgetDistribution = budgetDistribution;
+        this.teamChangeFeed = teamChangeFeed;
+        this.directory = Path.of(directory);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Write a snapshot of all the teams and players, replacing the snapshot with the same name
+     *
+     * @param name the name of the snapshot
+     * @return the name, the number of teams and players, the size and the duration
+     * @throws IllegalArgumentException if the name is invalid
+     */
+    public synchronized TeamSnapshotDto write(String name) {
+        Path file = resolve(name);
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (SnapshotWriter writer = new SnapshotWriter(temporary, blockSize)) {
+                shards.getHomeJdbcTemplate().query("SELECT id, name FROM player_position ORDER BY id",
+                        resultSet -> {
+                            writer.position(resultSet.getShort("id"), resultSet.getString("name"));
+                        });
+                shards.forEach(() -> writeShard(writer));
+                writer.finish();
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                TeamSnapshotDto snapshot = new TeamSnapshotDto(name, writer.getTeams(), writer.getPlayers(), writer.getBytes(),
+                        (System.nanoTime() - start) / 1_000_000);
+                logger.info("Wrote snapshot {}: {} teams and {} players ({} bytes) in {} ms", name, snapshot.getTeams(),
+                        snapshot.getPlayers(), snapshot.getBytes(), snapshot.getDurationMs());
+                return snapshot;
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + name, e);
+        }
+    }
+
+    /**
+     * Replace all the teams and players with those of a snapshot
+     * The shards are restored one after the other: if the restore of a shard fails, the shards before it stay restored
+     *
+     * @param name the name of the snapshot
+     * @return the name, the number of teams and players, the size and the duration
+     * @throws IllegalArgumentException if the name is invalid, or the snapshot is damaged (checked before anything is restored)
+     * @throws ResourceNotFoundException if there is no snapshot with the given name
+     */
+    public synchronized TeamSnapshotDto restore(String name) {
+        Path file = resolve(name);
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("Snapshot not found with name " + name);
+        }
+        long start = System.nanoTime();
+        try {
+            Map<Short, Short> positionCodes = checkAndMapPositions(file);
+            SnapshotReader.Totals totals = null;
+            try {
+                for (int shard : shards.all()) {
+                    ShardLoader loader = new ShardLoader(file, shard, positionCodes);
+                    shards.runOn(shard, () -> transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute(loader)));
+                    shards.runOn(shard, () -> {
+                        shards.restartIdentity(jdbcTemplate, "team", shard);
+                        shards.restartIdentity(jdbcTemplate, "player", shard);
+                    });
+                    totals = loader.totals;
+                }
+            } finally {
+                // after a partial restore too, the shards already restored are committed
+                teamCache.invalidateAll();
+                teamIdFilter.rebuild();
+                teamSuggestIndex.rebuild();
+                budgetLeaderboard.rebuild();
+                budgetDistribution.rebuild();
+                teamChangeFeed.reset();
+            }
+
+            TeamSnapshotDto snapshot = new TeamSnapshotDto(name, totals.teams(), totals.players(), Files.size(file),
+                    (System.nanoTime() - start) / 1_000_000);
+            logger.info("Restored snapshot {}: {} teams and {} players in {} ms", name, snapshot.getTeams(), snapshot.getPlayers(),
+                    snapshot.getDurationMs());
+            return snapshot;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + name, e);
+        }
+    }
+
+    /**
+     * Verify the checksums of the whole snapshot before anything is deleted, and add its positions to the dictionary
+     *
+     * @return the codes of the positions in the snapshot mapped to their codes in this database
+     */
+    private Map<Short, Short> checkAndMapPositions(Path file) throws IOException {
+        Map<Short, Short> positionCodes = new HashMap<>();
+        try {
+            SnapshotReader.read(file, new SnapshotReader.Visitor() {
+                @Override
+                public void position(short code, String name) {
+                    positionCodes.put(code, positionDictionary.register(name));
+                }
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException(e); // not thrown, the visitor runs no statement
+        }
+        return positionCodes;
+    }
+
+    private void writeShard(SnapshotWriter writer) {
+        long[] lastTeamId = {SnapshotFormat.NO_TEAM};
+        jdbcTemplate.query("SELECT t.id, t.name, t.acronym, t.budget, t.version, t.change_seq, "
+                + "p.id AS player_id, p.name AS player_name, p.position_code "
+                + "FROM team t LEFT JOIN player p ON p.team_id = t.id ORDER BY t.id, p.id", resultSet -> {
+            long teamId = resultSet.getLong("id");
+            if (teamId != lastTeamId[0]) {
+                writer.team(teamId, resultSet.getString("name"), resultSet.getString("acronym"), resultSet.getDouble("budget"),
+                        (Long) resultSet.getObject("version"), (Long) resultSet.getObject("change_seq"));
+                lastTeamId[0] = teamId;
+            }
+            long playerId = resultSet.getLong("player_id");
+            if (!resultSet.wasNull()) {
+                writer.player(playerId, teamId, resultSet.getString("player_name"), positionCode(resultSet.getObject("position_code")));
+            }
+        });
+        jdbcTemplate.query("SELECT id, name, position_code FROM player WHERE team_id IS NULL",
+                resultSet -> {
+                    writer.player(resultSet.getLong("id"), SnapshotFormat.NO_TEAM, resultSet.getString("name"),
+                            positionCode(resultSet.getObject("position_code")));
+                });
+    }
+
+    private static short positionCode(Object code) {
+        return code == null ? SnapshotFormat.NO_POSITION : ((Number) code).shortValue();
+    }
+
+    private Path resolve(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot name: " + name);
+        }
+        return directory.resolve(name + EXTENSION);
+    }
+
+    /**
+     * Replaces the rows of a shard with the rows of the snapshot that belong to it, on the connection of the transaction
+     * The restored teams are numbered by the change sequence, and the teams of the shard missing from the snapshot get tombstones.
+     */
+    private class ShardLoader implements ConnectionCallback<Void>, SnapshotReader.Visitor {
+
+        private static final int CHANGE_SEQ_BLOCK = 1000;
+
+        private final Path file;
+        private final int shard;
+        private final Map<Short, Short> positionCodes;
+        private final Set<Long> removedIds = new HashSet<>();
+        private PreparedStatement insertTeam;
+        private PreparedStatement insertPlayer;
+        private long[] changeSeqs = new long[0];
+        private int nextChangeSeq;
+        private SnapshotReader.Totals totals;
+
+        ShardLoader(Path file, int shard, Map<Short, Short> positionCodes) {
+            this.file = file;
+            this.shard = shard;
+            this.positionCodes = positionCodes;
+        }
+
+        @Override
+        public Void doInConnection(Connection connection) throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet ids = statement.executeQuery("SELECT id FROM team")) {
+                    while (ids.next()) {
+                        removedIds.add(ids.getLong(1));
+                    }
+                }
+                statement.executeUpdate("DELETE FROM player");
+                statement.executeUpdate("DELETE FROM team");
+            }
+            try (PreparedStatement teams = connection.prepareStatement(
+                    "INSERT INTO team (id, name, acronym, budget, version, change_seq) VALUES (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement players = connection.prepareStatement(
+                         "INSERT INTO player (id, name, position_code, team_id) VALUES (?, ?, ?, ?)")) {
+                insertTeam = teams;
+                insertPlayer = players;
+                totals = SnapshotReader.read(file, this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try (Statement statement = connection.createStatement();
+                 PreparedStatement tombstones = connection.prepareStatement(
+                         "MERGE INTO team_tombstone (team_id, change_seq, deleted_at) KEY (team_id) VALUES (?, ?, ?)")) {
+                // a restored team is no longer deleted, a removed one is deleted by the restore
+                statement.executeUpdate("DELETE FROM team_tombstone WHERE team_id IN (SELECT id FROM team)");
+                Timestamp deletedAt = Timestamp.valueOf(LocalDateTime.now());
+                for (long id : removedIds) {
+                    tombstones.setLong(1, id);
+                    tombstones.setLong(2, nextChangeSeq());
+                    tombstones.setTimestamp(3, deletedAt);
+                    tombstones.addBatch();
+                }
+                tombstones.executeBatch();
+            }
+            return null;
+        }
+
+        @Override
+        public void team(long id, String name, String acronym, double budget, Long version, Long changeSeq) throws SQLException {
+            if (shards.shardOf(id) != shard) {
+                return;
+            }
+            removedIds.remove(id);
+            insertTeam.setLong(1, id);
+            insertTeam.setString(2, name);
+            insertTeam.setString(3, acronym);
+            insertTeam.setDouble(4, budget);
+            insertTeam.setObject(5, version, Types.BIGINT);
+            insertTeam.setLong(6, nextChangeSeq());
+            insertTeam.addBatch();
+        }
+
+        @Override
+        public void player(long id, long teamId, String name, short positionCode) throws SQLException {
+            if ((teamId == SnapshotFormat.NO_TEAM ? Shards.HOME : shards.shardOf(teamId)) != shard) {
+                return;
+            }
+            insertPlayer.setLong(1, id);
+            insertPlayer.setString(2, name);
+            insertPlayer.setObject(3, positionCode == SnapshotFormat.NO_POSITION ? null : positionCodes.get(positionCode), Types.SMALLINT);
+            insertPlayer.setObject(4, teamId == SnapshotFormat.NO_TEAM ? null : teamId, Types.BIGINT);
+            insertPlayer.addBatch();
+        }
+
+        /**
+         * The next number of the change sequence, allocated by blocks in the transaction of the shard (the unused ones are skipped)
+         */
+        private long nextChangeSeq() {
+            if (nextChangeSeq == changeSeqs.length) {
+                changeSeqs = changeSequence.next(CHANGE_SEQ_BLOCK);
+                nextChangeSeq = 0;
+            }
+            return changeSeqs[nextChangeSeq++];
+        }
+
+        @Override
+        public void endOfBlock() throws SQLException {
+            // the teams first, the players of a block may belong to its teams
+            insertTeam.executeBatch();
+            insertPlayer.executeBatch();
+        }
+    }
+}
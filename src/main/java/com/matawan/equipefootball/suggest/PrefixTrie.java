@@ -0,0 +1,282 @@
+package com.matawan.equipefootball.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compact prefix tree mapping string keys to values, several values may share a key
+ *
+ * Each node keeps its outgoing characters in a sorted char array next to the array of children (binary search,
+ * no per-edge objects) and only allocates the values array when a key ends there. Empty branches are pruned on removal.
+ * Every node also keeps a bit set of the lengths of the keys below it, so a search walks only the branches leading to
+ * the keys it returns instead of the whole subtree of a short prefix.
+ * Not thread safe, callers synchronize the access.
+ *
+ * @param <V> the type of the values
+ */
+public class PrefixTrie<V> {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    // key lengths (relative to a node) tracked one by one, longer keys share the last bit
+    private static final int LAST_LENGTH = 63;
+
+    private final Node root = new Node();
+    private int nodeCount = 1;
+    private int keyCount;
+    private int valueCount;
+
+    /**
+     * Associate a value with a key, nothing is done if the value is already associated with the key
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(String key, V value) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node.lengths |= 1L << Math.min(key.length() - i, LAST_LENGTH);
+            char label = key.charAt(i);
+            int index = Arrays.binarySearch(node.labels, label);
+            if (index < 0) {
+                index = -index - 1;
+                node.insertChild(index, label, new Node());
+                nodeCount++;
+            }
+            node = node.children[index];
+        }
+        if (node.values == null) {
+            node.values = new Object[]{value};
+            node.lengths |= 1L;
+            keyCount++;
+        } else {
+            for (Object existing : node.values) {
+                if (existing.equals(value)) {
+                    return;
+                }
+            }
+            node.values = Arrays.copyOf(node.values, node.values.length + 1);
+            node.values[node.values.length - 1] = value;
+        }
+        valueCount++;
+    }
+
+    /**
+     * Remove the association between a key and a value
+     *
+     * @param key the key
+     * @param value the value
+     * @return true if the value was associated with the key
+     */
+    public boolean remove(String key, V value) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            int index = Arrays.binarySearch(path[i].labels, key.charAt(i));
+            if (index < 0) {
+                return false;
+            }
+            path[i + 1] = path[i].children[index];
+        }
+
+        Node node = path[key.length()];
+        int position = node.values == null ? -1 : indexOf(node.values, value);
+        if (position < 0) {
+            return false;
+        }
+        if (node.values.length == 1) {
+            node.values = null;
+            keyCount--;
+        } else {
+            Object[] values = new Object[node.values.length - 1];
+            System.arraycopy(node.values, 0, values, 0, position);
+            System.arraycopy(node.values, position + 1, values, position, values.length - position);
+            node.values = values;
+        }
+        valueCount--;
+
+        // prune the nodes left without keys nor children and refresh the key lengths, from the bottom up
+        for (int i = key.length(); i >= 0; i--) {
+            if (i > 0 && path[i].isEmpty()) {
+                path[i - 1].removeChild(Arrays.binarySearch(path[i - 1].labels, key.charAt(i - 1)));
+                nodeCount--;
+            } else {
+                path[i].updateLengths();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the values of the keys starting with a prefix, the shortest keys first, then in alphabetical order of the keys
+     * Values of the same key are ranked with the given order, values found under several keys are returned once
+     * Each key length is walked depth first along the branches holding keys of that length, stopping at the limit
+     *
+     * @param prefix the prefix
+     * @param limit the maximum number of values
+     * @param order the order of the values of the same key
+     * @return at most limit values
+     */
+    public List<V> search(String prefix, int limit, Comparator<? super V> order) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            int index = Arrays.binarySearch(node.labels, prefix.charAt(i));
+            node = index < 0 ? null : node.children[index];
+        }
+        Set<V> result = new LinkedHashSet<>();
+        if (node == null) {
+            return List.of();
+        }
+        for (int length = 0; length <= LAST_LENGTH && result.size() < limit; length++) {
+            if (hasKeys(node, length, 0)) {
+                collect(node, 0, length, limit, order, result);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(Node node, int depth, int length, int limit, Comparator<? super V> order, Set<V> result) {
+        boolean last = length == LAST_LENGTH;
+        if (node.values != null && (depth == length || (last && depth > length))) {
+            List<V> values = new ArrayList<>(node.values.length);
+            for (Object value : node.values) {
+                values.add((V) value);
+            }
+            values.sort(order);
+            for (int i = 0; i < values.size() && result.size() < limit; i++) {
+                result.add(values.get(i));
+            }
+        }
+        if (depth == length && !last) {
+            return;
+        }
+        for (Node child : node.children) {
+            if (result.size() >= limit) {
+                return;
+            }
+            if (hasKeys(child, length, depth + 1)) {
+                collect(child, depth + 1, length, limit, order, result);
+            }
+        }
+    }
+
+    /**
+     * Whether a node at the given depth below the prefix leads to keys of the given length (or longer for the last length)
+     */
+    private static boolean hasKeys(Node node, int length, int depth) {
+        int remaining = Math.max(length - depth, 0);
+        if (length == LAST_LENGTH) {
+            return (node.lengths >>> remaining) != 0;
+        }
+        return ((node.lengths >>> remaining) & 1L) != 0;
+    }
+
+    public void clear() {
+        root.labels = NO_LABELS;
+        root.children = NO_CHILDREN;
+        root.values = null;
+        root.lengths = 0;
+        nodeCount = 1;
+        keyCount = 0;
+        valueCount = 0;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * Estimate the heap used by the nodes and their arrays, excluding the values themselves
+     * Assumes a 64-bit JVM with compressed references (12 byte headers, 4 byte references, 8 byte alignment)
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateBytes() {
+        return estimateBytes(root);
+    }
+
+    private long estimateBytes(Node node) {
+        long bytes = align(12 + 3 * 4 + 8) // header, the three array references and the key lengths
+                + (node.labels.length == 0 ? 0 : align(16 + 2L * node.labels.length))
+                + (node.children.length == 0 ? 0 : align(16 + 4L * node.children.length))
+                + (node.values == null ? 0 : align(16 + 4L * node.values.length));
+        for (Node child : node.children) {
+            bytes += estimateBytes(child);
+        }
+        return bytes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static int indexOf(Object[] values, Object value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        Object[] values;
+        long lengths; // bit i is set when a key ends i characters below the node (bit 0: a key ends here)
+
+        void insertChild(int index, char label, Node child) {
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newLabels[index] = label;
+            newChildren[index] = child;
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        void removeChild(int index) {
+            if (labels.length == 1) {
+                labels = NO_LABELS;
+                children = NO_CHILDREN;
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, newLabels.length - index);
+            System.arraycopy(children, index + 1, newChildren, index, newChildren.length - index);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        void updateLengths() {
+            long mask = values != null ? 1L : 0L;
+            for (Node child : children) {
+                mask |= (child.lengths << 1) | (child.lengths & (1L << LAST_LENGTH)); // longer keys stay on the last bit
+            }
+            lengths = mask;
+        }
+
+        boolean isEmpty() {
+            return values == null && labels.length == 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.matawan.equipefootball.suggest;
+
+import com.matawan.equipefootball.dto.SuggestIndexStatsDto;
+import com.matawan.equipefootball.dto.TeamSuggestionDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/teams/suggest")
+public class TeamSuggestController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamSuggestController.class);
+
+    // upper bound of suggestions in a response
+    private static final int MAX_LIMIT = 50;
+
+    private final TeamSuggestIndex teamSuggestIndex;
+
+    public TeamSuggestController(TeamSuggestIndex teamSuggestIndex) {
+        this.teamSuggestIndex = teamSuggestIndex;
+    }
+
+    /**
+     * Suggest team names, acronyms and player names starting with the typed text, for example /api/teams/suggest?q=par
+     *
+     * @param q the typed text
+     * @param limit the maximum number of suggestions, default is 10
+     * @return the suggestions, best first
+     */
+    @GetMapping
+    public ResponseEntity<?> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            logger.error("Invalid suggestion limit: {}", limit);
+            return ResponseEntity.badRequest().body(String.format("The limit must be between 1 and %d", MAX_LIMIT));
+        }
+        List<TeamSuggestionDto> suggestions = teamSuggestIndex.suggest(q, limit);
+        logger.debug("Returning {} suggestions for '{}'", suggestions.size(), q);
+        return ResponseEntity.ok(suggestions);
+    }
+
+    /**
+     * Get the size and the estimated memory footprint of the autocomplete index
+     *
+     * @return the index statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<SuggestIndexStatsDto> getStats() {
+        return ResponseEntity.ok(teamSuggestIndex.getStats());
+    }
+}
@@ -0,0 +1,318 @@
+package com.matawan.equipefootball.suggest;
+
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.SuggestIndexStatsDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.TeamSuggestionDto;
+import com.matawan.equipefootball.event.RemoteTeamChangedEvent;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import com.matawan.equipefootball.sharding.Shards;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory autocomplete index over the team names, acronyms and player names
+ *
+ * Texts are normalized (lower case, no accents, punctuation as spaces) and indexed from the start of every word, so
+ * "germ" finds "Paris Saint-Germain". Suggestions are ranked by the length of the matched text (exact matches first),
+ * then alphabetically, then team names before acronyms before players for the same text.
+ *
+ * The index is loaded once at startup and then follows the committed changes, those of the other instances by reloading
+ * the team when the change log poller reports them. Lookups share a read lock, writes take the write lock for the few
+ * keys they touch.
+ */
+@Component
+public class TeamSuggestIndex implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamSuggestIndex.class);
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Comparator<Suggestion> RANKING = Comparator.comparing(Suggestion::type)
+            .thenComparing(Suggestion::text, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingLong(Suggestion::teamId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by the lock
+    private final PrefixTrie<Suggestion> trie = new PrefixTrie<>();
+    private final Map<Long, IndexedTeam> teams = new HashMap<>();
+
+    public TeamSuggestIndex(JdbcTemplate jdbcTemplate, Shards shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Reload the whole index from the database
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            trie.clear();
+            teams.clear();
+            shards.forEach(() -> jdbcTemplate.query("SELECT id, name, acronym, version FROM team", resultSet -> {
+                IndexedTeam team = new IndexedTeam(resultSet.getLong("id"), (Long) resultSet.getObject("version"));
+                teams.put(team.id, team);
+                team.name = add(Type.TEAM, team.id, null, resultSet.getString("name"));
+                team.acronym = add(Type.ACRONYM, team.id, null, resultSet.getString("acronym"));
+            }));
+            shards.forEach(() -> jdbcTemplate.query("SELECT id, name, team_id FROM player WHERE team_id IS NOT NULL", resultSet -> {
+                IndexedTeam team = teams.get(resultSet.getLong("team_id"));
+                if (team != null) {
+                    long playerId = resultSet.getLong("id");
+                    team.players.put(playerId, add(Type.PLAYER, team.id, playerId, resultSet.getString("name")));
+                }
+            }));
+            logger.info("Suggest index built in {} ms: {} teams, {} keys, {} nodes", (System.nanoTime() - start) / 1_000_000,
+                    teams.size(), trie.getKeyCount(), trie.getNodeCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the best suggestions for what the user has typed so far
+     *
+     * @param query the typed text
+     * @param limit the maximum number of suggestions
+     * @return the suggestions, best first
+     */
+    public List<TeamSuggestionDto> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        List<Suggestion> suggestions;
+        lock.readLock().lock();
+        try {
+            suggestions = trie.search(prefix, limit, RANKING);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return suggestions.stream()
+                .map(suggestion -> new TeamSuggestionDto(suggestion.text(), suggestion.type().name().toLowerCase(Locale.ROOT),
+                        suggestion.teamId(), suggestion.playerId()))
+                .toList();
+    }
+
+    public SuggestIndexStatsDto getStats() {
+        lock.readLock().lock();
+        try {
+            long bytes = trie.estimateBytes();
+            int suggestions = 0;
+            for (IndexedTeam team : teams.values()) {
+                bytes += team.estimateBytes();
+                suggestions += (team.name != null ? 1 : 0) + (team.acronym != null ? 1 : 0) + team.players.size();
+            }
+            return new SuggestIndexStatsDto(teams.size(), suggestions, trie.getKeyCount(), trie.getNodeCount(), bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply a committed change to the index
+     * Listeners of concurrent commits may run in any order, updates older than the indexed version are ignored
+     *
+     * @param event the committed change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            IndexedTeam team = teams.get(event.getTeamId());
+            switch (event.getType()) {
+                case CREATED -> index(event.getTeam());
+                case UPDATED -> {
+                    TeamDto updated = event.getTeam();
+                    if (team != null && (team.version == null || updated.getVersion() == null || updated.getVersion() > team.version)) {
+                        team.version = updated.getVersion();
+                        remove(team.name);
+                        remove(team.acronym);
+                        team.name = add(Type.TEAM, team.id, null, updated.getName());
+                        team.acronym = add(Type.ACRONYM, team.id, null, updated.getAcronym());
+                    }
+                }
+                case DELETED -> unindex(team);
+                case PLAYER_ADDED -> {
+                    if (team != null) {
+                        PlayerDto player = event.getPlayer();
+                        team.players.put(player.getId(), add(Type.PLAYER, team.id, player.getId(), player.getName()));
+                    }
+                }
+                case PLAYER_REMOVED -> {
+                    if (team != null) {
+                        remove(team.players.remove(event.getPlayer().getId()));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index again a team written by another instance, as committed in the database
+     *
+     * @param event the change logged by the other instance
+     */
+    @EventListener
+    public void onRemoteTeamChanged(RemoteTeamChangedEvent event) {
+        long teamId = event.getTeamId();
+        TeamDto committed = shards.callOn(shards.shardOf(teamId), () -> {
+            List<TeamDto> found = jdbcTemplate.query("SELECT name, acronym, version FROM team WHERE id = ?", (resultSet, rowNum) -> {
+                TeamDto team = new TeamDto();
+                team.setId(teamId);
+                team.setName(resultSet.getString("name"));
+                team.setAcronym(resultSet.getString("acronym"));
+                team.setVersion((Long) resultSet.getObject("version"));
+                return team;
+            }, teamId);
+            if (!found.isEmpty()) {
+                found.get(0).setPlayers(jdbcTemplate.query("SELECT id, name FROM player WHERE team_id = ?",
+                        (resultSet, rowNum) -> new PlayerDto(resultSet.getLong("id"), resultSet.getString("name"), null), teamId));
+            }
+            return found.isEmpty() ? null : found.get(0);
+        });
+        lock.writeLock().lock();
+        try {
+            unindex(teams.get(teamId));
+            if (committed != null) {
+                index(committed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(IndexedTeam team) {
+        if (team != null) {
+            teams.remove(team.id);
+            remove(team.name);
+            remove(team.acronym);
+            team.players.values().forEach(this::remove);
+        }
+    }
+
+    private void index(TeamDto teamDto) {
+        IndexedTeam team = new IndexedTeam(teamDto.getId(), teamDto.getVersion());
+        teams.put(team.id, team);
+        team.name = add(Type.TEAM, team.id, null, teamDto.getName());
+        team.acronym = add(Type.ACRONYM, team.id, null, teamDto.getAcronym());
+        if (teamDto.getPlayers() != null) {
+            for (PlayerDto player : teamDto.getPlayers()) {
+                team.players.put(player.getId(), add(Type.PLAYER, team.id, player.getId(), player.getName()));
+            }
+        }
+    }
+
+    private Suggestion add(Type type, long teamId, Long playerId, String text) {
+        if (text == null || normalize(text).isEmpty()) {
+            return null;
+        }
+        Suggestion suggestion = new Suggestion(type, teamId, playerId, text);
+        for (String key : keys(text)) {
+            trie.put(key, suggestion);
+        }
+        return suggestion;
+    }
+
+    private void remove(Suggestion suggestion) {
+        if (suggestion != null) {
+            for (String key : keys(suggestion.text())) {
+                trie.remove(key, suggestion);
+            }
+        }
+    }
+
+    /**
+     * The keys of a text: the normalized text from the start of each word
+     */
+    static List<String> keys(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>();
+        if (!normalized.isEmpty()) {
+            keys.add(normalized);
+            for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+                keys.add(normalized.substring(i + 1));
+            }
+        }
+        return keys;
+    }
+
+    static String normalize(String text) {
+        String withoutAccents = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private enum Type {
+        TEAM,
+        ACRONYM,
+        PLAYER
+    }
+
+    private record Suggestion(Type type, long teamId, Long playerId, String text) {
+    }
+
+    /**
+     * What is indexed for a team, so updates and deletes know which keys to remove
+     */
+    private static final class IndexedTeam {
+        final long id;
+        Long version;
+        Suggestion name;
+        Suggestion acronym;
+        final Map<Long, Suggestion> players = new LinkedHashMap<>();
+
+        IndexedTeam(long id, Long version) {
+            this.id = id;
+            this.version = version;
+        }
+
+        /**
+         * Estimated heap of the entry, its suggestions and their texts (compact Latin-1 strings assumed)
+         */
+        long estimateBytes() {
+            long bytes = 32 + 48 + 48; // entry, map entry in the index and the players map
+            bytes += estimateBytes(name) + estimateBytes(acronym);
+            for (Suggestion player : players.values()) {
+                bytes += 32 + 16 + estimateBytes(player); // map entry, boxed id and suggestion
+            }
+            return bytes;
+        }
+
+        private static long estimateBytes(Suggestion suggestion) {
+            if (suggestion == null) {
+                return 0;
+            }
+            return 32 + 24 + ((16 + suggestion.text().length() + 7) & ~7L);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.matawan.equipefootball.timing;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Time spent by the request being handled in JDBC, in the entity to DTO mapping and in the serialization of the response,
+ * and the number of SQL statements it executed (by type, batches count once)
+ *
+ * The timing is bound to the thread handling a sampled request (and to the threads querying the shards for it), every
+ * recording method is a no-op on a thread without timing. The JDBC time of parallel shard queries is summed.
+ */
+public final class RequestTiming {
+
+    /**
+     * Type of an SQL statement, from its first keyword
+     */
+    public enum StatementType {
+        SELECT, INSERT, UPDATE, DELETE, OTHER;
+
+        /**
+         * @param sql the SQL of the statement, null if unknown
+         * @return the type of the statement (a common table expression is a query)
+         */
+        public static StatementType of(String sql) {
+            if (sql == null) {
+                return OTHER;
+            }
+            int start = 0;
+            while (start < sql.length() && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(')) {
+                start++;
+            }
+            int end = start;
+            while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+                end++;
+            }
+            return switch (sql.substring(start, end).toLowerCase(Locale.ROOT)) {
+                case "select", "with" -> SELECT;
+                case "insert" -> INSERT;
+                case "update" -> UPDATE;
+                case "delete" -> DELETE;
+                default -> OTHER;
+            };
+        }
+    }
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    // JDBC time of the current thread, excluded from the mapping that triggered the queries
+    private static final ThreadLocal<long[]> THREAD_JDBC_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong jdbcNanos = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLongArray statementsByType = new AtomicLongArray(StatementType.values().length);
+    private final AtomicLong mappingNanos = new AtomicLong();
+    private final AtomicLong serializationNanos = new AtomicLong();
+
+    /**
+     * @return the timing of the request handled by this thread, null if the request is not sampled
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run a task for the current request on another thread, its JDBC time is added to the request
+     *
+     * @param timing the timing of the request, null runs the task without timing
+     * @param task the task
+     * @return the result of the task
+     */
+    public static <T> T callWith(RequestTiming timing, Supplier<T> task) {
+        RequestTiming previous = bind(timing);
+        try {
+            return task.get();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    /**
+     * Run the mapping of entities to DTOs, the queries it runs are counted as JDBC time
+     *
+     * @param mapping the mapping
+     * @return the DTOs
+     */
+    public static <T> T mapping(Supplier<T> mapping) {
+        RequestTiming timing = CURRENT.get();
+        if (timing == null) {
+            return mapping.get();
+        }
+        long[] threadJdbcNanos = THREAD_JDBC_NANOS.get();
+        long jdbcBefore = threadJdbcNanos[0];
+        long start = System.nanoTime();
+        try {
+            return mapping.get();
+        } finally {
+            timing.mappingNanos.addAndGet(System.nanoTime() - start - (threadJdbcNanos[0] - jdbcBefore));
+        }
+    }
+
+    static RequestTiming bind(RequestTiming timing) {
+        RequestTiming previous = CURRENT.get();
+        if (timing == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(timing);
+        }
+        return previous;
+    }
+
+    void addStatement(StatementType type, long nanos) {
+        statements.incrementAndGet();
+        statementsByType.incrementAndGet(type.ordinal());
+        jdbcNanos.addAndGet(nanos);
+        THREAD_JDBC_NANOS.get()[0] += nanos;
+    }
+
+    void addSerialization(long nanos) {
+        serializationNanos.addAndGet(nanos);
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos.get();
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    public long getStatements(StatementType type) {
+        return statementsByType.get(type.ordinal());
+    }
+
+    public long getMappingNanos() {
+        return mappingNanos.get();
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos.get();
+    }
+
+    /**
+     * @param totalNanos the total time of the request
+     * @return the value of the Server-Timing header, durations in milliseconds
+     */
+    public String toServerTiming(long totalNanos) {
+        return String.format(Locale.ROOT, "db;dur=%.2f;desc=\"%d statements\", mapping;dur=%.2f, serialization;dur=%.2f, total;dur=%.2f",
+                millis(getJdbcNanos()), getStatements(), millis(getMappingNanos()), millis(getSerializationNanos()), millis(totalNanos));
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
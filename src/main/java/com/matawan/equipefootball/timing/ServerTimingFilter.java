@@ -0,0 +1,69 @@
+package com.matawan.equipefootball.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times a sample of the requests: the JDBC, mapping and serialization times and the number of SQL statements are sent
+ * in a Server-Timing header and written to an access log line (key=value pairs)
+ *
+ * The response of a sampled request is buffered so the header can include the serialization, other requests are not
+ * instrumented at all.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    static final String HEADER_NAME = "Server-Timing";
+
+    private final double sampleRate;
+
+    public ServerTimingFilter(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ContentCachingResponseWrapper bufferedResponse = new ContentCachingResponseWrapper(response);
+        RequestTiming timing = new RequestTiming();
+        RequestTiming previous = RequestTiming.bind(timing);
+        try {
+            filterChain.doFilter(request, bufferedResponse);
+        } finally {
+            RequestTiming.bind(previous);
+            long totalNanos = timing.getElapsedNanos();
+            bufferedResponse.setHeader(HEADER_NAME, timing.toServerTiming(totalNanos));
+            if (logger.isInfoEnabled()) {
+                logger.info(String.format(Locale.ROOT, "method=%s path=%s status=%d total_ms=%.2f db_ms=%.2f db_statements=%d mapping_ms=%.2f serialization_ms=%.2f",
+                        request.getMethod(), request.getRequestURI(), bufferedResponse.getStatus(), RequestTiming.millis(totalNanos),
+                        RequestTiming.millis(timing.getJdbcNanos()), timing.getStatements(), RequestTiming.millis(timing.getMappingNanos()),
+                        RequestTiming.millis(timing.getSerializationNanos())));
+            }
+            bufferedResponse.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * The change feed is a long-lived asynchronous stream and the export downloads are sent from their file, they are not buffered
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.endsWith("/api/teams/changes") || (uri.contains("/api/teams/export-jobs/") && uri.endsWith("/file"));
+    }
+}
@@ -0,0 +1,175 @@
+package com.matawan.equipefootball.timing;
+
+import com.matawan.equipefootball.slowquery.SlowQueryLog;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data source whose statements add their execution time to the timing of the current request, and report the
+ * executions above the threshold to the slow query log (with their bind parameters)
+ * Without timing and without slow query log, statements only go through the proxy, nothing is measured.
+ * The slow statements are explained on a connection of the pool behind the routing data sources (shard, primary or
+ * replica) whose JDBC URL is the one of the connection that ran them.
+ */
+public class TimedDataSource extends DelegatingDataSource {
+
+    private final SlowQueryLog slowQueryLog;
+    // pools behind the routing data sources by JDBC URL, resolved at the first plan
+    private volatile Map<String, DataSource> poolsByUrl;
+
+    /**
+     * @param targetDataSource the data source
+     * @param slowQueryLog the slow query log, null when it is disabled
+     */
+    public TimedDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(super.getConnection(username, password));
+    }
+
+    private Connection timed(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement) {
+                        // prepareStatement and prepareCall get the SQL as first argument, createStatement gets it at execution
+                        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                        return timed(statement, sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement timed(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        InvocationHandler handler = new InvocationHandler() {
+
+            private final RequestTiming.StatementType preparedType = RequestTiming.StatementType.of(preparedSql);
+            // bind parameters by index, only kept for the slow query log
+            private Object[] parameters = slowQueryLog != null && preparedSql != null ? new Object[8] : null;
+            private int highestIndex;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (parameters != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    bind(index, name.equals("setNull") ? null : args[1]);
+                } else if (parameters != null && name.equals("clearParameters")) {
+                    Arrays.fill(parameters, null);
+                    highestIndex = 0;
+                }
+                RequestTiming timing = RequestTiming.current();
+                if (!name.startsWith("execute") || (timing == null && slowQueryLog == null)) {
+                    return TimedDataSource.invoke(statement, method, args);
+                }
+                long start = System.nanoTime();
+                try {
+                    return TimedDataSource.invoke(statement, method, args);
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    String sql = preparedSql != null ? preparedSql : args != null && args.length > 0 ? String.valueOf(args[0]) : null;
+                    if (timing != null) {
+                        timing.addStatement(preparedSql != null ? preparedType : RequestTiming.StatementType.of(sql), nanos);
+                    }
+                    if (slowQueryLog != null && slowQueryLog.isSlow(nanos) && sql != null) {
+                        String url = slowQueryLog.isExplaining() ? url(statement) : null;
+                        slowQueryLog.record(sql, parameters == null ? null : Arrays.copyOf(parameters, highestIndex + 1), nanos,
+                                () -> explainDataSource(url));
+                    }
+                }
+            }
+
+            private void bind(int index, Object value) {
+                if (index >= parameters.length) {
+                    parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+                }
+                parameters[index] = value;
+                highestIndex = Math.max(highestIndex, index);
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * @return the JDBC URL of the connection of a statement (known by the driver, no round-trip), null if unavailable
+     */
+    private static String url(Statement statement) {
+        try {
+            return statement.getConnection().getMetaData().getURL();
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param url the JDBC URL of the connection that ran a statement
+     * @return the pool with that URL, the routed data source if none matches
+     */
+    private DataSource explainDataSource(String url) {
+        if (poolsByUrl == null) {
+            Map<String, DataSource> pools = new ConcurrentHashMap<>();
+            for (DataSource pool : pools(getTargetDataSource())) {
+                try (Connection connection = pool.getConnection()) {
+                    pools.putIfAbsent(connection.getMetaData().getURL(), pool);
+                } catch (SQLException e) {
+                    // an unavailable pool is not explained on
+                }
+            }
+            poolsByUrl = pools;
+        }
+        DataSource pool = url == null ? null : poolsByUrl.get(url);
+        return pool != null ? pool : getTargetDataSource();
+    }
+
+    private static List<DataSource> pools(DataSource dataSource) {
+        List<DataSource> pools = new ArrayList<>();
+        if (dataSource instanceof DelegatingDataSource delegating && delegating.getTargetDataSource() != null) {
+            pools.addAll(pools(delegating.getTargetDataSource()));
+        } else if (dataSource instanceof AbstractRoutingDataSource routing) {
+            routing.getResolvedDataSources().values().forEach(target -> pools.addAll(pools(target)));
+        } else if (dataSource != null) {
+            pools.add(dataSource);
+        }
+        return pools;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
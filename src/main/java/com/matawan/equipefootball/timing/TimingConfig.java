@@ -0,0 +1,59 @@
+package com.matawan.equipefootball.timing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.slowquery.SlowQueryLog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import javax.sql.DataSource;
+
+/**
+ * Per-request timing, enabled by equipe.timing.enabled: equipe.timing.sample-rate of the requests to the API get a
+ * Server-Timing header and an access log line
+ * The statements are timed by the data source, which also feeds the slow query log when it is enabled.
+ */
+@Configuration
+public class TimingConfig {
+
+    /**
+     * Wraps the data source used by JPA and the JDBC templates (the routing data source with shards or a replica)
+     */
+    @Bean
+    public static BeanPostProcessor timedDataSourcePostProcessor(@Value("${equipe.timing.enabled:true}") boolean timingEnabled,
+                                                                 ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource && !(bean instanceof TimedDataSource)) {
+                    SlowQueryLog log = slowQueryLog.getIfAvailable();
+                    if (timingEnabled || log != null) {
+                        return new TimedDataSource(dataSource, log);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "equipe.timing.enabled", havingValue = "true", matchIfMissing = true)
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new TimedJacksonConverter(objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "equipe.timing.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(@Value("${equipe.timing.sample-rate:0.01}") double sampleRate) {
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(new ServerTimingFilter(sampleRate));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1); // before the other filters, the total includes them
+        return registration;
+    }
+}
@@ -0,0 +1,41 @@
+package com.matawan.equipefootball.warmup;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Records the latency of the team requests in the warm-up status, which keeps those of the first minute after startup
+ */
+public class StartupLatencyFilter extends OncePerRequestFilter {
+
+    private final WarmUpStatus status;
+
+    public StartupLatencyFilter(WarmUpStatus status) {
+        this.status = status;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            status.recordLatency(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The change feed is a long-lived asynchronous stream and the export downloads are bulk transfers, their duration is not a latency
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.endsWith("/api/teams/changes") || (uri.contains("/api/teams/export-jobs/") && uri.endsWith("/file"));
+    }
+}
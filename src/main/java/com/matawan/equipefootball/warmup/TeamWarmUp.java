@@ -0,0 +1,148 @@
+package com.matawan.equipefootball.warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.leaderboard.BudgetLeaderboard;
+import com.matawan.equipefootball.service.TeamService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Warms the instance up before it reports ready: the application runners run before Spring Boot switches the readiness
+ * state to ACCEPTING_TRAFFIC, so the readiness probe fails until the warm-up is done or timeout-ms has passed
+ *
+ * The richest teams and the teams on the first pages of the configured sorts are loaded into the team cache, then the
+ * list queries are run and their pages serialized for rounds rounds, so the H2 pages, the query plans of Hibernate and
+ * the JIT-compiled mapping and serialization code are ready for the first requests.
+ */
+@Component
+@ConditionalOnProperty(name = "equipe.warmup.enabled", havingValue = "true")
+public class TeamWarmUp implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeamWarmUp.class);
+
+    private final TeamService teamService;
+    private final BudgetLeaderboard budgetLeaderboard;
+    private final ObjectMapper objectMapper;
+    private final WarmUpStatus status;
+    private final int hotTeams;
+    private final List<List<String>> sorts;
+    private final int pages;
+    private final int pageSize;
+    private final int rounds;
+    private final long timeoutMillis;
+
+    public TeamWarmUp(TeamService teamService, BudgetLeaderboard budgetLeaderboard, ObjectMapper objectMapper, WarmUpStatus status,
+                      @Value("${equipe.warmup.hot-teams:200}") int hotTeams,
+                      @Value("${equipe.warmup.sorts:name;-budget;acronym}") String sorts,
+                      @Value("${equipe.warmup.pages:3}") int pages,
+                      @Value("${equipe.warmup.page-size:20}") int pageSize,
+                      @Value("${equipe.warmup.rounds:200}") int rounds,
+                      @Value("${equipe.warmup.timeout-ms:30000}") long timeoutMillis) {
+        this.teamService = teamService;
+        this.budgetLeaderboard = budgetLeaderboard;
+        this.objectMapper = objectMapper;
+        this.status = status;
+        this.hotTeams = hotTeams;
+        // sort combinations separated by ';', the fields of a combination by ','
+        this.sorts = Arrays.stream(sorts.split(";")).map(String::trim).filter(sort -> !sort.isEmpty())
+                .map(sort -> Arrays.stream(sort.split(",")).map(String::trim).toList()).toList();
+        this.pages = pages;
+        this.pageSize = pageSize;
+        this.rounds = rounds;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "team-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Warming up, the instance is not ready until the warm-up is done (at most {} ms)", timeoutMillis);
+        status.start();
+        Future<?> warmUp = executor.submit(this::warmUp);
+        try {
+            warmUp.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            status.finish(WarmUpStatus.State.COMPLETED);
+        } catch (TimeoutException e) {
+            warmUp.cancel(true);
+            status.finish(WarmUpStatus.State.TIMED_OUT);
+        } catch (ExecutionException e) {
+            // a failed warm-up only leaves the instance cold
+            logger.warn("Warm-up failed: {}", e.getCause().getMessage());
+            status.finish(WarmUpStatus.State.FAILED);
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Warm-up {} in {} ms: {} teams preloaded, {} queries, {} rounds", status.getState(), status.getReport().getDurationMs(),
+                status.teamsPreloaded.get(), status.queries.get(), status.rounds.get());
+    }
+
+    private void warmUp() {
+        // teams likely to be read first: the richest ones and those listed on the first pages
+        Set<Long> teamIds = new LinkedHashSet<>(budgetLeaderboard.getTeamIds(0, hotTeams));
+        List<Page<TeamDto>> firstPages = new ArrayList<>();
+        for (List<String> sort : sorts) {
+            for (int page = 0; page < pages && !Thread.currentThread().isInterrupted(); page++) {
+                Page<TeamDto> result = teamService.getTeams(page, pageSize, sort);
+                status.queries.incrementAndGet();
+                firstPages.add(result);
+                result.getContent().forEach(team -> teamIds.add(team.getId()));
+            }
+        }
+        List<TeamDto> teams = new ArrayList<>(teamIds.size());
+        for (Long id : teamIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                teams.add(teamService.getTeamById(id)); // cached
+                status.teamsPreloaded.incrementAndGet();
+            } catch (ResourceNotFoundException e) {
+                logger.debug("Team {} was deleted since it was listed, not preloaded", id);
+            }
+        }
+
+        // hot paths run often enough to be compiled: list queries, mapping and serialization
+        for (int round = 0; round < rounds && !Thread.currentThread().isInterrupted(); round++) {
+            List<String> sort = sorts.isEmpty() ? List.of() : sorts.get(round % sorts.size());
+            serialize(teamService.getTeams(0, pageSize, sort));
+            status.queries.incrementAndGet();
+            for (Page<TeamDto> page : firstPages) {
+                serialize(page);
+            }
+            serialize(teams);
+            status.rounds.incrementAndGet();
+        }
+    }
+
+    private void serialize(Object body) {
+        try {
+            objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + body.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.matawan.equipefootball.warmup;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Measures the latency of the team requests after startup, whether the warm-up (TeamWarmUp) is enabled or not
+ */
+@Configuration
+public class WarmUpConfig {
+
+    @Bean
+    public FilterRegistrationBean<StartupLatencyFilter> startupLatencyFilter(WarmUpStatus warmUpStatus) {
+        FilterRegistrationBean<StartupLatencyFilter> registration = new FilterRegistrationBean<>(new StartupLatencyFilter(warmUpStatus));
+        registration.addUrlPatterns("/api/teams/*"); // also matches /api/teams itself
+        return registration;
+    }
+}
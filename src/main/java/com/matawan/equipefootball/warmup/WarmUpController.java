@@ -0,0 +1,47 @@
+package com.matawan.equipefootball.warmup;
+
+import com.matawan.equipefootball.dto.WarmUpReportDto;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/warmup")
+public class WarmUpController {
+
+    private final WarmUpStatus warmUpStatus;
+    private final ApplicationAvailability applicationAvailability;
+
+    public WarmUpController(WarmUpStatus warmUpStatus, ApplicationAvailability applicationAvailability) {
+        this.warmUpStatus = warmUpStatus;
+        this.applicationAvailability = applicationAvailability;
+    }
+
+    /**
+     * Get the outcome of the warm-up and the latency of the team requests in the first minute after startup
+     *
+     * @return the warm-up report
+     */
+    @GetMapping
+    public ResponseEntity<WarmUpReportDto> getReport() {
+        return ResponseEntity.ok(warmUpStatus.getReport());
+    }
+
+    /**
+     * Readiness probe: the instance accepts traffic once it has started and warmed up (or the warm-up timed out)
+     *
+     * @return 200 when ready, 503 otherwise, with the readiness state
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, Object>> getReadiness() {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return new ResponseEntity<>(Map.of("status", state.name(), "warmUp", warmUpStatus.getState().name()), status);
+    }
+}
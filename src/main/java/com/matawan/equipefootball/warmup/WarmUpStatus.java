@@ -0,0 +1,94 @@
+package com.matawan.equipefootball.warmup;
+
+import com.matawan.equipefootball.analytics.LogHistogram;
+import com.matawan.equipefootball.dto.WarmUpReportDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outcome of the warm-up and latency of the team requests served during the first measure-window-ms after the instance
+ * became ready, recorded with and without warm-up so both can be compared
+ */
+@Component
+public class WarmUpStatus {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpStatus.class);
+
+    public enum State {
+        DISABLED, RUNNING, COMPLETED, TIMED_OUT, FAILED
+    }
+
+    private final long measureWindowNanos;
+    // latencies in milliseconds, 1% relative accuracy between 10 µs and 1 minute
+    private final LogHistogram latencies = new LogHistogram(0.01, 0.01, 60_000);
+    private final AtomicBoolean summaryLogged = new AtomicBoolean();
+
+    private volatile State state = State.DISABLED;
+    private volatile long startNanos;
+    private volatile long durationNanos;
+    private volatile long readyNanos;
+    private volatile boolean ready;
+    final AtomicInteger teamsPreloaded = new AtomicInteger();
+    final AtomicInteger queries = new AtomicInteger();
+    final AtomicInteger rounds = new AtomicInteger();
+
+    public WarmUpStatus(@Value("${equipe.warmup.measure-window-ms:60000}") long measureWindowMillis) {
+        this.measureWindowNanos = measureWindowMillis * 1_000_000;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyNanos = System.nanoTime();
+        ready = true;
+    }
+
+    void start() {
+        teamsPreloaded.set(0);
+        queries.set(0);
+        rounds.set(0);
+        startNanos = System.nanoTime();
+        state = State.RUNNING;
+    }
+
+    void finish(State outcome) {
+        durationNanos = System.nanoTime() - startNanos;
+        state = outcome;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Record the latency of a request, if it was served within the measure window
+     *
+     * @param nanos the duration of the request
+     */
+    public void recordLatency(long nanos) {
+        if (!ready) {
+            return;
+        }
+        if (System.nanoTime() - readyNanos <= measureWindowNanos) {
+            latencies.add(nanos / 1_000_000.0);
+        } else if (summaryLogged.compareAndSet(false, true)) {
+            logger.info("Team requests in the first {} ms after startup (warm-up {}): {} requests, p50 {} ms, p99 {} ms, max {} ms",
+                    measureWindowNanos / 1_000_000, state, latencies.getCount(), latencies.getQuantile(0.5),
+                    latencies.getQuantile(0.99), latencies.getQuantile(1));
+        }
+    }
+
+    public WarmUpReportDto getReport() {
+        long count = latencies.getCount();
+        return new WarmUpReportDto(state.name(), durationNanos / 1_000_000, teamsPreloaded.get(), queries.get(), rounds.get(),
+                measureWindowNanos / 1_000_000, count,
+                count == 0 ? null : latencies.getQuantile(0.5), count == 0 ? null : latencies.getQuantile(0.95),
+                count == 0 ? null : latencies.getQuantile(0.99), count == 0 ? null : latencies.getQuantile(1));
+    }
+}
@@ -0,0 +1,111 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.matawan.equipefootball.limiter.AdaptiveConcurrencyLimiter;
+import com.matawan.equipefootball.limiter.ConcurrencyLimitFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    /**
+     * Drive a backend that can only serve 2 requests at a time with 64 concurrent clients
+     * Without a limiter every request would queue behind the others (~64 / 2 * 10 ms = 320 ms),
+     * with the limiter the excess is shed and the p99 latency of the admitted requests stays close to the service time
+     */
+    @Test
+    void testOverloadKeepsP99LatencyBounded() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("read", 20, 1, 200, 50, 5);
+        Semaphore backend = new Semaphore(2, true); // a database that can only serve 2 queries at a time
+        int clients = 64;
+        long warmupNanos = TimeUnit.MILLISECONDS.toNanos(1500);
+        long durationNanos = TimeUnit.MILLISECONDS.toNanos(3500);
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong shed = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        long testStart = System.nanoTime();
+
+        for (int i = 0; i < clients; i++) {
+            Thread client = new Thread(() -> {
+                try {
+                    while (System.nanoTime() - testStart < durationNanos) {
+                        if (!limiter.tryAcquire()) {
+                            shed.incrementAndGet();
+                            Thread.sleep(2); // the client backs off before retrying
+                            continue;
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            backend.acquire();
+                            try {
+                                Thread.sleep(10);
+                            } finally {
+                                backend.release();
+                            }
+                        } finally {
+                            limiter.release(start);
+                        }
+                        if (start - testStart > warmupNanos) {
+                            latencies.add(System.nanoTime() - start);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            client.setDaemon(true);
+            client.start();
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        assertFalse(sorted.isEmpty());
+        long p99Millis = TimeUnit.NANOSECONDS.toMillis(sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1));
+
+        assertTrue(shed.get() > 0, "excess requests should have been shed");
+        assertTrue(limiter.getLimit() < 20, "the limit should have shrunk, it is " + limiter.getLimit());
+        assertTrue(p99Millis < 120, "p99 latency should stay bounded, it is " + p99Millis + " ms");
+    }
+
+    /**
+     * Test that a request above the limit is rejected with a 503 and a Retry-After header
+     */
+    @Test
+    void testFilterShedsWithRetryAfter() throws Exception {
+        AdaptiveConcurrencyLimiter readLimiter = new AdaptiveConcurrencyLimiter("read", 1, 1, 1, 1000, 10);
+        AdaptiveConcurrencyLimiter writeLimiter = new AdaptiveConcurrencyLimiter("write", 1, 1, 1, 1000, 10);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(readLimiter, writeLimiter, 3,
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        assertTrue(readLimiter.tryAcquire()); // the only read slot is taken
+
+        MockHttpServletResponse readResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/teams/1"), readResponse, new MockFilterChain());
+        assertEquals(503, readResponse.getStatus());
+        assertEquals("3", readResponse.getHeader("Retry-After"));
+        assertTrue(readResponse.getContentAsString().contains("Too many concurrent requests"));
+
+        // writes have their own limit
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/teams"), writeResponse, new MockFilterChain());
+        assertEquals(200, writeResponse.getStatus());
+        assertEquals(0, writeLimiter.getInFlight());
+    }
+}
@@ -0,0 +1,134 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import com.matawan.equipefootball.leaderboard.BudgetLeaderboard;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetLeaderboardTest {
+
+    /**
+     * Test that the teams are ranked by budget then by id, and move when their budget changes
+     */
+    @Test
+    void testRanking() {
+        BudgetLeaderboard leaderboard = new BudgetLeaderboard(null, null);
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, 1L, 100.0, 0L));
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, 2L, 300.0, 0L));
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, 3L, 100.0, 0L));
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, 4L, 200.0, 0L));
+
+        assertEquals(List.of(2L, 4L, 1L, 3L), leaderboard.getTeamIds(0, 10));
+        assertEquals(List.of(4L, 1L), leaderboard.getTeamIds(1, 2));
+
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.UPDATED, 3L, 400.0, 1L));
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.DELETED, 2L, null, null));
+
+        assertEquals(List.of(3L, 4L, 1L), leaderboard.getTeamIds(0, 10));
+        assertEquals(3, leaderboard.size());
+    }
+
+    /**
+     * Test that updates committed out of order, or after the delete of the team, are ignored
+     */
+    @Test
+    void testStaleUpdatesAreIgnored() {
+        BudgetLeaderboard leaderboard = new BudgetLeaderboard(null, null);
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, 1L, 100.0, 0L));
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, 2L, 200.0, 0L));
+
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.UPDATED, 1L, 500.0, 2L));
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.UPDATED, 1L, 50.0, 1L));
+        assertEquals(List.of(1L, 2L), leaderboard.getTeamIds(0, 10));
+
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.DELETED, 2L, null, null));
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.UPDATED, 2L, 900.0, 1L));
+        assertEquals(List.of(1L), leaderboard.getTeamIds(0, 10));
+    }
+
+    /**
+     * Test that a page read while a team moves back and forth across it lists the team exactly once
+     */
+    @Test
+    void testMovingTeamIsListedOnceByConcurrentReaders() throws Exception {
+        BudgetLeaderboard leaderboard = new BudgetLeaderboard(null, null);
+        for (long id = 1; id <= 100; id++) {
+            leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, id, id * 10.0, 0L));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        try {
+            Future<?> mover = executor.submit(() -> {
+                for (long version = 1; reading.get(); version++) {
+                    // from the top to the bottom of the ranking and back, ahead of and behind the readers
+                    double budget = version % 2 == 0 ? 5000.0 : 1.0;
+                    leaderboard.onTeamChanged(event(TeamChangedEvent.Type.UPDATED, 50L, budget, version));
+                }
+            });
+            for (int i = 0; i < 20000; i++) {
+                List<Long> ids = leaderboard.getTeamIds(0, 100);
+                assertEquals(100, ids.size());
+                assertEquals(1, ids.stream().filter(id -> id == 50L).count(), ids.toString());
+            }
+            reading.set(false);
+            mover.get(5, TimeUnit.SECONDS);
+        } finally {
+            reading.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that a page read while a team moves between the top and the bottom of the ranking is exact
+     */
+    @Test
+    void testPageIsExactWhileATeamMovesBeforeIt() throws Exception {
+        BudgetLeaderboard leaderboard = new BudgetLeaderboard(null, null);
+        for (long id = 1; id <= 100; id++) {
+            leaderboard.onTeamChanged(event(TeamChangedEvent.Type.CREATED, id, id * 10.0, 0L));
+        }
+        leaderboard.onTeamChanged(event(TeamChangedEvent.Type.UPDATED, 95L, 1.0, 1L));
+        List<Long> withoutMover = LongStream.iterate(100, id -> id - 1).limit(11).filter(id -> id != 95L).boxed().toList();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        try {
+            Future<?> mover = executor.submit(() -> {
+                for (long version = 2; reading.get(); version++) {
+                    double budget = version % 2 == 0 ? 5000.0 : 1.0;
+                    leaderboard.onTeamChanged(event(TeamChangedEvent.Type.UPDATED, 95L, budget, version));
+                }
+            });
+            for (int i = 0; i < 20000; i++) {
+                List<Long> ids = leaderboard.getTeamIds(2, 8);
+                // the moving team is either first, so it shifts the page by one, or last
+                assertTrue(ids.equals(withoutMover.subList(1, 9)) || ids.equals(withoutMover.subList(2, 10)), ids.toString());
+            }
+            reading.set(false);
+            mover.get(5, TimeUnit.SECONDS);
+        } finally {
+            reading.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private TeamChangedEvent event(TeamChangedEvent.Type type, Long teamId, Double budget, Long version) {
+        TeamDto team = null;
+        if (budget != null) {
+            team = new TeamDto();
+            team.setId(teamId);
+            team.setBudget(budget);
+            team.setVersion(version);
+        }
+        return new TeamChangedEvent(type, teamId, team, null);
+    }
+}
@@ -0,0 +1,43 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.changefeed.ChangeRingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeRingBufferTest {
+
+    /**
+     * Test that the changes after a sequence are returned in order
+     */
+    @Test
+    void testSince() {
+        ChangeRingBuffer<String> buffer = new ChangeRingBuffer<>(4);
+        buffer.append(sequence -> "change " + sequence);
+        buffer.append(sequence -> "change " + sequence);
+        buffer.append(sequence -> "change " + sequence);
+
+        assertEquals(List.of("change 1", "change 2", "change 3"), buffer.since(0));
+        assertEquals(List.of("change 3"), buffer.since(2));
+        assertEquals(List.of(), buffer.since(3));
+        assertEquals(3, buffer.getLastSequence());
+    }
+
+    /**
+     * Test that a reader behind the overwritten changes, or ahead of the buffer, cannot resume
+     */
+    @Test
+    void testSinceOverwrittenChanges() {
+        ChangeRingBuffer<String> buffer = new ChangeRingBuffer<>(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.append(sequence -> "change " + sequence);
+        }
+
+        assertNull(buffer.since(0)); // changes 1 and 2 were overwritten
+        assertNull(buffer.since(1));
+        assertEquals(List.of("change 3", "change 4", "change 5", "change 6"), buffer.since(2));
+        assertNull(buffer.since(7));
+    }
+}
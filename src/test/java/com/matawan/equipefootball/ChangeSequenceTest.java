@@ -0,0 +1,119 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.service.ChangeSequence;
+import com.matawan.equipefootball.sharding.Shards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChangeSequenceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that a bound computed while a lower number is being allocated waits for it and stays below it
+     */
+    @Test
+    void testBoundWaitsForTheNumbersBeingAllocated() throws Exception {
+        CountDownLatch allocating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong sequence = new AtomicLong();
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(invocation -> {
+            long value = sequence.incrementAndGet();
+            if (value == 1) { // the first writer is slow to get its number back
+                allocating.countDown();
+                await(release);
+            }
+            return value;
+        });
+        ChangeSequence changeSequence = changeSequence();
+
+        CountDownLatch firstCompleted = new CountDownLatch(1);
+        Future<Long> first = executor.submit(() -> inTransaction(changeSequence, firstCompleted));
+        assertTrue(allocating.await(5, TimeUnit.SECONDS));
+        // a second writer gets a higher number and commits while the first one is still allocating
+        assertEquals(2L, inTransaction(changeSequence, new CountDownLatch(0)));
+
+        Future<Long> bound = executor.submit(changeSequence::stableUpperBound);
+        assertThrows(TimeoutException.class, () -> bound.get(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertEquals(0L, bound.get(5, TimeUnit.SECONDS));
+        firstCompleted.countDown();
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that the bound is unlimited without transactions in flight, and below the lowest of them otherwise
+     */
+    @Test
+    void testBoundFollowsTheTransactionsInFlight() throws Exception {
+        AtomicLong sequence = new AtomicLong(10);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(invocation -> sequence.incrementAndGet());
+        ChangeSequence changeSequence = changeSequence();
+        assertEquals(Long.MAX_VALUE, changeSequence.stableUpperBound());
+
+        CountDownLatch complete = new CountDownLatch(1);
+        Future<Long> inFlight = executor.submit(() -> inTransaction(changeSequence, complete));
+        while (changeSequence.stableUpperBound() == Long.MAX_VALUE) {
+            Thread.sleep(1);
+        }
+        assertEquals(10L, changeSequence.stableUpperBound());
+
+        complete.countDown();
+        assertEquals(11L, inFlight.get(5, TimeUnit.SECONDS));
+        assertEquals(Long.MAX_VALUE, changeSequence.stableUpperBound());
+    }
+
+    private ChangeSequence changeSequence() {
+        Shards shards = mock(Shards.class);
+        when(shards.getHomeJdbcTemplate()).thenReturn(jdbcTemplate);
+        return new ChangeSequence(shards);
+    }
+
+    /**
+     * Allocate a number in a transaction that completes once the latch is released
+     */
+    private static long inTransaction(ChangeSequence changeSequence, CountDownLatch complete) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            long value = changeSequence.next();
+            await(complete);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            return value;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.repository.TeamRepository;
+import com.matawan.equipefootball.service.TeamService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Background exports of the teams to compressed files, serialized by chunks of two teams
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:exports;DB_CLOSE_DELAY=-1", // the schema is created again for this context
+        "equipe.export.directory=${java.io.tmpdir}/equipe-football-export-test",
+        "equipe.mapping.chunk-size=2"
+})
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class ExportJobIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    /**
+     * Test that an NDJSON export has one line per team with its roster, and reports its progress
+     */
+    @Test
+    void testNdjsonExport() throws Exception {
+        TeamDto team = addTeam("Export, \"Quoted\" FC", "EQF", new PlayerDto(null, "Export Keeper", "Goalkeeper"),
+                new PlayerDto(null, "Export Striker", "Forward"));
+        addTeam("Export Empty FC", "EEF");
+
+        JsonNode job = runExport("ndjson");
+
+        assertEquals(teamRepository.count(), job.get("exportedTeams").asLong());
+        assertEquals(job.get("totalTeams").asLong(), job.get("exportedTeams").asLong());
+        assertEquals(1.0, job.get("progress").asDouble());
+        assertTrue(job.get("bytes").asLong() > 0);
+        List<String> lines = download(job);
+        assertEquals(teamRepository.count(), lines.size());
+        List<Long> ids = lines.stream().map(line -> readTree(line).get("id").asLong()).toList();
+        assertEquals(ids.stream().sorted().toList(), ids); // the chunks are written in order
+        JsonNode exported = lines.stream().map(this::readTree)
+                .filter(line -> line.get("id").asLong() == team.getId()).findFirst().orElseThrow();
+        assertEquals("Export, \"Quoted\" FC", exported.get("name").asText());
+        assertEquals("Forward", exported.get("players").get(1).get("position").asText());
+    }
+
+    /**
+     * Test that a CSV export has one line per player, quoting the values that need it
+     */
+    @Test
+    void testCsvExport() throws Exception {
+        TeamDto team = addTeam("Export, \"Quoted\" CSV FC", "ECF", new PlayerDto(null, "Export Keeper", "Goalkeeper"));
+
+        List<String> lines = download(runExport("csv"));
+
+        assertEquals("team_id,team_name,acronym,budget,version,player_id,player_name,position", lines.get(0));
+        assertTrue(lines.contains(team.getId() + ",\"Export, \"\"Quoted\"\" CSV FC\",ECF,1000000.0,0,"
+                + team.getPlayers().get(0).getId() + ",Export Keeper,Goalkeeper"), lines.toString());
+    }
+
+    /**
+     * Test the errors of the export endpoints
+     */
+    @Test
+    void testExportErrors() throws Exception {
+        mockMvc.perform(post("/api/teams/export-jobs").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/teams/export-jobs/{id}", "unknown"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/teams/export-jobs/{id}/file", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode runExport(String format) throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/teams/export-jobs").param("format", format))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.format").value(format.toUpperCase()))
+                .andReturn();
+        String location = started.getResponse().getHeader("Location");
+        long start = System.currentTimeMillis();
+        JsonNode job;
+        do {
+            Thread.sleep(20);
+            job = readTree(mockMvc.perform(get(location)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        } while (!job.get("state").asText().equals("COMPLETED") && !job.get("state").asText().equals("FAILED")
+                && System.currentTimeMillis() - start < 10_000);
+        assertEquals("COMPLETED", job.get("state").asText(), job.toString());
+        return job;
+    }
+
+    private List<String> download(JsonNode job) throws Exception {
+        MvcResult result = mockMvc.perform(get(job.get("downloadUrl").asText()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andReturn();
+        byte[] compressed = result.getResponse().getContentAsByteArray();
+        assertEquals(job.get("bytes").asLong(), compressed.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TeamDto addTeam(String name, String acronym, PlayerDto... players) {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(1000000.0);
+        teamDto.setPlayers(List.of(players));
+        return teamService.addTeam(teamDto);
+    }
+}
@@ -0,0 +1,68 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.entity.Team;
+import com.matawan.equipefootball.repository.TeamRepository;
+import com.matawan.equipefootball.service.TeamService;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads without open session in view: every read fetches what it returns inside its own transaction
+ */
+@SpringBootTest
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class FetchPlanIntegrationTest {
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    private TeamDto addTeamWithRoster(String name, String acronym) {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(5000000.0);
+        teamDto.setPlayers(List.of(new PlayerDto(null, name + " goalkeeper", "Gardien"), new PlayerDto(null, name + " striker", "Attaquant")));
+        return teamService.addTeam(teamDto);
+    }
+
+    /**
+     * Test that an accidental lazy load outside of a transaction fails instead of silently opening a connection
+     */
+    @Test
+    void testLazyLoadOutsideTransactionFails() {
+        Long id = addTeamWithRoster("Fetch Plan Lazy FC", "FPL").getId();
+
+        Team team = teamRepository.findById(id).orElseThrow();
+
+        assertThrows(LazyInitializationException.class, () -> team.getPlayers().size());
+    }
+
+    /**
+     * Test that every read returns the rosters although no session outlives its transaction
+     */
+    @Test
+    void testReadsFetchTheRosters() {
+        Long id = addTeamWithRoster("Fetch Plan Eager FC", "FPE").getId();
+
+        assertEquals(2, teamService.getTeamById(id).getPlayers().size());
+        assertEquals(2, teamService.getTeamsByIds(List.of(id)).getTeams().get(0).getPlayers().size());
+        TeamDto listed = teamService.getTeams(0, 1000, List.of("name")).getContent().stream()
+                .filter(team -> team.getId().equals(id)).findFirst().orElseThrow();
+        assertEquals(2, listed.getPlayers().size());
+        TeamDto synced = teamService.getTeamsDelta(0, 500).getTeams().stream()
+                .filter(team -> team.getId().equals(id)).findFirst().orElseThrow();
+        assertEquals(2, synced.getPlayers().size());
+    }
+}
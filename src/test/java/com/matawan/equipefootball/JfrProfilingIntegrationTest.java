@@ -0,0 +1,206 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.ProfilingReportDto;
+import com.matawan.equipefootball.dto.ProfilingSiteDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.service.TeamService;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Load test of the team endpoints in profiling mode, failing when the allocation, contention or JDBC budgets are exceeded
+ * Run by the profilingTest task as part of check, the budgets can be overridden with -Pprofiling.budget.<name>=<value>.
+ * The JDBC time depends on the machine, so its budget is only checked when profiling.budget.jdbc-ms-per-request is set.
+ */
+@Tag("profiling")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:profiling;DB_CLOSE_DELAY=-1", // the schema is created again for this context
+        "equipe.profiling.enabled=true",
+        // every sampled site is reported, and sampled often enough to find the small allocations of the sort orders
+        "equipe.profiling.top-sites=100000",
+        "equipe.profiling.allocation-sample-rate=100000/s"
+})
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class JfrProfilingIntegrationTest {
+
+    private static final long ALLOCATED_KB_PER_REQUEST = Long.getLong("profiling.budget.allocated-kb-per-request", 512);
+    private static final double MONITOR_CONTENTION_MS = Double.parseDouble(System.getProperty("profiling.budget.monitor-contention-ms", "500"));
+    private static final String JDBC_MS_PER_REQUEST = System.getProperty("profiling.budget.jdbc-ms-per-request");
+
+    private static final int TEAMS = 20;
+    private static final int PLAYERS = 11;
+    private static final int CLIENTS = 4;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private TeamService teamService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // the filters of the application are not applied by MockMvc, the Server-Timing filter binds the request timing
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilter(registeredFilter("serverTimingFilter"), "/api/*")
+                .addFilter(registeredFilter("profilingFilter"), "/api/teams/*")
+                .build();
+    }
+
+    /**
+     * Test that a load of reads and concurrent patches stays within the budgets, and summarize it
+     */
+    @Test
+    void testTeamRequestsStayWithinTheBudgets() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < TEAMS; i++) {
+            ids.add(addTeam("Profiling Team " + i, "PRF" + i).getId());
+        }
+        runLoad(ids, 10); // warm-up, the class loading and compilation are not measured
+
+        mockMvc.perform(post("/api/admin/profiling/start")).andExpect(status().isNoContent());
+        runLoad(ids, ROUNDS);
+        String response = mockMvc.perform(post("/api/admin/profiling/stop"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        ProfilingReportDto report = objectMapper.readValue(response, ProfilingReportDto.class);
+        writeReport(response);
+
+        assertEquals(CLIENTS * ROUNDS * 4L, report.getRequests());
+        assertTrue(report.getAllocatedBytesPerRequest() > 0);
+        assertTrue(report.getMaxAllocatedBytesPerRequest() >= report.getAllocatedBytesPerRequest());
+        String summary = summarize(report);
+        assertTrue(hasAllocationSite(report, "TeamService.convertToDto"), "No allocation in the mapping\n" + summary);
+        assertTrue(hasAllocationSite(report, "TeamService.getSortOrders"), "No allocation in the sort orders\n" + summary);
+        assertTrue(report.getAllocatedBytesPerRequest() <= ALLOCATED_KB_PER_REQUEST * 1024,
+                "Allocation per request over " + ALLOCATED_KB_PER_REQUEST + " KB\n" + summary);
+        assertTrue(report.getMonitorContentionMs() <= MONITOR_CONTENTION_MS,
+                "Monitor contention over " + MONITOR_CONTENTION_MS + " ms\n" + summary);
+        if (JDBC_MS_PER_REQUEST != null) {
+            assertTrue(report.getJdbcMsPerRequest() <= Double.parseDouble(JDBC_MS_PER_REQUEST),
+                    "JDBC time per request over " + JDBC_MS_PER_REQUEST + " ms\n" + summary);
+        }
+    }
+
+    /**
+     * Test that only one session runs at a time
+     */
+    @Test
+    void testSessionConflicts() throws Exception {
+        mockMvc.perform(post("/api/admin/profiling/stop"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/api/admin/profiling/start"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(post("/api/admin/profiling/start"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("A profiling session is already running"));
+        mockMvc.perform(post("/api/admin/profiling/stop"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requests").value(0));
+    }
+
+    /**
+     * Each client lists a page sorted by budget and name, gets a team, gets several teams and patches its own team
+     */
+    private void runLoad(List<Long> ids, int rounds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                Long ownId = ids.get(client);
+                clients.add(executor.submit(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        Long id = ids.get(round % ids.size());
+                        String someIds = ids.subList(0, 5).stream().map(String::valueOf).collect(Collectors.joining(","));
+                        mockMvc.perform(get("/api/teams").param("page", String.valueOf(round % 2)).param("size", "10").param("sortBy", "-budget", "name"))
+                                .andExpect(status().isOk());
+                        mockMvc.perform(get("/api/teams/{id}", id))
+                                .andExpect(status().isOk());
+                        mockMvc.perform(get("/api/teams").param("ids", someIds))
+                                .andExpect(status().isOk());
+                        mockMvc.perform(patch("/api/teams/{id}", ownId)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content("{\"budget\": " + (1000000.0 + round) + "}"))
+                                .andExpect(status().isOk());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static boolean hasAllocationSite(ProfilingReportDto report, String method) {
+        return report.getAllocationSites().stream().anyMatch(site -> site.getSite().startsWith(method + " "));
+    }
+
+    private String summarize(ProfilingReportDto report) {
+        StringBuilder summary = new StringBuilder(String.format("%d requests: %d bytes allocated per request, %.2f ms of JDBC per request, %.2f ms of monitor contention",
+                report.getRequests(), report.getAllocatedBytesPerRequest(), report.getJdbcMsPerRequest(), report.getMonitorContentionMs()));
+        for (ProfilingSiteDto site : report.getAllocationSites().subList(0, Math.min(20, report.getAllocationSites().size()))) {
+            summary.append(String.format("%n  allocation %s: %.0f sampled bytes", site.getSite(), site.getTotal()));
+        }
+        for (ProfilingSiteDto site : report.getBlockingSites()) {
+            summary.append(String.format("%n  blocking %s: %.2f ms", site.getSite(), site.getTotal()));
+        }
+        return summary.toString();
+    }
+
+    private void writeReport(String report) throws Exception {
+        String directory = System.getProperty("profiling.report-directory");
+        if (directory != null) {
+            Files.createDirectories(Path.of(directory));
+            Files.writeString(Path.of(directory, "team-requests.json"), report);
+        }
+    }
+
+    private Filter registeredFilter(String name) {
+        return ((FilterRegistrationBean<?>) webApplicationContext.getBean(name, FilterRegistrationBean.class)).getFilter();
+    }
+
+    private TeamDto addTeam(String name, String acronym) {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(1000000.0);
+        List<PlayerDto> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(new PlayerDto(null, name + " player " + i, i == 0 ? "Goalkeeper" : "Forward"));
+        }
+        teamDto.setPlayers(players);
+        return teamService.addTeam(teamDto);
+    }
+}
@@ -0,0 +1,67 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.analytics.LogHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogHistogramTest {
+
+    private static final double ACCURACY = 0.02;
+
+    /**
+     * Test that every quantile is within the relative accuracy of the exact value of the same rank
+     */
+    @Test
+    void testQuantilesWithinRelativeAccuracy() {
+        LogHistogram histogram = new LogHistogram(ACCURACY, 1, 1e13);
+        Random random = new Random(42);
+        double[] budgets = new double[100_000];
+        for (int i = 0; i < budgets.length; i++) {
+            budgets[i] = Math.exp(16 + 1.5 * random.nextGaussian()); // log-normal, around 9 million
+            histogram.add(budgets[i]);
+        }
+        Arrays.sort(budgets);
+
+        assertEquals(budgets.length, histogram.getCount());
+        for (double quantile : new double[]{0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1}) {
+            double exact = budgets[(int) (quantile * (budgets.length - 1))];
+            double approximate = histogram.getQuantile(quantile);
+            assertTrue(Math.abs(approximate - exact) <= ACCURACY * exact + 1e-9,
+                    "Quantile " + quantile + ": " + approximate + " instead of " + exact);
+        }
+        assertTrue(histogram.getBucketCount() < 1000);
+    }
+
+    /**
+     * Test that merging two histograms gives the histogram of all the values, and that removed values are forgotten
+     */
+    @Test
+    void testMergeAndRemove() {
+        LogHistogram first = new LogHistogram(ACCURACY, 1, 1e13);
+        LogHistogram second = new LogHistogram(ACCURACY, 1, 1e13);
+        LogHistogram all = new LogHistogram(ACCURACY, 1, 1e13);
+        for (int i = 1; i <= 1000; i++) {
+            (i % 2 == 0 ? first : second).add(i * 1000.0);
+            all.add(i * 1000.0);
+        }
+        first.merge(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getQuantile(0.5), first.getQuantile(0.5));
+        assertEquals(all.getQuantile(0.99), first.getQuantile(0.99));
+
+        first.add(0.5); // below the minimum value, counted as 0
+        assertEquals(0, first.getQuantile(0));
+        first.remove(0.5);
+        for (int i = 1; i <= 1000; i++) {
+            first.remove(i * 1000.0);
+        }
+        assertEquals(0, first.getCount());
+        assertTrue(Double.isNaN(first.getQuantile(0.5)));
+
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new LogHistogram(0.05, 1, 1e13)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.exception.ConflictException;
+import com.matawan.equipefootball.service.OptimisticLockRetrier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OptimisticLockRetrierTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OptimisticLockRetrier retrier;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        retrier = new OptimisticLockRetrier(transactionManager, 3, 1, 2);
+    }
+
+    /**
+     * Test that a conflict is retried in a new transaction until the action succeeds
+     */
+    @Test
+    void testRetriesUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retrier.execute("Team with id 1", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Team", 1L);
+            }
+            return "updated";
+        });
+
+        assertEquals("updated", result);
+        assertEquals(3, attempts.get());
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    /**
+     * Test that the retrier gives up with a conflict after the maximum number of attempts
+     */
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> retrier.execute("Team with id 1", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Team", 1L);
+        }));
+
+        assertEquals("Team with id 1 was modified concurrently, please retry", exception.getMessage());
+        assertEquals(3, attempts.get());
+    }
+}
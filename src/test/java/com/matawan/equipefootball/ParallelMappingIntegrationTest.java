@@ -0,0 +1,64 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.service.TeamService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Large pages converted by chunks of a few teams on the mapping pool
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:parallel-mapping;DB_CLOSE_DELAY=-1", // the schema is created again for this context
+        "equipe.mapping.parallelism=3",
+        "equipe.mapping.chunk-size=4"
+})
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class ParallelMappingIntegrationTest {
+
+    @Autowired
+    private TeamService teamService;
+
+    /**
+     * Test that a page spanning several chunks keeps its order and gives every team its own roster
+     */
+    @Test
+    void testLargePageKeepsItsOrderAndRosters() {
+        List<TeamDto> added = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            added.add(addTeam("Chunked Team " + i, "CHK" + i, 1000000.0 + i));
+        }
+
+        List<TeamDto> page = teamService.getTeams(0, 30, List.of("-budget")).getContent();
+
+        List<Long> expectedIds = new ArrayList<>(added.stream().map(TeamDto::getId).toList());
+        Collections.reverse(expectedIds);
+        assertEquals(expectedIds, page.stream().map(TeamDto::getId).toList());
+        for (TeamDto team : page) {
+            assertEquals(List.of(team.getName() + " keeper", team.getName() + " striker"),
+                    team.getPlayers().stream().map(PlayerDto::getName).toList());
+        }
+
+        // the multi-get goes through the same conversion
+        List<Long> shuffledIds = List.of(expectedIds.get(7), expectedIds.get(0), expectedIds.get(21), expectedIds.get(3), expectedIds.get(14));
+        assertEquals(shuffledIds, teamService.getTeamsByIds(shuffledIds).getTeams().stream().map(TeamDto::getId).toList());
+    }
+
+    private TeamDto addTeam(String name, String acronym, double budget) {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(budget);
+        teamDto.setPlayers(List.of(new PlayerDto(null, name + " keeper", "Goalkeeper"), new PlayerDto(null, name + " striker", "Forward")));
+        return teamService.addTeam(teamDto);
+    }
+}
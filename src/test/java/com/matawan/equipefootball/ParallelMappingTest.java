@@ -0,0 +1,157 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.service.ParallelMapping;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelMappingTest {
+
+    private final ParallelMapping parallelMapping = new ParallelMapping(4, 3);
+
+    @AfterEach
+    void tearDown() {
+        parallelMapping.shutdown();
+    }
+
+    /**
+     * Test that the chunks are loaded on the calling thread, converted on the pool and returned in order
+     */
+    @Test
+    void testChunksAreConvertedInParallelInOrder() {
+        List<Integer> elements = IntStream.range(0, 100).boxed().toList();
+        Set<String> loadThreads = ConcurrentHashMap.newKeySet();
+        Set<String> convertThreads = ConcurrentHashMap.newKeySet();
+
+        List<String> converted = parallelMapping.map(elements, chunk -> {
+            loadThreads.add(Thread.currentThread().getName());
+            return "#";
+        }, (chunk, prefix) -> {
+            convertThreads.add(Thread.currentThread().getName());
+            sleep(ThreadLocalRandom.current().nextInt(5)); // the chunks complete out of order
+            return chunk.stream().map(element -> prefix + element).toList();
+        });
+
+        assertEquals(elements.stream().map(element -> "#" + element).toList(), converted);
+        assertEquals(Set.of(Thread.currentThread().getName()), loadThreads);
+        assertTrue(convertThreads.stream().allMatch(name -> name.startsWith("dto-mapping-")), convertThreads.toString());
+    }
+
+    /**
+     * Test that a list of at most one chunk is converted on the calling thread
+     */
+    @Test
+    void testSmallListIsConvertedOnTheCallingThread() {
+        List<String> threads = parallelMapping.map(List.of(1, 2, 3), chunk -> null,
+                (chunk, loaded) -> chunk.stream().map(element -> Thread.currentThread().getName()).toList());
+
+        assertEquals(List.of(Thread.currentThread().getName()), threads.stream().distinct().toList());
+    }
+
+    /**
+     * Test that the exception of a chunk is rethrown as is
+     */
+    @Test
+    void testFailureOfAChunkIsRethrown() {
+        ResourceNotFoundException failure = new ResourceNotFoundException("Team not found with id 42");
+
+        ResourceNotFoundException thrown = assertThrows(ResourceNotFoundException.class, () -> parallelMapping.map(
+                IntStream.range(0, 20).boxed().toList(), chunk -> null, (chunk, loaded) -> {
+                    if (chunk.contains(10)) {
+                        throw failure;
+                    }
+                    return chunk;
+                }));
+
+        assertSame(failure, thrown);
+    }
+
+    /**
+     * Test that a failed load cancels the conversions still pending and is rethrown as is
+     */
+    @Test
+    void testFailureOfALoadCancelsThePendingChunks() {
+        ParallelMapping twoThreads = new ParallelMapping(2, 3);
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Set<Integer> converted = ConcurrentHashMap.newKeySet();
+        ResourceNotFoundException failure = new ResourceNotFoundException("Team not found with id 42");
+        try {
+            ResourceNotFoundException thrown = assertThrows(ResourceNotFoundException.class, () -> twoThreads.map(
+                    IntStream.range(0, 15).boxed().toList(), chunk -> {
+                        if (chunk.contains(12)) {
+                            await(running);
+                            throw failure;
+                        }
+                        return null;
+                    }, (chunk, loaded) -> {
+                        // the first two chunks hold the threads, the next two are pending
+                        running.countDown();
+                        await(release);
+                        converted.addAll(chunk);
+                        return chunk;
+                    }));
+            assertSame(failure, thrown);
+
+            release.countDown();
+            sleep(200);
+            assertEquals(IntStream.range(0, 6).boxed().collect(Collectors.toSet()), converted);
+        } finally {
+            twoThreads.shutdown();
+        }
+    }
+
+    /**
+     * Test that the feeding thread consumes the oldest result before going beyond twice the parallelism of pending tasks
+     */
+    @Test
+    void testPendingTasksAreBounded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> consumed = new ArrayList<>();
+        ParallelMapping.Pipeline<Integer> pipeline = parallelMapping.pipeline(consumed::add);
+        for (int i = 0; i < 8; i++) {
+            int task = i;
+            pipeline.submit(() -> {
+                await(release);
+                return task;
+            });
+        }
+        assertTrue(consumed.isEmpty());
+
+        release.countDown();
+        pipeline.submit(() -> 8); // waits for the first task
+        assertEquals(List.of(0), consumed);
+        pipeline.finish();
+        assertEquals(IntStream.rangeClosed(0, 8).boxed().toList(), consumed);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
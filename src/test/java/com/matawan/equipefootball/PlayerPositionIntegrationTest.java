@@ -0,0 +1,130 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.migration.PlayerPositionMigration;
+import com.matawan.equipefootball.repository.PlayerRepository;
+import com.matawan.equipefootball.service.PositionDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class PlayerPositionIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private PositionDictionary positionDictionary;
+
+    @Autowired
+    private PlayerPositionMigration playerPositionMigration;
+
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    /**
+     * Test that positions are stored as codes, returned as text and listed across teams regardless of case
+     */
+    @Test
+    void testPlayersByPosition() throws Exception {
+        TeamDto nice = createTeam("OGC Nice", "OGCN");
+        TeamDto lyon = createTeam("Olympique Lyon", "OL");
+        addPlayer(nice, "Marcin Bulka", "Sweeper Keeper");
+        addPlayer(lyon, "Lucas Perri", " sweeper keeper ");
+        addPlayer(lyon, "Nicolás Tagliafico", "Defender");
+
+        mockMvc.perform(get("/api/players").param("position", "SWEEPER KEEPER"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].name").value("Marcin Bulka"))
+                .andExpect(jsonPath("$.content[0].position").value("Sweeper Keeper"))
+                .andExpect(jsonPath("$.content[0].teamId").value(nice.getId()))
+                .andExpect(jsonPath("$.content[1].name").value("Lucas Perri"))
+                .andExpect(jsonPath("$.content[1].position").value("Sweeper Keeper"))
+                .andExpect(jsonPath("$.content[1].teamId").value(lyon.getId()));
+
+        mockMvc.perform(get("/api/players").param("position", "Libero"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+        assertNull(positionDictionary.getCode("Libero")); // looking up a position does not add it
+
+        // the players of a position share the text held by the dictionary
+        List<String> positions = playerRepository.findAll().stream()
+                .filter(player -> "Sweeper Keeper".equals(player.getPosition()))
+                .map(player -> player.getPosition())
+                .toList();
+        assertEquals(2, positions.size());
+        assertSame(positions.get(0), positions.get(1));
+        assertEquals("SMALLINT", jdbcTemplate.queryForObject(
+                "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PLAYER' AND COLUMN_NAME = 'POSITION_CODE'", String.class));
+    }
+
+    /**
+     * Test that the positions of the legacy text column are moved to the dictionary
+     */
+    @Test
+    void testLegacyPositionMigration() {
+        jdbcTemplate.execute("ALTER TABLE player ADD COLUMN position VARCHAR(255)");
+        jdbcTemplate.update("INSERT INTO player (name, position) VALUES ('Legacy Player 1', 'Wing Back'), " +
+                "('Legacy Player 2', 'WING BACK'), ('Legacy Player 3', NULL)");
+
+        playerPositionMigration.migrate();
+
+        Short code = positionDictionary.getCode("wing back");
+        assertNotNull(code);
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player WHERE position_code = ?", Integer.class, code));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PLAYER' AND COLUMN_NAME = 'POSITION'", Integer.class));
+        jdbcTemplate.update("DELETE FROM player WHERE name LIKE 'Legacy Player %'");
+    }
+
+    private TeamDto createTeam(String name, String acronym) throws Exception {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(1000000.0);
+        String response = mockMvc.perform(post("/api/teams")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(teamDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, TeamDto.class);
+    }
+
+    private void addPlayer(TeamDto team, String name, String position) throws Exception {
+        mockMvc.perform(post("/api/teams/{id}/players", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PlayerDto(null, name, position))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.position").value("Sweeper Keeper".equalsIgnoreCase(position.trim()) ? "Sweeper Keeper" : position));
+    }
+}
@@ -0,0 +1,93 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.suggest.PrefixTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTest {
+
+    /**
+     * Test that the shortest keys come first, then the given order among keys of the same length
+     */
+    @Test
+    void testSearchRanking() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("paris saint germain", "Paris Saint-Germain");
+        trie.put("paris fc", "Paris FC");
+        trie.put("psg", "PSG");
+        trie.put("pau fc", "Pau FC");
+        trie.put("paris", "Paris");
+
+        assertEquals(List.of("Paris", "Pau FC", "Paris FC", "Paris Saint-Germain"),
+                trie.search("pa", 10, Comparator.naturalOrder()));
+        assertEquals(List.of("Paris", "Pau FC"), trie.search("pa", 2, Comparator.naturalOrder()));
+        assertEquals(List.of("PSG"), trie.search("ps", 10, Comparator.naturalOrder()));
+        assertEquals(List.of(), trie.search("lyon", 10, Comparator.naturalOrder()));
+    }
+
+    /**
+     * Test that a value indexed under several keys is returned once
+     */
+    @Test
+    void testSearchDeduplicatesValues() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("stade saint etienne", "Stade Saint-Etienne");
+        trie.put("saint etienne", "Stade Saint-Etienne");
+        trie.put("etienne", "Stade Saint-Etienne");
+
+        assertEquals(List.of("Stade Saint-Etienne"), trie.search("s", 10, Comparator.naturalOrder()));
+        assertEquals(3, trie.getValueCount());
+    }
+
+    /**
+     * Test that removing every key prunes the nodes, values sharing a key are kept
+     */
+    @Test
+    void testRemovePrunesEmptyNodes() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("lyon", "Olympique Lyon");
+        trie.put("lyon", "Lyon Duchère");
+        trie.put("lens", "RC Lens");
+        int nodes = trie.getNodeCount();
+
+        assertTrue(trie.remove("lyon", "Olympique Lyon"));
+        assertFalse(trie.remove("lyon", "Olympique Lyon"));
+        assertEquals(nodes, trie.getNodeCount());
+        assertEquals(List.of("Lyon Duchère"), trie.search("ly", 10, Comparator.naturalOrder()));
+
+        assertTrue(trie.remove("lyon", "Lyon Duchère"));
+        assertTrue(trie.remove("lens", "RC Lens"));
+        assertEquals(1, trie.getNodeCount());
+        assertEquals(0, trie.getKeyCount());
+        assertEquals(List.of(), trie.search("l", 10, Comparator.naturalOrder()));
+    }
+
+    /**
+     * Test that a lookup in a large trie takes microseconds
+     */
+    @Test
+    void testLookupLatency() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        for (int i = 0; i < 50_000; i++) {
+            String name = "team " + Integer.toString(i * 7919, 36) + " fc";
+            trie.put(name, name);
+        }
+        String[] prefixes = {"team 1", "team a", "team zz", "team 3b", "team q0"};
+        for (int i = 0; i < 20_000; i++) { // warm up
+            trie.search(prefixes[i % prefixes.length], 10, Comparator.naturalOrder());
+        }
+
+        int lookups = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            assertFalse(trie.search(prefixes[i % prefixes.length], 10, Comparator.naturalOrder()).isEmpty());
+        }
+        long averageMicros = (System.nanoTime() - start) / lookups / 1_000;
+
+        assertTrue(averageMicros < 100, "Average lookup took " + averageMicros + " µs");
+    }
+}
@@ -0,0 +1,134 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.ReplicaRoutingStatsDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.TeamPatchDto;
+import com.matawan.equipefootball.replica.ReadYourWritesFilter;
+import com.matawan.equipefootball.replica.ReplicaRouter;
+import com.matawan.equipefootball.replica.ReplicaStandIn;
+import com.matawan.equipefootball.service.TeamCache;
+import com.matawan.equipefootball.service.TeamService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Read/write splitting between two in-memory H2 databases, the replica being synchronized on demand by the stand-in
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rw-primary;DB_CLOSE_DELAY=-1",
+        "equipe.replica.enabled=true",
+        "equipe.replica.url=jdbc:h2:mem:rw-replica;DB_CLOSE_DELAY=-1",
+        "equipe.replica.max-lag-ms=60000",
+        "equipe.replica.stand-in.enabled=true",
+        "equipe.replica.stand-in.sync-interval-ms=0"
+})
+public class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter;
+
+    @Autowired
+    private ReplicaStandIn replicaStandIn;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private TeamCache teamCache;
+
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilters(readYourWritesFilter.getFilter()).build();
+    }
+
+    /**
+     * Test that reads are served by the replica once it is synchronized, except for the client that wrote since the last synchronization
+     */
+    @Test
+    void testReadsFollowTheReplicaExceptAfterOwnWrites() throws Exception {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("Replica FC");
+        teamDto.setAcronym("RFC");
+        teamDto.setBudget(1000000.0);
+        MvcResult created = mockMvc.perform(post("/api/teams").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(teamDto)))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists("equipe-last-write"))
+                .andReturn();
+        long id = objectMapper.readValue(created.getResponse().getContentAsString(), TeamDto.class).getId();
+        replicaStandIn.sync();
+
+        TeamPatchDto patch = new TeamPatchDto();
+        patch.setName("Replica Football Club");
+        Cookie lastWrite = mockMvc.perform(patch("/api/teams/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(patch)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie("equipe-last-write");
+        assertNotNull(lastWrite);
+
+        ReplicaRoutingStatsDto before = replicaRouter.getStats();
+        // another client reads the replica, which has not received the patch yet
+        mockMvc.perform(get("/api/teams").param("sortBy", "name"))
+                .andExpect(jsonPath("$.content[?(@.id == " + id + ")].name").value("Replica FC"));
+        // the client that patched the team reads its own write from the primary
+        mockMvc.perform(get("/api/teams").param("sortBy", "name").cookie(lastWrite))
+                .andExpect(jsonPath("$.content[?(@.id == " + id + ")].name").value("Replica Football Club"));
+        ReplicaRoutingStatsDto after = replicaRouter.getStats();
+        assertTrue(after.getReplicaReads() > before.getReplicaReads());
+        assertTrue(after.getPrimaryReadYourWrites() > before.getPrimaryReadYourWrites());
+
+        // once the replica has the write, the client reads from it again
+        replicaStandIn.sync();
+        long replicaReads = replicaRouter.getStats().getReplicaReads();
+        mockMvc.perform(get("/api/teams").param("sortBy", "name").cookie(lastWrite))
+                .andExpect(jsonPath("$.content[?(@.id == " + id + ")].name").value("Replica Football Club"));
+        assertTrue(replicaRouter.getStats().getReplicaReads() > replicaReads);
+
+        mockMvc.perform(get("/api/replica/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.replicaLagMs").isNumber());
+    }
+
+    /**
+     * Test that a team written recently is not cached, a load may have read it from a replica that does not have the write yet
+     */
+    @Test
+    void testRecentlyWrittenTeamIsNotCached() {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("Cached FC");
+        teamDto.setAcronym("CFC");
+        teamDto.setBudget(2000000.0);
+        Long id = teamService.addTeam(teamDto).getId();
+        TeamPatchDto patch = new TeamPatchDto();
+        patch.setBudget(3000000.0);
+        teamService.patchTeam(id, patch);
+
+        teamService.getTeamById(id);
+
+        assertNull(teamCache.get(id));
+    }
+}
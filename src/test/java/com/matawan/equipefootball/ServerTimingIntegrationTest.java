@@ -0,0 +1,90 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.timing.ServerTimingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Server-Timing header of the sampled requests
+ */
+@SpringBootTest
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class ServerTimingIntegrationTest {
+
+    private static final Pattern SERVER_TIMING = Pattern.compile(
+            "db;dur=([0-9.]+);desc=\"(\\d+) statements\", mapping;dur=([0-9.]+), serialization;dur=([0-9.]+), total;dur=([0-9.]+)");
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private FilterRegistrationBean<ServerTimingFilter> serverTimingFilter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Test that the header reports the statements of the database reads, and none when the team comes from the cache
+     */
+    @Test
+    void testServerTimingReportsTheStatements() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilters(serverTimingFilter.getFilter()).build();
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("Timing FC");
+        teamDto.setAcronym("TFC");
+        teamDto.setBudget(1000000.0);
+        teamDto.setPlayers(List.of(new PlayerDto(null, "Timing goalkeeper", "Gardien")));
+        MvcResult created = mockMvc.perform(post("/api/teams").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(teamDto)))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists("Server-Timing"))
+                .andReturn();
+        long id = objectMapper.readValue(created.getResponse().getContentAsString(), TeamDto.class).getId();
+
+        Matcher loaded = serverTiming(mockMvc.perform(get("/api/teams/{id}", id)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.players[0].name").value("Timing goalkeeper")).andReturn());
+        assertTrue(Long.parseLong(loaded.group(2)) >= 2, "the team and its players are read");
+        assertTrue(Double.parseDouble(loaded.group(5)) >= Double.parseDouble(loaded.group(1)));
+
+        Matcher cached = serverTiming(mockMvc.perform(get("/api/teams/{id}", id)).andExpect(status().isOk()).andReturn());
+        assertEquals("0", cached.group(2));
+    }
+
+    /**
+     * Test that requests outside of the sample are not instrumented
+     */
+    @Test
+    void testUnsampledRequestsHaveNoHeader() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilters(new ServerTimingFilter(0)).build();
+
+        mockMvc.perform(get("/api/teams").param("sortBy", "name"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Server-Timing"));
+    }
+
+    private Matcher serverTiming(MvcResult result) {
+        String header = result.getResponse().getHeader("Server-Timing");
+        assertNotNull(header);
+        Matcher matcher = SERVER_TIMING.matcher(header);
+        assertTrue(matcher.matches(), header);
+        return matcher;
+    }
+}
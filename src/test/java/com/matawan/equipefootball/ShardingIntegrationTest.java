@@ -0,0 +1,197 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamBatchDto;
+import com.matawan.equipefootball.dto.TeamDeltaDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.TeamPatchDto;
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.leaderboard.BudgetLeaderboard;
+import com.matawan.equipefootball.service.TeamService;
+import com.matawan.equipefootball.sharding.Shards;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * One application instance partitioning the teams across three in-memory H2 databases
+ */
+public class ShardingIntegrationTest {
+
+    private static final int SHARD_COUNT = 3;
+
+    private static ConfigurableApplicationContext context;
+    private static TeamService teamService;
+    private static Shards shards;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void startInstance() {
+        String prefix = "jdbc:h2:mem:shard-" + UUID.randomUUID() + "-";
+        String urls = String.join(",", IntStream.range(0, SHARD_COUNT).mapToObj(shard -> prefix + shard + ";DB_CLOSE_DELAY=-1").toList());
+        context = new SpringApplicationBuilder(EquipeFootballApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--equipe.sharding.enabled=true",
+                        "--equipe.sharding.urls=" + urls,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false");
+        teamService = context.getBean(TeamService.class);
+        shards = context.getBean(Shards.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        // names differing by case only and equal budgets, to check the merge follows the database order
+        String[] names = {"Paris SG", "paris FC", "AS Monaco", "Stade Rennais", "RC Lens", "OGC Nice", "Olympique Lyon",
+                "FC Nantes", "LOSC Lille", "Stade Brestois", "AJ Auxerre", "Angers SCO", "Toulouse FC"};
+        for (int i = 0; i < names.length; i++) {
+            addTeam(names[i], "T" + i, (double) (i % 5) * 1000000);
+        }
+    }
+
+    @AfterAll
+    static void stopInstance() {
+        context.close();
+    }
+
+    private static TeamDto addTeam(String name, String acronym, Double budget) {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(budget);
+        teamDto.setPlayers(List.of(new PlayerDto(null, name + " captain", "Milieu")));
+        return teamService.addTeam(teamDto);
+    }
+
+    private static long countOn(int shard, String sql, Object... args) {
+        return shards.callOn(shard, () -> jdbcTemplate.queryForObject(sql, Long.class, args));
+    }
+
+    /**
+     * Test that every team and its roster are stored in the shard given by its id, and the teams are spread over every shard
+     */
+    @Test
+    void testTeamsAreStoredInTheirShard() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (TeamDto team : teamService.getTeams(0, 100, null).getContent()) {
+            int shard = shards.shardOf(team.getId());
+            usedShards.add(shard);
+            for (int other = 0; other < SHARD_COUNT; other++) {
+                long expected = other == shard ? 1 : 0;
+                assertEquals(expected, countOn(other, "SELECT COUNT(*) FROM team WHERE id = ?", team.getId()));
+                assertEquals(expected * team.getPlayers().size(), countOn(other, "SELECT COUNT(*) FROM player WHERE team_id = ?", team.getId()));
+            }
+        }
+        assertEquals(SHARD_COUNT, usedShards.size());
+    }
+
+    /**
+     * Test that the pages merged from the shards follow the global order, for several sorting criteria
+     */
+    @Test
+    void testPagesFollowTheGlobalOrder() {
+        List<TeamDto> all = teamService.getTeamsByIds(teamService.getTeams(0, 100, null).getContent().stream().map(TeamDto::getId).toList()).getTeams();
+        // same order as H2: null values first in ascending order, strings by code point
+        Comparator<TeamDto> byName = Comparator.comparing(TeamDto::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+        Comparator<TeamDto> byBudget = Comparator.comparing(TeamDto::getBudget, Comparator.nullsFirst(Comparator.<Double>naturalOrder()));
+        Comparator<TeamDto> byId = Comparator.comparing(TeamDto::getId);
+
+        assertPagesFollow(all, null, byId);
+        assertPagesFollow(all, List.of("name"), byName.thenComparing(byId));
+        assertPagesFollow(all, List.of("-budget", "name"), byBudget.reversed().thenComparing(byName).thenComparing(byId));
+        assertPagesFollow(all, List.of("budget", "-name"), byBudget.thenComparing(byName.reversed()).thenComparing(byId));
+    }
+
+    private void assertPagesFollow(List<TeamDto> all, List<String> sortBy, Comparator<TeamDto> order) {
+        List<Long> expected = all.stream().sorted(order).map(TeamDto::getId).toList();
+        List<Long> paged = new ArrayList<>();
+        for (int page = 0; page * 4 < expected.size(); page++) {
+            var result = teamService.getTeams(page, 4, sortBy);
+            assertEquals(expected.size(), result.getTotalElements());
+            result.getContent().forEach(team -> paged.add(team.getId()));
+        }
+        assertEquals(expected, paged, "order for " + sortBy);
+    }
+
+    /**
+     * Test that the writes and reads of a team are routed to its shard, and its changes are merged in the delta of every shard
+     */
+    @Test
+    void testWritesAreRoutedToTheShardOfTheTeam() {
+        long token = teamService.getTeamsDelta(0, 500).getToken();
+        TeamDto team = addTeam("Montpellier HSC", "MHSC", 20000000.0);
+        Long id = team.getId();
+        int shard = shards.shardOf(id);
+
+        PlayerDto player = teamService.addPlayer(id, new PlayerDto(null, "Téji Savanier", "Milieu"));
+        assertEquals(1, countOn(shard, "SELECT COUNT(*) FROM player WHERE id = ? AND team_id = ?", player.getId(), id));
+        TeamPatchDto patch = new TeamPatchDto();
+        patch.setBudget(25000000.0);
+        teamService.patchTeam(id, patch);
+
+        TeamDto loaded = teamService.getTeamById(id);
+        assertEquals(25000000.0, loaded.getBudget());
+        assertEquals(2, loaded.getPlayers().size());
+
+        teamService.removePlayer(id, player.getId());
+        assertEquals(0, countOn(shard, "SELECT COUNT(*) FROM player WHERE id = ?", player.getId()));
+        teamService.deleteTeam(id, null);
+        assertEquals(0, countOn(shard, "SELECT COUNT(*) FROM team WHERE id = ?", id));
+        assertThrows(ResourceNotFoundException.class, () -> teamService.getTeamById(id));
+
+        // the delta since the previous token only holds the deletion, read one change at a time
+        TeamDeltaDto delta = teamService.getTeamsDelta(token, 1);
+        assertEquals(List.of(id), delta.getDeletedIds());
+        assertTrue(delta.getTeams().isEmpty());
+        assertFalse(teamService.getTeamsDelta(delta.getToken(), 1).isHasMore());
+    }
+
+    /**
+     * Test that a full delta read in small batches and a multi-get return the teams of every shard
+     */
+    @Test
+    void testReadsGatherEveryShard() {
+        List<Long> ids = teamService.getTeams(0, 100, null).getContent().stream().map(TeamDto::getId).toList();
+
+        Set<Long> synced = new HashSet<>();
+        TeamDeltaDto delta;
+        long token = 0;
+        do {
+            delta = teamService.getTeamsDelta(token, 2);
+            assertTrue(delta.getToken() > token || !delta.isHasMore());
+            token = delta.getToken();
+            delta.getTeams().forEach(team -> synced.add(team.getId()));
+        } while (delta.isHasMore());
+        assertTrue(synced.containsAll(ids));
+
+        List<Long> requested = new ArrayList<>(ids);
+        requested.add(-1L);
+        TeamBatchDto batch = teamService.getTeamsByIds(requested);
+        assertEquals(ids, batch.getTeams().stream().map(TeamDto::getId).toList());
+        assertEquals(List.of(-1L), batch.getMissingIds());
+    }
+
+    /**
+     * Test that the in-memory indexes are rebuilt from the teams of every shard
+     */
+    @Test
+    void testLeaderboardIsRebuiltFromEveryShard() {
+        BudgetLeaderboard leaderboard = context.getBean(BudgetLeaderboard.class);
+        leaderboard.rebuild();
+
+        List<TeamDto> teams = teamService.getTeams(0, 100, List.of("-budget")).getContent();
+        assertEquals(teams.stream().map(TeamDto::getId).toList(), leaderboard.getTeamIds(0, 100));
+    }
+}
@@ -0,0 +1,123 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.service.SingleFlight;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Submit concurrent loads of the same key while the first one is blocked, then release it
+     */
+    private List<Future<String>> loadConcurrently(int callers, CountDownLatch release, AtomicInteger loads, RuntimeException failure) throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+            loads.incrementAndGet();
+            leaderStarted.countDown();
+            await(release);
+            if (failure != null) {
+                throw failure;
+            }
+            return "OGC Nice";
+        })));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < callers; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                loads.incrementAndGet();
+                return "OGC Nice";
+            })));
+        }
+        Thread.sleep(100); // let the waiters reach the load in flight
+        release.countDown();
+        return results;
+    }
+
+    /**
+     * Test that concurrent loads of the same key run the loader once and share its result
+     */
+    @Test
+    void testConcurrentLoadsAreCoalesced() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Future<String>> results = loadConcurrently(8, new CountDownLatch(1), loads, null);
+
+        for (Future<String> result : results) {
+            assertEquals("OGC Nice", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+
+        // the result is not cached, a new call loads again
+        assertEquals("OGC Nice", singleFlight.execute(1L, () -> {
+            loads.incrementAndGet();
+            return "OGC Nice";
+        }));
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Test that the exception of the loader is propagated to every waiter
+     */
+    @Test
+    void testErrorIsPropagatedToEveryWaiter() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ResourceNotFoundException notFound = new ResourceNotFoundException("Team with id 1 not found");
+
+        List<Future<String>> results = loadConcurrently(4, new CountDownLatch(1), loads, notFound);
+
+        for (Future<String> result : results) {
+            Exception exception = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(notFound, exception.getCause());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    /**
+     * Test that callers arriving after a key is forgotten start a new load
+     */
+    @Test
+    void testForgetStartsANewLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        Future<String> stale = executor.submit(() -> singleFlight.execute(1L, () -> {
+            leaderStarted.countDown();
+            await(release);
+            return "old";
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        singleFlight.forget(1L);
+
+        assertEquals("new", singleFlight.execute(1L, () -> "new"));
+        release.countDown();
+        assertEquals("old", stale.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.SlowQueryDto;
+import com.matawan.equipefootball.dto.SlowQueryReportDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.service.TeamService;
+import com.matawan.equipefootball.slowquery.SlowQueryLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Slow query log with a threshold of 0, every statement is recorded
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:slow-queries;DB_CLOSE_DELAY=-1", // the schema is created again for this context
+        "equipe.slow-query.threshold-ms=0",
+        "equipe.slow-query.explain=true"
+})
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class SlowQueryLogIntegrationTest {
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @BeforeEach
+    void setUp() {
+        slowQueryLog.clear();
+    }
+
+    /**
+     * Test that a statement is recorded with its bind parameters and its EXPLAIN plan
+     */
+    @Test
+    void testStatementIsRecordedWithParametersAndPlan() throws Exception {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("Slow FC");
+        teamDto.setAcronym("SFC");
+        teamDto.setBudget(1000000.0);
+        Long id = teamService.addTeam(teamDto).getId();
+        slowQueryLog.clear();
+
+        teamService.getTeamById(id);
+
+        SlowQueryDto select = teamSelect();
+        assertEquals(1, select.getCount());
+        // the plan is captured in the background
+        long deadline = System.currentTimeMillis() + 5000;
+        while (select.getPlan() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            select = teamSelect();
+        }
+        assertEquals(List.of(String.valueOf(id)), select.getSlowestParameters());
+        assertNotNull(select.getPlan());
+        assertTrue(select.getPlan().contains("FROM \"PUBLIC\".\"TEAM\""), select.getPlan());
+    }
+
+    /**
+     * Test that statements differing only by their literals and the length of their IN lists are aggregated
+     */
+    @Test
+    void testStatementsAreNormalized() {
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM team WHERE id IN (1, 2, 3) AND name <> 'a'", Long.class);
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM team WHERE id IN (4, 5) AND name <> 'it''s'", Long.class);
+
+        SlowQueryReportDto report = slowQueryLog.getReport();
+
+        SlowQueryDto count = report.getStatements().stream()
+                .filter(statement -> statement.getSql().equals("SELECT COUNT(*) FROM team WHERE id IN (?, ...) AND name <> ?"))
+                .findFirst().orElseThrow();
+        assertEquals(2, count.getCount());
+        assertEquals(0, report.getThresholdMs());
+    }
+
+    /**
+     * Test the admin endpoint
+     */
+    @Test
+    void testSlowQueriesEndpoint() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM team", Long.class);
+
+        mockMvc.perform(get("/api/admin/slow-queries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.thresholdMs").value(0))
+                .andExpect(jsonPath("$.statements[?(@.sql == 'SELECT COUNT(*) FROM team')].count").value(1));
+
+        mockMvc.perform(delete("/api/admin/slow-queries")).andExpect(status().isNoContent());
+        assertTrue(slowQueryLog.getReport().getStatements().isEmpty());
+    }
+
+    private SlowQueryDto teamSelect() {
+        return slowQueryLog.getReport().getStatements().stream()
+                .filter(statement -> statement.getSql().startsWith("select") && statement.getSql().contains(" from team "))
+                .findFirst().orElseThrow();
+    }
+}
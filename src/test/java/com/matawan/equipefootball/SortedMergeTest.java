@@ -0,0 +1,41 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.sharding.SortedMerge;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedMergeTest {
+
+    /**
+     * Test that the window of the merged order is taken across the lists, whatever list the elements come from
+     */
+    @Test
+    void testMergeWindow() {
+        List<List<Integer>> lists = List.of(List.of(1, 4, 7, 10), List.of(), List.of(2, 3, 8), List.of(5, 6, 9, 11, 12));
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12), SortedMerge.merge(lists, Comparator.naturalOrder(), 0, 100));
+        assertEquals(List.of(4, 5, 6), SortedMerge.merge(lists, Comparator.naturalOrder(), 3, 3));
+        assertEquals(List.of(11, 12), SortedMerge.merge(lists, Comparator.naturalOrder(), 10, 5));
+        assertEquals(List.of(), SortedMerge.merge(lists, Comparator.naturalOrder(), 12, 5));
+        assertEquals(List.of(), SortedMerge.merge(List.<List<Integer>>of(), Comparator.naturalOrder(), 0, 5));
+    }
+
+    /**
+     * Test that equal elements keep a deterministic order given by the comparator ties
+     */
+    @Test
+    void testMergeWithDescendingOrder() {
+        Comparator<int[]> order = Comparator.<int[]>comparingInt(pair -> pair[0]).reversed().thenComparingInt(pair -> pair[1]);
+        List<List<int[]>> lists = List.of(
+                List.of(new int[]{9, 1}, new int[]{5, 4}),
+                List.of(new int[]{9, 2}, new int[]{5, 3}, new int[]{1, 5}));
+
+        List<int[]> merged = SortedMerge.merge(lists, order, 0, 10);
+
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, merged.stream().mapToInt(pair -> pair[1]).toArray());
+    }
+}
@@ -0,0 +1,41 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.timing.RequestTiming;
+import com.matawan.equipefootball.timing.RequestTiming.StatementType;
+
+/**
+ * Numbers of SQL statements run by an action, by type, to guard the endpoints against N+1 regressions
+ *
+ * The statements are counted by the timed data source for the calling thread and the shard threads working for it, the
+ * background pollers are not counted. A JDBC batch counts as one statement.
+ */
+record SqlStatementCounts(long selects, long inserts, long updates, long deletes) {
+
+    interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Run an action and count its statements (MockMvc requests run on the calling thread)
+     *
+     * @param action the action
+     * @return the numbers of statements run by the action
+     */
+    static SqlStatementCounts count(Action action) throws Exception {
+        RequestTiming timing = new RequestTiming();
+        Exception[] failure = new Exception[1];
+        RequestTiming.callWith(timing, () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+            return null;
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return new SqlStatementCounts(timing.getStatements(StatementType.SELECT), timing.getStatements(StatementType.INSERT),
+                timing.getStatements(StatementType.UPDATE), timing.getStatements(StatementType.DELETE));
+    }
+}
@@ -0,0 +1,183 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.coherence.TeamChangeLogPoller;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.TeamPatchDto;
+import com.matawan.equipefootball.dto.TeamSuggestionDto;
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.leaderboard.BudgetLeaderboard;
+import com.matawan.equipefootball.service.TeamCache;
+import com.matawan.equipefootball.service.TeamService;
+import com.matawan.equipefootball.suggest.TeamSuggestIndex;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two application instances sharing a database served by H2 in server mode
+ */
+public class TeamCacheCoherenceIntegrationTest {
+
+    private static final long MAX_STALENESS_MS = 1000;
+
+    private static Server server;
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startInstances() throws SQLException, IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = Server.createTcpServer("-tcpPort", String.valueOf(port), "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + port + "/mem:coherence;DB_CLOSE_DELAY=-1";
+        first = startInstance(url, "first");
+        second = startInstance(url, "second");
+    }
+
+    private static ConfigurableApplicationContext startInstance(String url, String instanceId) {
+        return new SpringApplicationBuilder(EquipeFootballApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--equipe.instance-id=" + instanceId,
+                        "--equipe.changelog.poll-interval-ms=100",
+                        "--equipe.cache.teams.max-staleness-ms=" + MAX_STALENESS_MS);
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        second.close();
+        first.close();
+        server.stop();
+    }
+
+    /**
+     * Test that a team cached by one instance is evicted within the staleness bound when the other instance writes it
+     */
+    @Test
+    void testWritesOfAnotherInstanceEvictTheCache() throws InterruptedException {
+        TeamService firstService = first.getBean(TeamService.class);
+        TeamService secondService = second.getBean(TeamService.class);
+        TeamCache secondCache = second.getBean(TeamCache.class);
+
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("OGC Nice");
+        teamDto.setAcronym("OGCN");
+        teamDto.setBudget(10000000.0);
+        Long id = firstService.addTeam(teamDto).getId();
+
+        assertEquals("OGC Nice", secondService.getTeamById(id).getName());
+        assertNotNull(secondCache.get(id)); // cached by the second instance
+
+        TeamPatchDto patch = new TeamPatchDto();
+        patch.setName("Olympique Gymnaste Club de Nice");
+        firstService.patchTeam(id, patch);
+        awaitWithinStalenessBound(() -> "Olympique Gymnaste Club de Nice".equals(secondService.getTeamById(id).getName()));
+
+        firstService.deleteTeam(id, null);
+        awaitWithinStalenessBound(() -> {
+            try {
+                secondService.getTeamById(id);
+                return false;
+            } catch (ResourceNotFoundException e) {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Test that the suggest index and the budget leaderboard of one instance follow the writes of the other instance
+     */
+    @Test
+    void testWritesOfAnotherInstanceReachTheIndexes() throws InterruptedException {
+        TeamService firstService = first.getBean(TeamService.class);
+        TeamSuggestIndex secondIndex = second.getBean(TeamSuggestIndex.class);
+        BudgetLeaderboard secondLeaderboard = second.getBean(BudgetLeaderboard.class);
+
+        TeamDto reference = new TeamDto();
+        reference.setName("Stade Brestois");
+        reference.setAcronym("SB29");
+        reference.setBudget(50000000.0);
+        Long referenceId = firstService.addTeam(reference).getId();
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("Stade Rennais");
+        teamDto.setAcronym("SRFC");
+        teamDto.setBudget(900000000.0);
+        Long id = firstService.addTeam(teamDto).getId();
+        awaitWithinStalenessBound(() -> suggestedIds(secondIndex, "stade renn").contains(id)
+                && ranked(secondLeaderboard, id, referenceId).equals(List.of(id, referenceId)));
+
+        TeamPatchDto patch = new TeamPatchDto();
+        patch.setName("Rennes Bretagne");
+        patch.setBudget(1.0);
+        firstService.patchTeam(id, patch);
+        awaitWithinStalenessBound(() -> suggestedIds(secondIndex, "rennes bre").contains(id)
+                && !suggestedIds(secondIndex, "stade renn").contains(id)
+                && ranked(secondLeaderboard, id, referenceId).equals(List.of(referenceId, id)));
+
+        firstService.deleteTeam(id, null);
+        awaitWithinStalenessBound(() -> !suggestedIds(secondIndex, "rennes bre").contains(id)
+                && ranked(secondLeaderboard, id, referenceId).equals(List.of(referenceId)));
+    }
+
+    /**
+     * Test that the cache is bypassed once the change log has not been polled for longer than the staleness bound
+     */
+    @Test
+    void testCacheIsBypassedWithoutPolling() throws InterruptedException {
+        ConfigurableApplicationContext third = startInstance(first.getEnvironment().getProperty("spring.datasource.url"), "third");
+        try {
+            TeamService thirdService = third.getBean(TeamService.class);
+            TeamCache thirdCache = third.getBean(TeamCache.class);
+            TeamDto teamDto = new TeamDto();
+            teamDto.setName("Olympique Lyon");
+            teamDto.setAcronym("OL");
+            teamDto.setBudget(15000000.0);
+            Long id = first.getBean(TeamService.class).addTeam(teamDto).getId();
+            thirdService.getTeamById(id);
+            assertNotNull(thirdCache.get(id));
+
+            third.getBean(TeamChangeLogPoller.class).shutdown();
+            Thread.sleep(MAX_STALENESS_MS + 200);
+
+            assertNull(thirdCache.get(id));
+        } finally {
+            third.close();
+        }
+    }
+
+    /**
+     * @return the given teams in their order in the leaderboard
+     */
+    private static List<Long> ranked(BudgetLeaderboard leaderboard, Long... ids) {
+        List<Long> teams = List.of(ids);
+        return leaderboard.getTeamIds(0, leaderboard.size()).stream().filter(teams::contains).toList();
+    }
+
+    private static List<Long> suggestedIds(TeamSuggestIndex index, String query) {
+        return index.suggest(query, 10).stream().map(TeamSuggestionDto::getTeamId).toList();
+    }
+
+    private void awaitWithinStalenessBound(BooleanSupplier condition) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() - start < MAX_STALENESS_MS, "Stale team served after the staleness bound");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.repository.TeamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class TeamChangeFeedIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        teamRepository.deleteAll();
+    }
+
+    private TeamDto createTeam(String name, String acronym) throws Exception {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(10000000.0);
+        String response = mockMvc.perform(post("/api/teams")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(teamDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, TeamDto.class);
+    }
+
+    private String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            String content = response.getContentAsString();
+            if (content.contains(expected)) {
+                return content;
+            }
+            Thread.sleep(20);
+        }
+        fail("The event stream did not contain " + expected + ": " + response.getContentAsString());
+        return null;
+    }
+
+    /**
+     * Test that subscribers receive the committed changes as they happen
+     */
+    @Test
+    void testLiveChanges() throws Exception {
+        MvcResult subscription = mockMvc.perform(get("/api/teams/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        TeamDto team = createTeam("OGC Nice", "OGCN");
+        mockMvc.perform(patch("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"budget\": 20000000.0}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/teams/{id}", team.getId()))
+                .andExpect(status().isNoContent());
+
+        String content = awaitContent(subscription.getResponse(), "event:deleted");
+        assertTrue(content.indexOf("event:created") < content.indexOf("event:updated"));
+        assertTrue(content.indexOf("event:updated") < content.indexOf("event:deleted"));
+        assertTrue(content.contains("\"name\":\"OGC Nice\""));
+        assertTrue(content.contains("\"budget\":2.0E7"));
+    }
+
+    /**
+     * Test that a client reconnecting with Last-Event-ID gets the changes it missed, and that an unknown id is reset
+     */
+    @Test
+    void testResumeFromLastEventId() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/teams/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        createTeam("OGC Nice", "OGCN");
+        String content = awaitContent(first.getResponse(), "event:created");
+        Matcher matcher = Pattern.compile("id:(\\S+)").matcher(content);
+        assertTrue(matcher.find());
+        String lastEventId = matcher.group(1);
+
+        // changes made while the client is disconnected
+        createTeam("Olympique Lyon", "OL");
+        createTeam("Paris Saint-Germain", "PSG");
+
+        MvcResult resumed = mockMvc.perform(get("/api/teams/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String replayed = awaitContent(resumed.getResponse(), "Paris Saint-Germain");
+        assertTrue(replayed.contains("Olympique Lyon"));
+        assertFalse(replayed.contains("OGC Nice"));
+
+        MvcResult reset = mockMvc.perform(get("/api/teams/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "unknown:12"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(reset.getResponse(), "event:reset");
+    }
+}
@@ -0,0 +1,186 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.changefeed.TeamChangeFeed;
+import com.matawan.equipefootball.event.TeamChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeamChangeFeedTest {
+
+    private static final int SENDER_THREADS = 4;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    /**
+     * Test that a subscriber blocked in a send does not delay the others, and gets a reset once it fell behind the buffer
+     */
+    @Test
+    void testSlowSubscriberDoesNotDelayTheOthers() {
+        RecordingEmitter blocked = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+        TeamChangeFeed feed = feed(4, 60000, blocked, fast);
+        try {
+            feed.subscribe(null);
+            feed.subscribe(null);
+            awaitUntil(() -> feed.getSubscriberCount() == 2);
+
+            // the blocked subscriber holds the first change in its send while the next five overwrite it in the buffer
+            for (int sequence = 1; sequence <= 6; sequence++) {
+                feed.onTeamChanged(new TeamChangedEvent(TeamChangedEvent.Type.DELETED, (long) sequence, null, null));
+                int received = sequence;
+                awaitUntil(() -> fast.sent.size() == received);
+            }
+            assertTrue(fast.sent.stream().allMatch(event -> event.contains("event:deleted")), fast.sent.toString());
+            assertTrue(blocked.sent.isEmpty());
+
+            release.countDown();
+            awaitUntil(() -> !blocked.sent.isEmpty() && blocked.sent.get(blocked.sent.size() - 1).contains("event:reset"));
+            assertTrue(blocked.sent.get(0).contains("event:deleted"), blocked.sent.toString());
+            assertEquals(2, feed.getSubscriberCount());
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    /**
+     * Test that the changes and heartbeats of many subscribers are sent by the fixed sender threads
+     */
+    @Test
+    void testSenderThreadsAreBounded() {
+        Set<Thread> existingThreads = Thread.getAllStackTraces().keySet(); // the senders of the other tests may still be exiting
+        RecordingEmitter[] emitters = new RecordingEmitter[1000];
+        for (int i = 0; i < emitters.length; i++) {
+            emitters[i] = new RecordingEmitter(new CountDownLatch(0));
+        }
+        TeamChangeFeed feed = feed(1024, 10, emitters);
+        try {
+            for (int i = 0; i < emitters.length; i++) {
+                feed.subscribe(null);
+            }
+            awaitUntil(() -> feed.getSubscriberCount() == emitters.length);
+            feed.onTeamChanged(new TeamChangedEvent(TeamChangedEvent.Type.DELETED, 1L, null, null));
+
+            awaitUntil(() -> Arrays.stream(emitters).allMatch(emitter -> emitter.sent.stream().anyMatch(event -> event.contains("event:deleted"))
+                    && emitter.sent.stream().anyMatch(event -> event.contains(":heartbeat"))));
+            long senderThreads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("team-change-feed-sender-") && !existingThreads.contains(thread))
+                    .count();
+            assertTrue(senderThreads <= SENDER_THREADS, senderThreads + " sender threads");
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    /**
+     * Test that a subscriber whose send did not progress during a heartbeat interval is disconnected
+     */
+    @Test
+    void testStalledSubscriberIsDisconnected() {
+        RecordingEmitter blocked = new RecordingEmitter(release);
+        TeamChangeFeed feed = feed(1024, 50, blocked);
+        try {
+            feed.subscribe(null);
+            awaitUntil(() -> feed.getSubscriberCount() == 1);
+            feed.onTeamChanged(new TeamChangedEvent(TeamChangedEvent.Type.DELETED, 1L, null, null));
+
+            awaitUntil(() -> feed.getSubscriberCount() == 0);
+            assertTrue(blocked.completed);
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    /**
+     * Test that a reset is sent to the subscribers in order with the changes
+     */
+    @Test
+    void testResetIsSentToTheSubscribers() {
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        TeamChangeFeed feed = feed(1024, 60000, emitter);
+        try {
+            feed.subscribe(null);
+            awaitUntil(() -> feed.getSubscriberCount() == 1);
+            feed.onTeamChanged(new TeamChangedEvent(TeamChangedEvent.Type.DELETED, 1L, null, null));
+            feed.reset();
+
+            awaitUntil(() -> emitter.sent.size() == 2);
+            assertTrue(emitter.sent.get(0).contains("event:deleted"), emitter.sent.toString());
+            assertTrue(emitter.sent.get(1).contains("id:") && emitter.sent.get(1).contains("event:reset"), emitter.sent.toString());
+        } finally {
+            feed.shutdown();
+        }
+    }
+
+    /**
+     * A feed whose subscriptions use the given emitters, in order
+     */
+    private static TeamChangeFeed feed(int bufferSize, long heartbeatIntervalMillis, RecordingEmitter... emitters) {
+        List<RecordingEmitter> available = new CopyOnWriteArrayList<>(emitters);
+        return new TeamChangeFeed(bufferSize, 60000, heartbeatIntervalMillis, SENDER_THREADS) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMillis) {
+                return available.remove(0);
+            }
+        };
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Emitter recording the text of the events sent, each send waiting for the latch like a client not reading its connection
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch latch;
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile boolean completed;
+
+        private RecordingEmitter(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void send(SseEventBuilder event) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            sent.add(event.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+}
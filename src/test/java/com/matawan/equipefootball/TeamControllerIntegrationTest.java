@@ -1,8 +1,11 @@
 package com.matawan.equipefootball;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.PlayerDto;
 import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.repository.PlayerRepository;
 import com.matawan.equipefootball.repository.TeamRepository;
+import com.matawan.equipefootball.service.TeamCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +16,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -29,10 +39,19 @@ public class TeamControllerIntegrationTest {
     @Autowired
     private TeamRepository teamRepository;
 
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private TeamCache teamCache;
+
     private MockMvc mockMvc;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // numbers of teams and of players per team of the statement count tests
+    private static final int[] DATASET_SIZES = {1, 10, 30};
+
     @BeforeEach
     void setUp() {
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build(); // Set up MockMvc with the full application context
@@ -117,13 +136,15 @@ public class TeamControllerIntegrationTest {
         teamDto.setAcronym("OGCN");
         teamDto.setBudget(10000000.0);
 
-        mockMvc.perform(post("/api/teams")
+        String response = mockMvc.perform(post("/api/teams")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(teamDto)))
-                .andExpect(status().isCreated());
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long id = objectMapper.readValue(response, TeamDto.class).getId(); // ids are not reset between tests
 
         // Act & Assert: perform a GET request to fetch the team by ID
-        mockMvc.perform(get("/api/teams/{id}", 1L)) // Assuming the ID is 1
+        mockMvc.perform(get("/api/teams/{id}", id))
                 .andExpect(status().isOk()) // Expect 200 OK status
                 .andExpect(jsonPath("$.name").value("OGC Nice"))
                 .andExpect(jsonPath("$.acronym").value("OGCN"))
@@ -140,4 +161,508 @@ public class TeamControllerIntegrationTest {
                 .andExpect(status().isNotFound()) // expect 404 Not Found status
                 .andExpect(jsonPath("$.message").value("Team with id 9999 not found"));
     }
+
+    /**
+     * Test for adding a player to a team and removing it again through the roster endpoints
+     */
+    @Test
+    void testAddAndRemovePlayer() throws Exception {
+        // Arrange: create a team with one player
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("OGC Nice");
+        teamDto.setAcronym("OGCN");
+        teamDto.setBudget(10000000.0);
+        teamDto.setPlayers(List.of(new PlayerDto(null, "Player 1", "Midfielder")));
+
+        String response = mockMvc.perform(post("/api/teams")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(teamDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long teamId = objectMapper.readValue(response, TeamDto.class).getId();
+
+        // Act & Assert: add a second player
+        String playerResponse = mockMvc.perform(post("/api/teams/{id}/players", teamId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PlayerDto(null, "Player 2", "Defender"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("Player 2"))
+                .andExpect(jsonPath("$.position").value("Defender"))
+                .andReturn().getResponse().getContentAsString();
+        Long playerId = objectMapper.readValue(playerResponse, PlayerDto.class).getId();
+
+        mockMvc.perform(get("/api/teams/{id}", teamId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.players.length()").value(2))
+                .andExpect(jsonPath("$.players[1].name").value("Player 2"));
+
+        // Act & Assert: remove the player, then removing it a second time is a 404
+        mockMvc.perform(delete("/api/teams/{id}/players/{playerId}", teamId, playerId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/teams/{id}/players/{playerId}", teamId, playerId))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/teams/{id}", teamId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.players.length()").value(1))
+                .andExpect(jsonPath("$.players[0].name").value("Player 1"));
+        assertEquals(1, playerRepository.count());
+    }
+
+    /**
+     * Test for adding a player without a name
+     */
+    @Test
+    void testAddPlayerWithMissingName() throws Exception {
+        mockMvc.perform(post("/api/teams/{id}/players", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PlayerDto(null, null, "Defender"))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.name").value("Player name is required"));
+    }
+
+    private TeamDto createTeam(String name, String acronym, double budget) throws Exception {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(budget);
+        String response = mockMvc.perform(post("/api/teams")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(teamDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, TeamDto.class);
+    }
+
+    /**
+     * Test for replacing a team, the version is incremented and a stale version is rejected
+     */
+    @Test
+    void testUpdateTeam() throws Exception {
+        TeamDto team = createTeam("OGC Nice", "OGCN", 10000000.0);
+        assertEquals(0L, team.getVersion());
+
+        TeamDto update = new TeamDto();
+        update.setName("Olympique Gymnaste Club de Nice");
+        update.setAcronym("OGCN");
+        update.setBudget(12000000.0);
+        update.setVersion(0L);
+
+        mockMvc.perform(put("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Olympique Gymnaste Club de Nice"))
+                .andExpect(jsonPath("$.budget").value(12000000.0))
+                .andExpect(jsonPath("$.version").value(1));
+
+        // the same update based on version 0 is now stale
+        mockMvc.perform(put("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(String.format("Team with id %d has been modified (expected version 0, current version 1)", team.getId())));
+    }
+
+    /**
+     * Test for partially updating a team, the other fields are left untouched
+     */
+    @Test
+    void testPatchTeam() throws Exception {
+        TeamDto team = createTeam("OGC Nice", "OGCN", 10000000.0);
+
+        mockMvc.perform(patch("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"budget\": 15000000.0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("OGC Nice"))
+                .andExpect(jsonPath("$.acronym").value("OGCN"))
+                .andExpect(jsonPath("$.budget").value(15000000.0))
+                .andExpect(jsonPath("$.version").value(1));
+
+        mockMvc.perform(patch("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"budget\": -1.0, \"name\": \" \"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors.budget").value("Budget must be a positive value"))
+                .andExpect(jsonPath("$.errors.name").value("Team name must not be blank"));
+    }
+
+    /**
+     * Test for concurrent patches without a version, the conflicts are retried and every update is applied
+     */
+    @Test
+    void testConcurrentPatchesAreRetried() throws Exception {
+        TeamDto team = createTeam("OGC Nice", "OGCN", 10000000.0);
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 1; i <= writers; i++) {
+                String body = "{\"budget\": " + (10000000.0 + i) + "}";
+                statuses.add(executor.submit(() -> mockMvc.perform(patch("/api/teams/{id}", team.getId())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                        .andReturn().getResponse().getStatus()));
+            }
+            for (Future<Integer> responseStatus : statuses) {
+                assertEquals(200, responseStatus.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(writers, teamRepository.findById(team.getId()).orElseThrow().getVersion());
+    }
+
+    /**
+     * Test for fetching a team by its acronym, the lookup follows the renames
+     */
+    @Test
+    void testGetTeamByAcronym() throws Exception {
+        TeamDto team = createTeam("OGC Nice", "OGCN", 10000000.0);
+
+        mockMvc.perform(get("/api/teams/by-acronym/{acronym}", "OGCN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(team.getId()))
+                .andExpect(jsonPath("$.name").value("OGC Nice"));
+
+        mockMvc.perform(patch("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"acronym\": \"NICE\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/teams/by-acronym/{acronym}", "OGCN"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Team not found with acronym OGCN"));
+        mockMvc.perform(get("/api/teams/by-acronym/{acronym}", "NICE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(team.getId()));
+    }
+
+    /**
+     * Test that a second team with the same acronym is rejected, whether added, replaced or patched
+     */
+    @Test
+    void testDuplicateAcronymIsRejected() throws Exception {
+        createTeam("OGC Nice", "OGCN", 10000000.0);
+        TeamDto lyon = createTeam("Olympique Lyon", "OL", 15000000.0);
+
+        TeamDto duplicate = new TeamDto();
+        duplicate.setName("Another Nice");
+        duplicate.setAcronym("OGCN");
+        duplicate.setBudget(1000000.0);
+        mockMvc.perform(post("/api/teams")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(duplicate)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("A team with acronym OGCN already exists"));
+
+        duplicate.setName("Olympique Lyon");
+        mockMvc.perform(put("/api/teams/{id}", lyon.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(duplicate)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/teams/{id}", lyon.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"acronym\": \"OGCN\"}"))
+                .andExpect(status().isConflict());
+
+        assertEquals(2, teamRepository.count());
+        assertEquals("OL", teamRepository.findById(lyon.getId()).orElseThrow().getAcronym());
+    }
+
+    /**
+     * Test for deleting a team with its roster
+     */
+    @Test
+    void testDeleteTeam() throws Exception {
+        TeamDto team = createTeam("OGC Nice", "OGCN", 10000000.0);
+        mockMvc.perform(post("/api/teams/{id}/players", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PlayerDto(null, "Player 1", "Midfielder"))))
+                .andExpect(status().isCreated());
+
+        // a stale version is rejected
+        mockMvc.perform(delete("/api/teams/{id}", team.getId()).param("version", "7"))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(delete("/api/teams/{id}", team.getId()).param("version", "0"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/teams/{id}", team.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/teams/{id}", team.getId()))
+                .andExpect(status().isNotFound());
+        assertEquals(0, teamRepository.count());
+        assertEquals(0, playerRepository.count());
+    }
+
+    /**
+     * Test for fetching several teams by id, in the requested order and with the unknown ids reported
+     */
+    @Test
+    void testGetTeamsByIds() throws Exception {
+        TeamDto nice = createTeam("OGC Nice", "OGCN", 10000000.0);
+        TeamDto lyon = createTeam("Olympique Lyon", "OL", 15000000.0);
+        mockMvc.perform(post("/api/teams/{id}/players", lyon.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PlayerDto(null, "Player 1", "Midfielder"))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/teams").param("ids", lyon.getId() + ",999999," + nice.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teams.length()").value(2))
+                .andExpect(jsonPath("$.teams[0].name").value("Olympique Lyon"))
+                .andExpect(jsonPath("$.teams[0].players[0].name").value("Player 1"))
+                .andExpect(jsonPath("$.teams[1].name").value("OGC Nice"))
+                .andExpect(jsonPath("$.teams[1].players.length()").value(0))
+                .andExpect(jsonPath("$.missingIds[0]").value(999999));
+
+        mockMvc.perform(post("/api/teams/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(nice.getId(), lyon.getId()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teams[0].name").value("OGC Nice"))
+                .andExpect(jsonPath("$.teams[1].name").value("Olympique Lyon"))
+                .andExpect(jsonPath("$.missingIds.length()").value(0));
+    }
+
+    /**
+     * Test for the delta sync, only the teams changed since the token are returned, with the deleted ids
+     */
+    @Test
+    void testGetTeamsDelta() throws Exception {
+        TeamDto nice = createTeam("OGC Nice", "OGCN", 10000000.0);
+        TeamDto lyon = createTeam("Olympique Lyon", "OL", 15000000.0);
+        TeamDto paris = createTeam("Paris Saint-Germain", "PSG", 20000000.0);
+        long token = currentSyncToken();
+
+        mockMvc.perform(patch("/api/teams/{id}", lyon.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"budget\": 16000000.0}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/teams/{id}/players", nice.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PlayerDto(null, "Player 1", "Midfielder"))))
+                .andExpect(status().isCreated());
+        mockMvc.perform(delete("/api/teams/{id}", paris.getId()))
+                .andExpect(status().isNoContent());
+
+        String response = mockMvc.perform(get("/api/teams/delta").param("since", String.valueOf(token)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teams.length()").value(2))
+                .andExpect(jsonPath("$.teams[0].name").value("Olympique Lyon"))
+                .andExpect(jsonPath("$.teams[0].budget").value(16000000.0))
+                .andExpect(jsonPath("$.teams[1].name").value("OGC Nice"))
+                .andExpect(jsonPath("$.teams[1].players[0].name").value("Player 1"))
+                .andExpect(jsonPath("$.deletedIds[0]").value(paris.getId()))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn().getResponse().getContentAsString();
+        long nextToken = objectMapper.readTree(response).get("token").asLong();
+        assertTrue(nextToken > token);
+
+        // nothing changed since the last sync
+        mockMvc.perform(get("/api/teams/delta").param("since", String.valueOf(nextToken)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teams.length()").value(0))
+                .andExpect(jsonPath("$.deletedIds.length()").value(0))
+                .andExpect(jsonPath("$.token").value(nextToken));
+
+        // a small limit pages through the changes
+        mockMvc.perform(get("/api/teams/delta").param("since", String.valueOf(token)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teams.length()").value(1))
+                .andExpect(jsonPath("$.teams[0].name").value("Olympique Lyon"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+
+        mockMvc.perform(get("/api/teams/delta").param("since", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test that the read endpoints run the same SQL statements whatever the number of teams and players: a lazy load or a
+     * query per team added to the mapping fails here
+     */
+    @Test
+    void testReadStatementCountsDoNotGrowWithTheData() throws Exception {
+        for (int size : DATASET_SIZES) {
+            teamRepository.deleteAll();
+            List<TeamDto> teams = createTeamsWithRosters(size);
+            TeamDto team = teams.get(size - 1);
+            String ids = teams.stream().map(t -> String.valueOf(t.getId())).collect(Collectors.joining(","));
+            String dataset = size + " teams of " + size + " players";
+
+            teamCache.invalidateAll(); // the counts are those of a cold cache
+            assertEquals(new SqlStatementCounts(2, 0, 0, 0), SqlStatementCounts.count(() -> mockMvc.perform(get("/api/teams/{id}", team.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.players.length()").value(size))), dataset);
+            teamCache.invalidateAll();
+            assertEquals(new SqlStatementCounts(3, 0, 0, 0), SqlStatementCounts.count(() -> mockMvc.perform(get("/api/teams/by-acronym/{acronym}", team.getAcronym()))
+                    .andExpect(status().isOk())), dataset);
+            assertEquals(new SqlStatementCounts(3, 0, 0, 0), SqlStatementCounts.count(() -> mockMvc.perform(get("/api/teams")
+                            .param("size", String.valueOf(size)).param("sortBy", "-budget", "name"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content.length()").value(size))), dataset);
+            teamCache.invalidateAll();
+            assertEquals(new SqlStatementCounts(2, 0, 0, 0), SqlStatementCounts.count(() -> mockMvc.perform(get("/api/teams").param("ids", ids))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.teams.length()").value(size))), dataset);
+            teamCache.invalidateAll();
+            assertEquals(new SqlStatementCounts(2, 0, 0, 0), SqlStatementCounts.count(() -> mockMvc.perform(post("/api/teams/lookup")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[" + ids + "]"))
+                    .andExpect(status().isOk())), dataset);
+            assertEquals(new SqlStatementCounts(3, 0, 0, 0), SqlStatementCounts.count(() -> mockMvc.perform(get("/api/teams/delta").param("since", "0"))
+                    .andExpect(status().isOk())), dataset);
+        }
+    }
+
+    /**
+     * Test that the write endpoints run the same SQL statements whatever the size of the roster, except the creation of a
+     * team which inserts its players one by one (their ids are generated by an identity column, so they cannot be batched)
+     */
+    @Test
+    void testWriteStatementCountsDoNotGrowWithTheRoster() throws Exception {
+        for (int size : DATASET_SIZES) {
+            teamRepository.deleteAll();
+            createTeamsWithRosters(1); // the goalkeeper position is in the dictionary
+            TeamDto teamDto = teamWithRoster("Roster " + size + " FC", "RST" + size, size);
+            String dataset = "roster of " + size + " players";
+
+            String[] response = new String[1];
+            assertEquals(new SqlStatementCounts(1, size + 2, 0, 0), SqlStatementCounts.count(() -> response[0] = mockMvc.perform(post("/api/teams")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(teamDto)))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString()), dataset);
+            Long id = objectMapper.readValue(response[0], TeamDto.class).getId();
+
+            teamDto.setPlayers(null);
+            teamDto.setName("Roster " + size + " Renamed FC");
+            assertEquals(new SqlStatementCounts(3, 1, 1, 0), SqlStatementCounts.count(() -> mockMvc.perform(put("/api/teams/{id}", id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(teamDto)))
+                    .andExpect(status().isOk())), dataset);
+            assertEquals(new SqlStatementCounts(3, 1, 1, 0), SqlStatementCounts.count(() -> mockMvc.perform(patch("/api/teams/{id}", id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"budget\": 12000000.0}"))
+                    .andExpect(status().isOk())), dataset);
+            assertEquals(new SqlStatementCounts(1, 2, 1, 0), SqlStatementCounts.count(() -> response[0] = mockMvc.perform(post("/api/teams/{id}/players", id)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new PlayerDto(null, "Roster Recruit", "Goalkeeper"))))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString()), dataset);
+            Long playerId = objectMapper.readValue(response[0], PlayerDto.class).getId();
+            assertEquals(new SqlStatementCounts(1, 1, 1, 1), SqlStatementCounts.count(() -> mockMvc.perform(delete("/api/teams/{id}/players/{playerId}", id, playerId))
+                    .andExpect(status().isNoContent())), dataset);
+            assertEquals(new SqlStatementCounts(4, 2, 0, 2), SqlStatementCounts.count(() -> mockMvc.perform(delete("/api/teams/{id}", id))
+                    .andExpect(status().isNoContent())), dataset);
+        }
+    }
+
+    private List<TeamDto> createTeamsWithRosters(int size) throws Exception {
+        List<TeamDto> teams = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            TeamDto teamDto = teamWithRoster("Dataset " + size + " Team " + i, "DS" + size + "T" + i, size);
+            String response = mockMvc.perform(post("/api/teams")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(teamDto)))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            teams.add(objectMapper.readValue(response, TeamDto.class));
+        }
+        return teams;
+    }
+
+    private TeamDto teamWithRoster(String name, String acronym, int players) {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(10000000.0 + players);
+        List<PlayerDto> roster = new ArrayList<>(players);
+        for (int i = 0; i < players; i++) {
+            roster.add(new PlayerDto(null, name + " player " + i, i % 2 == 0 ? "Goalkeeper" : "Forward"));
+        }
+        teamDto.setPlayers(roster);
+        return teamDto;
+    }
+
+    /**
+     * Test that the top teams match the teams sorted by budget in the database, ties included
+     */
+    @Test
+    void testGetTopTeamsMatchesSortedTeams() throws Exception {
+        createTeam("OGC Nice", "OGCN", 10000000.0);
+        TeamDto lyon = createTeam("Olympique Lyon", "OL", 15000000.0);
+        createTeam("Paris Saint-Germain", "PSG", 20000000.0);
+        createTeam("RC Lens", "RCL", 10000000.0);
+        createTeam("Stade Rennais", "SRFC", 15000000.0);
+        assertTopTeamsMatchSortedTeams(4);
+
+        mockMvc.perform(patch("/api/teams/{id}", lyon.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"budget\": 25000000.0}"))
+                .andExpect(status().isOk());
+        assertTopTeamsMatchSortedTeams(5);
+
+        mockMvc.perform(get("/api/teams/top").param("n", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Test that the budget distribution follows the creation, the budget updates and the deletion of a team
+     */
+    @Test
+    void testBudgetDistributionFollowsTheWrites() throws Exception {
+        long count = budgetCount();
+        TeamDto team = createTeam("OGC Nice", "OGCN", 10000000.0);
+        assertEquals(count + 1, budgetCount());
+
+        mockMvc.perform(patch("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"budget\": 12000000.0}"))
+                .andExpect(status().isOk());
+        assertEquals(count + 1, budgetCount());
+
+        mockMvc.perform(delete("/api/teams/{id}", team.getId()))
+                .andExpect(status().isNoContent());
+        assertEquals(count, budgetCount());
+
+        mockMvc.perform(get("/api/teams/budget-distribution").param("q", "0.5", "0.99"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.relativeAccuracy").value(0.02))
+                .andExpect(jsonPath("$.quantiles.length()").value(2));
+        mockMvc.perform(get("/api/teams/budget-distribution").param("q", "1.5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long budgetCount() throws Exception {
+        String response = mockMvc.perform(get("/api/teams/budget-distribution"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("count").asLong();
+    }
+
+    private void assertTopTeamsMatchSortedTeams(int n) throws Exception {
+        String top = mockMvc.perform(get("/api/teams/top").param("n", String.valueOf(n)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String sorted = mockMvc.perform(get("/api/teams").param("sortBy", "-budget").param("size", String.valueOf(n)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(objectMapper.readTree(sorted).get("content"), objectMapper.readTree(top));
+    }
+
+    private long currentSyncToken() throws Exception {
+        long token = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            String response = mockMvc.perform(get("/api/teams/delta").param("since", String.valueOf(token)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            token = objectMapper.readTree(response).get("token").asLong();
+            hasMore = objectMapper.readTree(response).get("hasMore").asBoolean();
+        }
+        return token;
+    }
 }
@@ -0,0 +1,122 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.entity.Team;
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.repository.TeamRepository;
+import com.matawan.equipefootball.service.TeamIdFilter;
+import com.matawan.equipefootball.service.TeamService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups of missing team ids answered by the id filter
+ */
+@SpringBootTest
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class TeamIdFilterIntegrationTest {
+
+    @Autowired
+    private TeamIdFilter teamIdFilter;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Test that a team inserted without going through the service is known to the filter before its commit
+     */
+    @Test
+    void testInsertedTeamIsNeverKnownMissing() {
+        long previous = teamRepository.save(new Team(null, "Previous FC", "PFC", 1000000.0, new LinkedHashSet<>())).getId();
+        teamIdFilter.add(previous + 1000); // the next id is below the highest known id, only the filter can tell it exists
+
+        Team team = teamRepository.save(new Team(null, "Filter FC", "FFC", 1000000.0, new LinkedHashSet<>()));
+
+        assertFalse(teamIdFilter.isKnownMissing(team.getId()));
+        assertEquals("Filter FC", teamService.getTeamById(team.getId()).getName());
+    }
+
+    /**
+     * Test that a lookup between the insert of a team and its commit is not remembered once the team is committed
+     */
+    @Test
+    void testLookupBeforeTheCommitIsForgotten() throws Exception {
+        long previous = teamRepository.save(new Team(null, "Early FC", "EFC", 1000000.0, new LinkedHashSet<>())).getId();
+        teamIdFilter.add(previous + 1000); // the lookup is answered by the filter and the missing ids, not by the highest id
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Long id = new TransactionTemplate(transactionManager).execute(status -> {
+                Long inserted = teamRepository.saveAndFlush(new Team(null, "Uncommitted FC", "UFC", 1000000.0, new LinkedHashSet<>())).getId();
+                // a scraper walking the ids asks for the team before it is committed
+                Future<?> lookup = executor.submit(() -> assertThrows(ResourceNotFoundException.class, () -> teamService.getTeamById(inserted)));
+                try {
+                    lookup.get(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return inserted;
+            });
+
+            assertFalse(teamIdFilter.isKnownMissing(id));
+            assertEquals("Uncommitted FC", teamService.getTeamById(id).getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that a deleted team is remembered as missing after the first lookup, and found again if the id comes back
+     */
+    @Test
+    void testDeletedTeamIsRememberedMissing() {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("Deleted FC");
+        teamDto.setAcronym("DFC");
+        teamDto.setBudget(1000000.0);
+        Long id = teamService.addTeam(teamDto).getId();
+        teamService.deleteTeam(id, null);
+
+        assertThrows(ResourceNotFoundException.class, () -> teamService.getTeamById(id));
+        assertTrue(teamIdFilter.isKnownMissing(id));
+
+        teamIdFilter.add(id);
+        assertFalse(teamIdFilter.isKnownMissing(id));
+    }
+
+    /**
+     * Test that ids that never existed are known missing, except for the few false positives of the filter,
+     * and that ids above the highest known id are left to the database
+     */
+    @Test
+    void testUnknownIdsAreKnownMissing() {
+        long highest = teamRepository.save(new Team(null, "Highest FC", "HFC", 1000000.0, new LinkedHashSet<>())).getId();
+        assertFalse(teamIdFilter.isKnownMissing(highest + 1));
+
+        teamIdFilter.add(highest + 100_000);
+        int knownMissing = 0;
+        for (long id = highest + 1; id <= highest + 10_000; id++) {
+            if (teamIdFilter.isKnownMissing(id)) {
+                knownMissing++;
+            }
+        }
+        assertTrue(knownMissing > 9_500, knownMissing + " ids known missing");
+    }
+}
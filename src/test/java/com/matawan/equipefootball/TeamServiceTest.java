@@ -1,25 +1,47 @@
 package com.matawan.equipefootball;
 
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamBatchDto;
 import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.entity.Player;
 import com.matawan.equipefootball.entity.Team;
+import com.matawan.equipefootball.event.TeamChangedEvent;
 import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.repository.PlayerRepository;
 import com.matawan.equipefootball.repository.TeamRepository;
+import com.matawan.equipefootball.repository.TeamTombstoneRepository;
+import com.matawan.equipefootball.service.ChangeSequence;
+import com.matawan.equipefootball.service.TeamCache;
+import com.matawan.equipefootball.service.TeamIdFilter;
+import com.matawan.equipefootball.service.TeamAcronymCache;
+import com.matawan.equipefootball.service.ParallelMapping;
 import com.matawan.equipefootball.service.PlayerService;
 import com.matawan.equipefootball.service.TeamService;
+import com.matawan.equipefootball.sharding.Shards;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,9 +51,39 @@ class TeamServiceTest {
     @Mock
     private TeamRepository teamRepository;
 
+    @Mock
+    private PlayerRepository playerRepository;
+
     @Mock
     private PlayerService playerService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ChangeSequence changeSequence;
+
+    @Mock
+    private TeamTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private TeamCache teamCache;
+
+    @Mock
+    private TeamIdFilter teamIdFilter;
+
+    @Mock
+    private TeamAcronymCache teamAcronymCache;
+
+    @Spy
+    private ParallelMapping parallelMapping = new ParallelMapping(1, 250); // the lists of these tests are converted on the calling thread
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private Shards shards = new Shards(List.of(mock(DataSource.class))); // a single database, nothing is routed
+
     @InjectMocks
     private TeamService teamService;
 
@@ -48,7 +100,7 @@ class TeamServiceTest {
         Team team = new Team();
         team.setId(1L);
         team.setName("OGC Nice");
-        team.setPlayers(Collections.emptyList());
+        team.setPlayers(Collections.emptySet());
 
         when(teamRepository.findById(1L)).thenReturn(Optional.of(team));
 
@@ -72,6 +124,21 @@ class TeamServiceTest {
 
         assertEquals("Team with id 1 not found", exception.getMessage());
         verify(teamRepository, times(1)).findById(1L);
+        verify(teamIdFilter).recordMissing(eq(1L), anyLong());
+    }
+
+    /**
+     * Test that an id the filter knows to be missing is answered without querying the database
+     */
+    @Test
+    void testGetTeamByIdKnownMissing() {
+        when(teamIdFilter.isKnownMissing(1L)).thenReturn(true);
+
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> teamService.getTeamById(1L));
+
+        assertEquals("Team with id 1 not found", exception.getMessage());
+        assertEquals(0, exception.getStackTrace().length);
+        verifyNoInteractions(teamRepository);
     }
 
     /**
@@ -154,4 +221,149 @@ class TeamServiceTest {
         assertEquals("OGC Nice", result.getName());
         verify(teamRepository, times(1)).save(any(Team.class));
     }
+
+    /**
+     * Test for adding a player to an existing team
+     */
+    @Test
+    void testAddPlayer() {
+        Team teamReference = new Team();
+        teamReference.setId(1L);
+        PlayerDto playerDto = new PlayerDto(null, "Player 1", "Midfielder");
+        Player player = new Player(null, "Player 1", "Midfielder");
+        Player savedPlayer = new Player(10L, "Player 1", "Midfielder");
+
+        when(teamRepository.updateChangeSeq(eq(1L), anyLong())).thenReturn(1);
+        when(teamRepository.getReferenceById(1L)).thenReturn(teamReference);
+        when(playerService.convertToEntity(playerDto)).thenReturn(player);
+        when(playerRepository.save(player)).thenReturn(savedPlayer);
+        when(playerService.convertToDto(savedPlayer)).thenReturn(new PlayerDto(10L, "Player 1", "Midfielder"));
+
+        PlayerDto result = teamService.addPlayer(1L, playerDto);
+
+        assertEquals(10L, result.getId());
+        assertSame(teamReference, player.getTeam());
+        verify(playerRepository, times(1)).save(player);
+        verify(teamRepository, never()).findById(any()); // the roster is never loaded
+    }
+
+    /**
+     * Test for adding a player to a team that does not exist
+     */
+    @Test
+    void testAddPlayerToUnknownTeam() {
+        when(teamRepository.updateChangeSeq(eq(1L), anyLong())).thenReturn(0);
+
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> {
+            teamService.addPlayer(1L, new PlayerDto(null, "Player 1", "Midfielder"));
+        });
+
+        assertEquals("Team with id 1 not found", exception.getMessage());
+        verify(playerRepository, never()).save(any(Player.class));
+    }
+
+    /**
+     * Test for removing a player that does not belong to the team
+     */
+    @Test
+    void testRemovePlayerNotInTeam() {
+        when(playerRepository.deleteByIdAndTeamId(5L, 1L)).thenReturn(0);
+
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> {
+            teamService.removePlayer(1L, 5L);
+        });
+
+        assertEquals("Player with id 5 not found in team with id 1", exception.getMessage());
+    }
+
+    /**
+     * Test that concurrent reads of the same team share a single repository call
+     */
+    @Test
+    void testConcurrentGetTeamByIdIsCoalesced() throws Exception {
+        Team team = new Team();
+        team.setId(1L);
+        team.setName("OGC Nice");
+        CountDownLatch release = new CountDownLatch(1);
+        when(teamRepository.findById(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(team);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TeamDto>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> teamService.getTeamById(1L)));
+            }
+            Thread.sleep(200); // let every reader reach the load in flight
+            release.countDown();
+            for (Future<TeamDto> result : results) {
+                assertEquals("OGC Nice", result.get(5, TimeUnit.SECONDS).getName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(teamRepository, times(1)).findById(1L);
+    }
+
+    /**
+     * Test that writes publish a change event (used to detach the loads in flight)
+     */
+    @Test
+    void testAddTeamPublishesEvent() {
+        Team team = new Team();
+        team.setId(1L);
+        team.setName("OGC Nice");
+        when(teamRepository.save(any(Team.class))).thenReturn(team);
+
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("OGC Nice");
+        teamService.addTeam(teamDto);
+
+        verify(eventPublisher, times(1)).publishEvent(any(TeamChangedEvent.class));
+    }
+
+    /**
+     * Test that a multi-get uses one query for the teams and one for all their players
+     */
+    @Test
+    void testGetTeamsByIds() {
+        Team team1 = new Team();
+        team1.setId(1L);
+        team1.setName("Team A");
+        Team team2 = new Team();
+        team2.setId(2L);
+        team2.setName("Team B");
+        Player player = new Player(10L, "Player 1", "Midfielder");
+        player.setTeam(team2);
+
+        when(teamRepository.findAllById(any())).thenReturn(List.of(team1, team2));
+        when(playerRepository.findByTeamIdIn(any())).thenReturn(List.of(player));
+        when(playerService.convertToDto(player)).thenReturn(new PlayerDto(10L, "Player 1", "Midfielder"));
+
+        TeamBatchDto result = teamService.getTeamsByIds(List.of(2L, 3L, 1L, 2L));
+
+        assertEquals(List.of("Team B", "Team A"), result.getTeams().stream().map(TeamDto::getName).toList());
+        assertEquals(1, result.getTeams().get(0).getPlayers().size());
+        assertEquals(0, result.getTeams().get(1).getPlayers().size());
+        assertEquals(List.of(3L), result.getMissingIds());
+        verify(teamRepository, times(1)).findAllById(any());
+        verify(playerRepository, times(1)).findByTeamIdIn(any());
+    }
+
+    /**
+     * Test that a multi-get of too many ids is rejected
+     */
+    @Test
+    void testGetTeamsByIdsTooMany() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= TeamService.MAX_BATCH_IDS + 1; id++) {
+            ids.add(id);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> teamService.getTeamsByIds(ids));
+        verify(teamRepository, never()).findAllById(any());
+    }
 }
@@ -0,0 +1,185 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDeltaDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.TeamPatchDto;
+import com.matawan.equipefootball.dto.TeamSnapshotDto;
+import com.matawan.equipefootball.exception.ResourceNotFoundException;
+import com.matawan.equipefootball.leaderboard.BudgetLeaderboard;
+import com.matawan.equipefootball.repository.TeamRepository;
+import com.matawan.equipefootball.service.TeamService;
+import com.matawan.equipefootball.snapshot.TeamSnapshots;
+import com.matawan.equipefootball.suggest.TeamSuggestIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Binary snapshots and restores of the teams and players, with small blocks so a snapshot spans several of them
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:snapshots;DB_CLOSE_DELAY=-1", // the schema is created again for this context
+        "equipe.snapshot.directory=${java.io.tmpdir}/equipe-football-snapshot-test",
+        "equipe.snapshot.block-size=256"
+})
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class TeamSnapshotIntegrationTest {
+
+    @Autowired
+    private TeamSnapshots teamSnapshots;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private TeamSuggestIndex teamSuggestIndex;
+
+    @Autowired
+    private BudgetLeaderboard budgetLeaderboard;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Value("${equipe.snapshot.directory}")
+    private String directory;
+
+    /**
+     * Test that a restore brings back the teams, rosters and versions of the snapshot and drops the later changes
+     */
+    @Test
+    void testRestoreReplacesTheTeams() {
+        TeamDto kept = addTeam("Snapshot Kept FC", "SKF", 5000000.0,
+                new PlayerDto(null, "Kept Keeper", "Goalkeeper"), new PlayerDto(null, "Kept Striker", "Forward"));
+        TeamDto renamed = addTeam("Snapshot Renamed FC", "SRF", 3000000.0, new PlayerDto(null, "Renamed Defender", "Defender"));
+        TeamSnapshotDto written = teamSnapshots.write("round-trip");
+        assertEquals(teamRepository.count(), written.getTeams());
+
+        teamService.deleteTeam(kept.getId(), null);
+        TeamPatchDto patch = new TeamPatchDto();
+        patch.setName("Snapshot Changed FC");
+        teamService.patchTeam(renamed.getId(), patch);
+        TeamDto later = addTeam("Snapshot Later FC", "SLF", 9000000.0);
+
+        TeamSnapshotDto restored = teamSnapshots.restore("round-trip");
+
+        assertEquals(written.getTeams(), restored.getTeams());
+        assertEquals(written.getPlayers(), restored.getPlayers());
+        assertEquals(written.getTeams(), teamRepository.count());
+        TeamDto restoredKept = teamService.getTeamById(kept.getId());
+        assertEquals("Snapshot Kept FC", restoredKept.getName());
+        assertEquals(kept.getVersion(), restoredKept.getVersion());
+        assertEquals(List.of("Goalkeeper", "Forward"), restoredKept.getPlayers().stream().map(PlayerDto::getPosition).toList());
+        assertEquals("Snapshot Renamed FC", teamService.getTeamById(renamed.getId()).getName());
+        assertThrows(ResourceNotFoundException.class, () -> teamService.getTeamById(later.getId()));
+
+        // the in-memory indexes are rebuilt and the ids keep growing
+        assertFalse(budgetLeaderboard.getTeamIds(0, 100).contains(later.getId()));
+        assertEquals(kept.getId(), teamSuggestIndex.suggest("snapshot kept", 1).get(0).getTeamId());
+        assertTrue(addTeam("Snapshot Next FC", "SNF", 1000000.0).getId() > renamed.getId());
+    }
+
+    /**
+     * Test that a client of the delta sync gets the teams brought back and the ids removed by a restore
+     */
+    @Test
+    void testRestoreIsSentToTheDeltaSync() {
+        TeamDto deleted = addTeam("Snapshot Deleted FC", "SDL", 4000000.0);
+        TeamDto renamed = addTeam("Snapshot Delta FC", "SDT", 4000000.0);
+        teamSnapshots.write("delta");
+        teamService.deleteTeam(deleted.getId(), null);
+        TeamPatchDto patch = new TeamPatchDto();
+        patch.setName("Snapshot Delta Changed FC");
+        teamService.patchTeam(renamed.getId(), patch);
+        TeamDto later = addTeam("Snapshot Delta Later FC", "SDX", 4000000.0);
+        long token = sync(0).getToken();
+
+        teamSnapshots.restore("delta");
+
+        TeamDeltaDto delta = sync(token);
+        List<Long> changedIds = delta.getTeams().stream().map(TeamDto::getId).toList();
+        assertTrue(changedIds.contains(deleted.getId()), changedIds.toString());
+        assertEquals("Snapshot Delta FC", delta.getTeams().stream()
+                .filter(team -> team.getId().equals(renamed.getId())).findFirst().orElseThrow().getName());
+        assertEquals(List.of(later.getId()), delta.getDeletedIds());
+        assertTrue(delta.getToken() > token);
+    }
+
+    /**
+     * Test that a damaged snapshot is rejected before anything is deleted
+     */
+    @Test
+    void testDamagedSnapshotIsRejected() throws Exception {
+        addTeam("Snapshot Damaged FC", "SDF", 2000000.0, new PlayerDto(null, "Damaged Winger", "Forward"));
+        long teams = teamSnapshots.write("damaged").getTeams();
+        try (FileChannel channel = FileChannel.open(Path.of(directory, "damaged.snapshot"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer data = ByteBuffer.allocate(1);
+            long position = channel.size() / 2;
+            channel.read(data, position);
+            channel.write(data.put(0, (byte) (data.get(0) ^ 0x40)).rewind(), position);
+        }
+        addTeam("Snapshot Survivor FC", "SSF", 2000000.0);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> teamSnapshots.restore("damaged"));
+
+        assertTrue(exception.getMessage().startsWith("Invalid snapshot damaged.snapshot"), exception.getMessage());
+        assertEquals(teams + 1, teamRepository.count());
+    }
+
+    /**
+     * Test the admin endpoints
+     */
+    @Test
+    void testSnapshotEndpoints() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        addTeam("Snapshot Endpoint FC", "SEF", 1000000.0);
+
+        mockMvc.perform(post("/api/admin/snapshots/{name}", "endpoint"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("endpoint"))
+                .andExpect(jsonPath("$.teams").value(teamRepository.count()));
+        mockMvc.perform(post("/api/admin/snapshots/{name}/restore", "endpoint"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teams").value(teamRepository.count()));
+        mockMvc.perform(post("/api/admin/snapshots/{name}/restore", "missing"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/admin/snapshots/{name}", ".hidden"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Read all the changes since a token
+     */
+    private TeamDeltaDto sync(long token) {
+        TeamDeltaDto delta = teamService.getTeamsDelta(token, 500);
+        assertFalse(delta.isHasMore());
+        return delta;
+    }
+
+    private TeamDto addTeam(String name, String acronym, double budget, PlayerDto... players) {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName(name);
+        teamDto.setAcronym(acronym);
+        teamDto.setBudget(budget);
+        teamDto.setPlayers(List.of(players));
+        return teamService.addTeam(teamDto);
+    }
+}
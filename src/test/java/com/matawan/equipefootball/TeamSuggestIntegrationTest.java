@@ -0,0 +1,88 @@
+package com.matawan.equipefootball;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matawan.equipefootball.dto.PlayerDto;
+import com.matawan.equipefootball.dto.TeamDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class TeamSuggestIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    /**
+     * Test that the suggestions follow the creation, the renaming, the roster changes and the deletion of a team
+     */
+    @Test
+    void testSuggestionsFollowTheWrites() throws Exception {
+        TeamDto teamDto = new TeamDto();
+        teamDto.setName("Olympique Gymnaste Club Ajaccio");
+        teamDto.setAcronym("OGCA");
+        teamDto.setBudget(1000000.0);
+        String response = mockMvc.perform(post("/api/teams")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(teamDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        TeamDto team = objectMapper.readValue(response, TeamDto.class);
+
+        mockMvc.perform(get("/api/teams/suggest").param("q", "gymnaste club aj"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].text").value("Olympique Gymnaste Club Ajaccio"))
+                .andExpect(jsonPath("$[0].type").value("team"))
+                .andExpect(jsonPath("$[0].teamId").value(team.getId()));
+
+        mockMvc.perform(patch("/api/teams/{id}", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Gazélec Ajaccio\", \"acronym\": \"GFCA\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/teams/{id}/players", team.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PlayerDto(null, "Gaëtan Zidane", "Midfielder"))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/teams/suggest").param("q", "gymnaste club aj"))
+                .andExpect(jsonPath("$.length()").value(0));
+        // accents and case are ignored
+        mockMvc.perform(get("/api/teams/suggest").param("q", "GFC"))
+                .andExpect(jsonPath("$[0].text").value("GFCA"))
+                .andExpect(jsonPath("$[0].type").value("acronym"));
+        mockMvc.perform(get("/api/teams/suggest").param("q", "gaet"))
+                .andExpect(jsonPath("$[0].text").value("Gaëtan Zidane"))
+                .andExpect(jsonPath("$[0].type").value("player"));
+        mockMvc.perform(get("/api/teams/suggest").param("q", "gaze"))
+                .andExpect(jsonPath("$[0].text").value("Gazélec Ajaccio"));
+
+        mockMvc.perform(delete("/api/teams/{id}", team.getId()))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/teams/suggest").param("q", "ga"))
+                .andExpect(jsonPath("$[?(@.teamId == " + team.getId() + ")]").isEmpty());
+        mockMvc.perform(get("/api/teams/suggest/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.estimatedBytes").isNumber());
+    }
+}
@@ -0,0 +1,123 @@
+package com.matawan.equipefootball;
+
+import com.matawan.equipefootball.dto.TeamDto;
+import com.matawan.equipefootball.dto.WarmUpReportDto;
+import com.matawan.equipefootball.service.TeamCache;
+import com.matawan.equipefootball.service.TeamService;
+import com.matawan.equipefootball.warmup.StartupLatencyFilter;
+import com.matawan.equipefootball.warmup.TeamWarmUp;
+import com.matawan.equipefootball.warmup.WarmUpStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Startup warm-up, readiness and first-minute latency
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:warm-up;DB_CLOSE_DELAY=-1", // the schema is created again for this context
+        "equipe.warmup.enabled=true",
+        "equipe.warmup.rounds=5"
+})
+@ActiveProfiles("test") // Activates 'test' profile for this test
+public class WarmUpIntegrationTest {
+
+    @Autowired
+    private TeamWarmUp teamWarmUp;
+
+    @Autowired
+    private WarmUpStatus warmUpStatus;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private TeamCache teamCache;
+
+    @Autowired
+    private FilterRegistrationBean<StartupLatencyFilter> startupLatencyFilter;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Test that the warm-up loads the richest teams and those of the first pages into the cache
+     */
+    @Test
+    void testWarmUpPreloadsTheTeams() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            TeamDto teamDto = new TeamDto();
+            teamDto.setName("Warm FC " + i);
+            teamDto.setAcronym("WF" + i);
+            teamDto.setBudget(1000000.0 * (i + 1));
+            ids.add(teamService.addTeam(teamDto).getId());
+        }
+        teamCache.invalidateAll();
+
+        teamWarmUp.run(null);
+
+        WarmUpReportDto report = warmUpStatus.getReport();
+        assertEquals("COMPLETED", report.getState());
+        assertEquals(5, report.getRounds());
+        assertTrue(report.getTeamsPreloaded() >= 3);
+        ids.forEach(id -> assertNotNull(teamCache.get(id)));
+    }
+
+    /**
+     * Test that a team deleted after it was listed is skipped, the others are still preloaded
+     */
+    @Test
+    void testDeletedTeamIsSkipped() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            TeamDto teamDto = new TeamDto();
+            teamDto.setName("Gone FC " + i);
+            teamDto.setAcronym("GF" + i);
+            teamDto.setBudget(900000000.0 + i); // the richest teams, listed first by the leaderboard
+            ids.add(teamService.addTeam(teamDto).getId());
+        }
+        jdbcTemplate.update("DELETE FROM team WHERE id = ?", ids.get(1)); // without event, the leaderboard still lists it
+        teamCache.invalidateAll();
+
+        teamWarmUp.run(null);
+
+        assertEquals("COMPLETED", warmUpStatus.getReport().getState());
+        assertNotNull(teamCache.get(ids.get(0)));
+    }
+
+    /**
+     * Test that the instance reports ready once warmed up, and that the latency of the first team requests is recorded
+     */
+    @Test
+    void testReadinessAndFirstMinuteLatency() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilters(startupLatencyFilter.getFilter()).build();
+
+        mockMvc.perform(get("/api/warmup/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("ACCEPTING_TRAFFIC"));
+
+        long before = warmUpStatus.getReport().getRequests();
+        mockMvc.perform(get("/api/teams").param("sortBy", "name")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/warmup"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requests").value(before + 1))
+                .andExpect(jsonPath("$.p99Ms").isNumber());
+    }
+}